@@ -21,6 +21,7 @@ package org.sonar.ce.task.projectanalysis.batch;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -152,15 +153,15 @@ public class BatchReportReaderImpl implements BatchReportReader {
   @Override
   public Optional<CloseableIterator<String>> readFileSource(int fileRef) {
     ensureInitialized();
-    File file = delegate.readFileSource(fileRef);
-    if (file == null) {
+    InputStream source = delegate.openFileSource(fileRef);
+    if (source == null) {
       return Optional.empty();
     }
-
     try {
-      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(FileUtils.openInputStream(file), UTF_8)));
+      return Optional.of(new CloseableLineIterator(IOUtils.lineIterator(source, UTF_8)));
     } catch (IOException e) {
-      throw new IllegalStateException("Fail to traverse file: " + file, e);
+      IOUtils.closeQuietly(source);
+      throw new IllegalStateException("Fail to traverse source of file #" + fileRef, e);
     }
   }
 
@@ -71,6 +71,7 @@ import org.sonar.ce.task.projectanalysis.issue.IssuesRepositoryVisitor;
 import org.sonar.ce.task.projectanalysis.issue.LoadComponentUuidsHavingOpenIssuesVisitor;
 import org.sonar.ce.task.projectanalysis.issue.MovedIssueVisitor;
 import org.sonar.ce.task.projectanalysis.issue.NewEffortAggregator;
+import org.sonar.ce.task.projectanalysis.issue.PrefetchingOpenIssuesLoader;
 import org.sonar.ce.task.projectanalysis.issue.PullRequestTrackerExecution;
 import org.sonar.ce.task.projectanalysis.issue.ReferenceBranchTrackerExecution;
 import org.sonar.ce.task.projectanalysis.issue.RemoveProcessedComponentsVisitor;
@@ -282,6 +283,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
       PullRequestTrackerExecution.class,
       ReferenceBranchTrackerExecution.class,
       ComponentIssuesLoader.class,
+      PrefetchingOpenIssuesLoader.class,
       BaseIssuesLoader.class,
       IssueTrackingDelegator.class,
       BranchPersisterImpl.class,
@@ -165,23 +165,35 @@ public class ComponentIssuesLoader {
 
   private List<DefaultIssue> loadOpenIssues(String componentUuid, DbSession dbSession) {
     List<DefaultIssue> result = new ArrayList<>();
-    dbSession.getMapper(IssueMapper.class).scrollNonClosedByComponentUuid(componentUuid, resultContext -> {
-      DefaultIssue issue = (resultContext.getResultObject()).toDefaultIssue();
-      Rule rule = ruleRepository.getByKey(issue.ruleKey());
-
-      // TODO this field should be set outside this class
-      if ((!rule.isExternal() && !isActive(issue.ruleKey())) || rule.getStatus() == RuleStatus.REMOVED) {
-        issue.setOnDisabledRule(true);
-        // TODO to be improved, why setOnDisabledRule(true) is not enough ?
-        issue.setBeingClosed(true);
-      }
-      // FIXME
-      issue.setSelectedAt(System.currentTimeMillis());
-      result.add(issue);
-    });
+    dbSession.getMapper(IssueMapper.class).scrollNonClosedByComponentUuid(componentUuid, resultContext -> result.add(toOpenIssue(resultContext.getResultObject())));
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * Converts open issues already loaded from DB, for example by {@link PrefetchingOpenIssuesLoader}, the same way
+   * {@link #loadOpenIssues(String)} does.
+   */
+  public List<DefaultIssue> toOpenIssues(Collection<IssueDto> issueDtos) {
+    List<DefaultIssue> result = new ArrayList<>(issueDtos.size());
+    issueDtos.forEach(dto -> result.add(toOpenIssue(dto)));
     return Collections.unmodifiableList(result);
   }
 
+  private DefaultIssue toOpenIssue(IssueDto issueDto) {
+    DefaultIssue issue = issueDto.toDefaultIssue();
+    Rule rule = ruleRepository.getByKey(issue.ruleKey());
+
+    // TODO this field should be set outside this class
+    if ((!rule.isExternal() && !isActive(issue.ruleKey())) || rule.getStatus() == RuleStatus.REMOVED) {
+      issue.setOnDisabledRule(true);
+      // TODO to be improved, why setOnDisabledRule(true) is not enough ?
+      issue.setBeingClosed(true);
+    }
+    // FIXME
+    issue.setSelectedAt(System.currentTimeMillis());
+    return issue;
+  }
+
   private static void setChanges(Map<String, List<IssueChangeDto>> changeDtoByIssueKey, DefaultIssue i) {
     changeDtoByIssueKey.computeIfAbsent(i.key(), k -> emptyList())
       .forEach(c -> addChangeOrComment(i, c));
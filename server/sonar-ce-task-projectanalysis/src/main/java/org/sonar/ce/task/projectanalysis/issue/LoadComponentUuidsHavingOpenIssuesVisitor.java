@@ -19,6 +19,7 @@
  */
 package org.sonar.ce.task.projectanalysis.issue;
 
+import java.util.Set;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
@@ -26,21 +27,26 @@ import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
 /**
- * Load all open components having open issues of the project
+ * Load all open components having open issues of the project and start prefetching their open issues
  */
 public class LoadComponentUuidsHavingOpenIssuesVisitor extends TypeAwareVisitorAdapter {
 
   private final BaseIssuesLoader baseIssuesLoader;
   private final ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues;
+  private final PrefetchingOpenIssuesLoader prefetchingOpenIssuesLoader;
 
-  public LoadComponentUuidsHavingOpenIssuesVisitor(BaseIssuesLoader baseIssuesLoader, ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues) {
+  public LoadComponentUuidsHavingOpenIssuesVisitor(BaseIssuesLoader baseIssuesLoader, ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues,
+    PrefetchingOpenIssuesLoader prefetchingOpenIssuesLoader) {
     super(CrawlerDepthLimit.PROJECT, PRE_ORDER);
     this.baseIssuesLoader = baseIssuesLoader;
     this.componentsWithUnprocessedIssues = componentsWithUnprocessedIssues;
+    this.prefetchingOpenIssuesLoader = prefetchingOpenIssuesLoader;
   }
 
   @Override
   public void visitProject(Component project) {
-    componentsWithUnprocessedIssues.setUuids(baseIssuesLoader.loadUuidsOfComponentsWithOpenIssues());
+    Set<String> uuids = baseIssuesLoader.loadUuidsOfComponentsWithOpenIssues();
+    componentsWithUnprocessedIssues.setUuids(uuids);
+    prefetchingOpenIssuesLoader.prefetch(project, uuids);
   }
 }
@@ -0,0 +1,242 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.ce.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
+import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.ce.task.projectanalysis.filemove.MovedFilesRepository;
+import org.sonar.ce.task.projectanalysis.filemove.MovedFilesRepository.OriginalFile;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.issue.IssueMapper;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
+
+/**
+ * Loads the open issues of the files of the project ahead of {@link IntegrateIssuesVisitor}, instead of running one
+ * query per file.
+ * <p>
+ * Once the uuids of the components having open issues are known (see {@link LoadComponentUuidsHavingOpenIssuesVisitor}),
+ * the files having open issues are sorted in the order they are visited by {@link IntegrateIssuesVisitor} and a
+ * background thread loads their issues by batches of {@link #BATCH_SIZE} files, keeping at most
+ * {@link #BUFFERED_BATCHES} batches in memory. Files without any open issue in DB are not queried at all.
+ * <p>
+ * Issues are converted to {@link DefaultIssue} in the calling thread because {@link RuleRepository} and
+ * {@link org.sonar.ce.task.projectanalysis.qualityprofile.ActiveRulesHolder} are not thread-safe. Any request which
+ * does not match the prefetching order falls back to {@link ComponentIssuesLoader#loadOpenIssues(String)}.
+ */
+public class PrefetchingOpenIssuesLoader implements Startable {
+  static final int BATCH_SIZE = 500;
+  private static final int BUFFERED_BATCHES = 2;
+  private static final long POLL_TIMEOUT_MS = 500L;
+
+  private final DbClient dbClient;
+  private final ComponentIssuesLoader issuesLoader;
+  private final MovedFilesRepository movedFilesRepository;
+  private final int batchSize;
+
+  @CheckForNull
+  private ExecutorService executor;
+  private BlockingQueue<Batch> batches;
+  private Future<?> loading;
+  private Set<String> filesWithoutOpenIssues = Collections.emptySet();
+  private Map<String, Integer> batchIndexByUuid = emptyMap();
+  private Map<String, List<IssueDto>> currentBatch = emptyMap();
+  private int currentBatchIndex = -1;
+
+  public PrefetchingOpenIssuesLoader(DbClient dbClient, ComponentIssuesLoader issuesLoader, MovedFilesRepository movedFilesRepository) {
+    this(dbClient, issuesLoader, movedFilesRepository, BATCH_SIZE);
+  }
+
+  PrefetchingOpenIssuesLoader(DbClient dbClient, ComponentIssuesLoader issuesLoader, MovedFilesRepository movedFilesRepository, int batchSize) {
+    this.dbClient = dbClient;
+    this.issuesLoader = issuesLoader;
+    this.movedFilesRepository = movedFilesRepository;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void start() {
+    // prefetching starts once the uuids of the components with open issues are known, see prefetch(Component, Set)
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /**
+   * Starts loading in background the open issues of the files of the specified tree which uuid (or uuid of the
+   * original file, when the file has been moved) is in {@code uuidsWithOpenIssues}.
+   */
+  public void prefetch(Component root, Set<String> uuidsWithOpenIssues) {
+    if (executor != null) {
+      throw new IllegalStateException("Open issues are already being prefetched");
+    }
+    List<String> orderedUuids = new ArrayList<>();
+    Set<String> withoutOpenIssues = new HashSet<>();
+    new DepthTraversalTypeAwareCrawler(new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, POST_ORDER) {
+      @Override
+      public void visitFile(Component file) {
+        String effectiveUuid = movedFilesRepository.getOriginalFile(file).map(OriginalFile::getUuid).orElse(file.getUuid());
+        if (uuidsWithOpenIssues.contains(effectiveUuid)) {
+          orderedUuids.add(effectiveUuid);
+        } else {
+          withoutOpenIssues.add(effectiveUuid);
+        }
+      }
+    }).visit(root);
+
+    List<List<String>> partitions = Lists.partition(orderedUuids, batchSize);
+    Map<String, Integer> indexes = new HashMap<>();
+    for (int i = 0; i < partitions.size(); i++) {
+      int batchIndex = i;
+      partitions.get(i).forEach(uuid -> indexes.put(uuid, batchIndex));
+    }
+    this.filesWithoutOpenIssues = withoutOpenIssues;
+    this.batchIndexByUuid = indexes;
+    this.batches = new ArrayBlockingQueue<>(BUFFERED_BATCHES);
+    this.executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setNameFormat("OpenIssuesPrefetcher-%d")
+      .setDaemon(true)
+      .build());
+    this.loading = executor.submit(() -> loadBatches(partitions));
+  }
+
+  public List<DefaultIssue> loadOpenIssues(String componentUuid) {
+    if (filesWithoutOpenIssues.contains(componentUuid)) {
+      return emptyList();
+    }
+    Integer batchIndex = batchIndexByUuid.get(componentUuid);
+    if (batchIndex == null || batchIndex < currentBatchIndex) {
+      return issuesLoader.loadOpenIssues(componentUuid);
+    }
+    while (currentBatchIndex < batchIndex) {
+      currentBatch = takeNextBatch();
+      currentBatchIndex++;
+    }
+    List<IssueDto> issueDtos = currentBatch.remove(componentUuid);
+    if (issueDtos == null) {
+      // issues of this file have already been returned once
+      return issuesLoader.loadOpenIssues(componentUuid);
+    }
+    return issuesLoader.toOpenIssues(issueDtos);
+  }
+
+  private Map<String, List<IssueDto>> takeNextBatch() {
+    Batch batch;
+    try {
+      batch = pollNextBatch();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for open issues to be loaded", e);
+    }
+    if (batch.failure != null) {
+      throw new IllegalStateException("Failed to load open issues", batch.failure);
+    }
+    return batch.issueDtosByUuid;
+  }
+
+  /**
+   * The loader thread queues a batch for each partition, or its failure. Checking that it is still running protects
+   * against the case where it died without being able to queue anything.
+   */
+  private Batch pollNextBatch() throws InterruptedException {
+    while (true) {
+      Batch batch = batches.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      if (batch != null) {
+        return batch;
+      }
+      if (loading.isDone()) {
+        batch = batches.poll();
+        if (batch == null) {
+          throw new IllegalStateException("Open issues loader stopped before loading all the batches");
+        }
+        return batch;
+      }
+    }
+  }
+
+  private void loadBatches(List<List<String>> partitions) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      IssueMapper mapper = dbSession.getMapper(IssueMapper.class);
+      for (List<String> uuids : partitions) {
+        Map<String, List<IssueDto>> issueDtosByUuid = new HashMap<>();
+        uuids.forEach(uuid -> issueDtosByUuid.put(uuid, new ArrayList<>()));
+        mapper.scrollNonClosedByComponentUuids(uuids, resultContext -> {
+          IssueDto issueDto = resultContext.getResultObject();
+          issueDtosByUuid.get(issueDto.getComponentUuid()).add(issueDto);
+        });
+        batches.put(new Batch(issueDtosByUuid, null));
+      }
+    } catch (InterruptedException e) {
+      // loader has been stopped
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      putFailure(e);
+    }
+  }
+
+  private void putFailure(Throwable failure) {
+    try {
+      batches.put(new Batch(emptyMap(), failure));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static final class Batch {
+    private final Map<String, List<IssueDto>> issueDtosByUuid;
+    @CheckForNull
+    private final Throwable failure;
+
+    private Batch(Map<String, List<IssueDto>> issueDtosByUuid, @Nullable Throwable failure) {
+      this.issueDtosByUuid = issueDtosByUuid;
+      this.failure = failure;
+    }
+  }
+}
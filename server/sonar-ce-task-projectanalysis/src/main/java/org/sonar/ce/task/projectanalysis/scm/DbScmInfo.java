@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
@@ -35,10 +36,10 @@ import org.sonar.db.protobuf.DbFileSources;
 @Immutable
 class DbScmInfo implements ScmInfo {
 
-  private final ScmInfo delegate;
+  private final ScmInfoImpl delegate;
   private final String fileHash;
 
-  private DbScmInfo(ScmInfo delegate, String fileHash) {
+  private DbScmInfo(ScmInfoImpl delegate, String fileHash) {
     this.delegate = delegate;
     this.fileHash = fileHash;
   }
@@ -67,6 +68,10 @@ class DbScmInfo implements ScmInfo {
     return fileHash;
   }
 
+  ScmInfoImpl internChangesets(UnaryOperator<Changeset> changesetInterner) {
+    return delegate.internChangesets(changesetInterner);
+  }
+
   @Override
   public Changeset getLatestChangeset() {
     return delegate.getLatestChangeset();
@@ -19,28 +19,81 @@
  */
 package org.sonar.ce.task.projectanalysis.scm;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Objects;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import javax.annotation.CheckForNull;
 import javax.annotation.concurrent.Immutable;
 import org.sonar.api.utils.Preconditions;
 
+/**
+ * Changesets of a file are stored as a dictionary of the distinct {@link Changeset} of the file plus one index
+ * per line in this dictionary. Indexes are stored in the smallest primitive array which can hold them, ie. most
+ * of the time one byte per line.
+ */
 @Immutable
 public class ScmInfoImpl implements ScmInfo {
+  private static final int NO_CHANGESET = 0;
+
   private final Changeset latestChangeset;
-  private final Changeset[] lineChangesets;
+  private final Changeset[] dictionary;
+  private final LineIndexes lineIndexes;
 
   public ScmInfoImpl(Changeset[] lineChangesets) {
+    this(lineChangesets, UnaryOperator.identity());
+  }
+
+  /**
+   * @param changesetInterner applied once on each distinct changeset of the file, typically to share instances between files
+   */
+  ScmInfoImpl(Changeset[] lineChangesets, UnaryOperator<Changeset> changesetInterner) {
     Preconditions.checkNotNull(lineChangesets);
     Preconditions.checkState(lineChangesets.length > 0, "ScmInfo cannot be empty");
-    this.lineChangesets = lineChangesets;
-    this.latestChangeset = computeLatestChangeset(lineChangesets);
+    Map<Changeset, Integer> indexByChangeset = new HashMap<>();
+    List<Changeset> distinctChangesets = new ArrayList<>();
+    int[] indexes = new int[lineChangesets.length];
+    for (int i = 0; i < lineChangesets.length; i++) {
+      Changeset changeset = lineChangesets[i];
+      if (changeset == null) {
+        indexes[i] = NO_CHANGESET;
+      } else {
+        indexes[i] = indexByChangeset.computeIfAbsent(changeset, c -> {
+          distinctChangesets.add(changesetInterner.apply(c));
+          return distinctChangesets.size();
+        });
+      }
+    }
+    this.dictionary = distinctChangesets.toArray(new Changeset[0]);
+    this.lineIndexes = LineIndexes.of(indexes, dictionary.length);
+    this.latestChangeset = computeLatestChangeset(dictionary);
   }
 
-  private static Changeset computeLatestChangeset(Changeset[] lineChangesets) {
-    return Arrays.stream(lineChangesets).filter(Objects::nonNull).max(Comparator.comparingLong(Changeset::getDate))
+  private ScmInfoImpl(Changeset[] dictionary, LineIndexes lineIndexes) {
+    this.dictionary = dictionary;
+    this.lineIndexes = lineIndexes;
+    this.latestChangeset = computeLatestChangeset(dictionary);
+  }
+
+  /**
+   * Same changesets on the same lines, with {@code changesetInterner} applied on each distinct changeset. Line indexes
+   * are shared with this instance.
+   */
+  ScmInfoImpl internChangesets(UnaryOperator<Changeset> changesetInterner) {
+    Changeset[] internedDictionary = new Changeset[dictionary.length];
+    for (int i = 0; i < dictionary.length; i++) {
+      internedDictionary[i] = changesetInterner.apply(dictionary[i]);
+    }
+    return new ScmInfoImpl(internedDictionary, lineIndexes);
+  }
+
+  private static Changeset computeLatestChangeset(Changeset[] changesets) {
+    return Arrays.stream(changesets).max(Comparator.comparingLong(Changeset::getDate))
       .orElseThrow(() -> new IllegalStateException("Expecting at least one Changeset to be present"));
   }
 
@@ -54,24 +107,116 @@ public class ScmInfoImpl implements ScmInfo {
     if (!hasChangesetForLine(lineNumber)) {
       throw new IllegalArgumentException("There's no changeset on line " + lineNumber);
     }
-    return lineChangesets[lineNumber - 1];
+    return dictionary[lineIndexes.get(lineNumber - 1) - 1];
   }
 
   @Override
   public boolean hasChangesetForLine(int lineNumber) {
-    return lineNumber > 0 && lineNumber - 1 < lineChangesets.length && lineChangesets[lineNumber - 1] != null;
+    return lineNumber > 0 && lineNumber - 1 < lineIndexes.size() && lineIndexes.get(lineNumber - 1) != NO_CHANGESET;
   }
 
+  /**
+   * Creates a new array on each call
+   */
   @Override
   public Changeset[] getAllChangesets() {
-    return lineChangesets;
+    Changeset[] result = new Changeset[lineIndexes.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = changesetAt(i);
+    }
+    return result;
+  }
+
+  @CheckForNull
+  private Changeset changesetAt(int lineIndex) {
+    int index = lineIndexes.get(lineIndex);
+    return index == NO_CHANGESET ? null : dictionary[index - 1];
   }
 
   @Override
   public String toString() {
     return "ScmInfoImpl{" +
       "latestChangeset=" + latestChangeset +
-      ", lineChangesets={" + IntStream.range(0, lineChangesets.length).mapToObj(i -> i + 1 + "=" + lineChangesets[i]).collect(Collectors.joining(", "))
+      ", lineChangesets={" + IntStream.range(0, lineIndexes.size()).mapToObj(i -> i + 1 + "=" + changesetAt(i)).collect(Collectors.joining(", "))
       + "}}";
   }
+
+  private abstract static class LineIndexes {
+    private static final int MAX_BYTE_INDEX = 0xFF;
+    private static final int MAX_CHAR_INDEX = 0xFFFF;
+
+    static LineIndexes of(int[] indexes, int maxIndex) {
+      if (maxIndex <= MAX_BYTE_INDEX) {
+        return new ByteLineIndexes(indexes);
+      }
+      if (maxIndex <= MAX_CHAR_INDEX) {
+        return new CharLineIndexes(indexes);
+      }
+      return new IntLineIndexes(indexes);
+    }
+
+    abstract int get(int lineIndex);
+
+    abstract int size();
+  }
+
+  private static final class ByteLineIndexes extends LineIndexes {
+    private final byte[] indexes;
+
+    private ByteLineIndexes(int[] indexes) {
+      this.indexes = new byte[indexes.length];
+      for (int i = 0; i < indexes.length; i++) {
+        this.indexes[i] = (byte) indexes[i];
+      }
+    }
+
+    @Override
+    int get(int lineIndex) {
+      return indexes[lineIndex] & 0xFF;
+    }
+
+    @Override
+    int size() {
+      return indexes.length;
+    }
+  }
+
+  private static final class CharLineIndexes extends LineIndexes {
+    private final char[] indexes;
+
+    private CharLineIndexes(int[] indexes) {
+      this.indexes = new char[indexes.length];
+      for (int i = 0; i < indexes.length; i++) {
+        this.indexes[i] = (char) indexes[i];
+      }
+    }
+
+    @Override
+    int get(int lineIndex) {
+      return indexes[lineIndex];
+    }
+
+    @Override
+    int size() {
+      return indexes.length;
+    }
+  }
+
+  private static final class IntLineIndexes extends LineIndexes {
+    private final int[] indexes;
+
+    private IntLineIndexes(int[] indexes) {
+      this.indexes = indexes;
+    }
+
+    @Override
+    int get(int lineIndex) {
+      return indexes[lineIndex];
+    }
+
+    @Override
+    int size() {
+      return indexes.length;
+    }
+  }
 }
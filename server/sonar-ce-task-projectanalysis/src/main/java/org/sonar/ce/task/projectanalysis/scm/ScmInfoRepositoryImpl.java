@@ -23,6 +23,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
@@ -41,6 +43,10 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
 
   private final BatchReportReader scannerReportReader;
   private final Map<Component, Optional<ScmInfo>> scmInfoCache = new HashMap<>();
+  /**
+   * Changesets are heavily repeated among the files of a project: a single instance of each of them is shared by all files
+   */
+  private final Map<Changeset, Changeset> changesetDictionary = new HashMap<>();
   private final ScmInfoDbLoader scmInfoDbLoader;
   private final AnalysisMetadataHolder analysisMetadata;
   private final SourceLinesDiff sourceLinesDiff;
@@ -63,7 +69,18 @@ public class ScmInfoRepositoryImpl implements ScmInfoRepository {
       return Optional.empty();
     }
 
-    return scmInfoCache.computeIfAbsent(component, this::getScmInfoForComponent);
+    return scmInfoCache.computeIfAbsent(component, c -> getScmInfoForComponent(c).map(this::shareChangesets));
+  }
+
+  private ScmInfo shareChangesets(ScmInfo scmInfo) {
+    UnaryOperator<Changeset> interner = changeset -> changesetDictionary.computeIfAbsent(changeset, Function.identity());
+    if (scmInfo instanceof ScmInfoImpl) {
+      return ((ScmInfoImpl) scmInfo).internChangesets(interner);
+    }
+    if (scmInfo instanceof DbScmInfo) {
+      return ((DbScmInfo) scmInfo).internChangesets(interner);
+    }
+    return new ScmInfoImpl(scmInfo.getAllChangesets(), interner);
   }
 
   private Optional<ScmInfo> getScmInfoForComponent(Component component) {
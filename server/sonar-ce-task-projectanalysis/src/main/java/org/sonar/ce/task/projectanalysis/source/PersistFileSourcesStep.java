@@ -65,8 +65,13 @@ public class PersistFileSourcesStep implements ComputationStep {
   public void execute(ComputationStep.Context context) {
     // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
     try (DbSession dbSession = dbClient.openSession(false)) {
-      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(dbSession))
+      FileSourceVisitor visitor = new FileSourceVisitor(dbSession);
+      new DepthTraversalTypeAwareCrawler(visitor)
         .visit(treeRootHolder.getRoot());
+      context.getStatistics()
+        .add("inserts", visitor.inserts)
+        .add("updates", visitor.updates)
+        .add("unchanged", visitor.unchanged);
     } finally {
       fileSourceDataWarnings.commitWarnings();
     }
@@ -77,6 +82,9 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
     private String projectUuid;
+    private int inserts = 0;
+    private int updates = 0;
+    private int unchanged = 0;
 
     private FileSourceVisitor(DbSession session) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
@@ -106,8 +114,7 @@ public class PersistFileSourcesStep implements ComputationStep {
     private void persistSource(FileSourceDataComputer.Data fileSourceData, Component file) {
       DbFileSources.Data lineData = fileSourceData.getLineData();
 
-      byte[] binaryData = FileSourceDto.encodeSourceData(lineData);
-      String dataHash = DigestUtils.md5Hex(binaryData);
+      String dataHash = computeDataHash(lineData);
       String srcHash = fileSourceData.getSrcHash();
       List<String> lineHashes = fileSourceData.getLineHashes();
       Changeset latestChangeWithRevision = fileSourceData.getLatestChangeWithRevision();
@@ -117,7 +124,7 @@ public class PersistFileSourcesStep implements ComputationStep {
         FileSourceDto dto = new FileSourceDto()
           .setProjectUuid(projectUuid)
           .setFileUuid(file.getUuid())
-          .setBinaryData(binaryData)
+          .setBinaryData(FileSourceDto.encodeSourceData(lineData))
           .setSrcHash(srcHash)
           .setDataHash(dataHash)
           .setLineHashes(lineHashes)
@@ -127,6 +134,7 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setRevision(computeRevision(latestChangeWithRevision));
         dbClient.fileSourceDao().insert(session, dto);
         session.commit();
+        inserts++;
       } else {
         // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
         boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
@@ -136,7 +144,7 @@ public class PersistFileSourcesStep implements ComputationStep {
         boolean lineHashesVersionUpdated = previousDto.getLineHashesVersion() != lineHashesVersion;
         if (binaryDataUpdated || srcHashUpdated || revisionUpdated || lineHashesVersionUpdated) {
           previousDto
-            .setBinaryData(binaryData)
+            .setBinaryData(FileSourceDto.encodeSourceData(lineData))
             .setDataHash(dataHash)
             .setSrcHash(srcHash)
             .setLineHashes(lineHashes)
@@ -145,10 +153,21 @@ public class PersistFileSourcesStep implements ComputationStep {
             .setUpdatedAt(system2.now());
           dbClient.fileSourceDao().update(session, previousDto);
           session.commit();
+          updates++;
+        } else {
+          unchanged++;
         }
       }
     }
 
+    /**
+     * Hash of the uncompressed serialized data, so that unchanged data are detected without paying the cost
+     * of compression.
+     */
+    private String computeDataHash(DbFileSources.Data lineData) {
+      return DigestUtils.md5Hex(lineData.toByteArray());
+    }
+
     @CheckForNull
     private String computeRevision(@Nullable Changeset latestChangeWithRevision) {
       if (latestChangeWithRevision == null) {
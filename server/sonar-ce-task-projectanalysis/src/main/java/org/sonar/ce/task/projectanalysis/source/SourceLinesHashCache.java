@@ -20,37 +20,93 @@
 package org.sonar.ce.task.projectanalysis.source;
 
 import com.google.common.base.Preconditions;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
 import org.sonar.api.utils.TempFolder;
 import org.sonar.ce.task.projectanalysis.component.Component;
 
-public class SourceLinesHashCache {
-  private static final String FILE_NAME_PREFIX = "hashes-";
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
 
-  private final Path cacheDirectoryPath;
-  private final Set<Integer> cacheFileIds = new HashSet<>();
+/**
+ * Line hashes of the files of the project, computed at most once per task.
+ * <p>
+ * Hashes are appended to a single file of the temp folder, indexed by component ref. MD5 hashes are stored as 16 bytes
+ * instead of 32 hexadecimal characters. The hashes of the most recently used files are kept on heap, up to
+ * {@link #MAX_LINES_ON_HEAP} lines, and the same {@link List} is returned to all callers while it stays there.
+ */
+public class SourceLinesHashCache implements Startable {
+  static final int MAX_LINES_ON_HEAP = 100_000;
+  private static final String FILE_NAME = "hashes";
+  private static final int MD5_HEX_LENGTH = 32;
+  private static final byte EMPTY_HASH = 0;
+  private static final byte MD5_HASH = 1;
+  private static final byte OTHER_HASH = 2;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final Path filePath;
+  private final int maxLinesOnHeap;
+  private final Map<Integer, Segment> segmentsByRef = new HashMap<>();
+  private final LinkedHashMap<Integer, List<String>> hashesOnHeapByRef = new LinkedHashMap<>(16, 0.75F, true);
+  private int linesOnHeap = 0;
+  private long fileSize = 0;
+  @CheckForNull
+  private FileChannel channel;
 
   public SourceLinesHashCache(TempFolder tempFolder) {
-    this.cacheDirectoryPath = tempFolder.newDir().toPath();
+    this(tempFolder, MAX_LINES_ON_HEAP);
+  }
+
+  SourceLinesHashCache(TempFolder tempFolder, int maxLinesOnHeap) {
+    this.filePath = tempFolder.newDir().toPath().resolve(FILE_NAME);
+    this.maxLinesOnHeap = maxLinesOnHeap;
+  }
+
+  @Override
+  public void start() {
+    // file is created when the first hashes are saved
+  }
+
+  @Override
+  public void stop() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        throw new IllegalStateException(String.format("Failed to close '%s'", filePath), e);
+      } finally {
+        channel = null;
+      }
+    }
   }
 
   public List<String> computeIfAbsent(Component component, Function<Component, List<String>> hashesComputer) {
     int ref = getId(component);
 
-    if (cacheFileIds.add(ref)) {
-      List<String> hashes = hashesComputer.apply(component);
-      save(ref, hashes);
-      return hashes;
-    } else {
+    if (segmentsByRef.containsKey(ref)) {
       return load(ref);
     }
+    List<String> hashes = Collections.unmodifiableList(new ArrayList<>(hashesComputer.apply(component)));
+    save(ref, hashes);
+    keepOnHeap(ref, hashes);
+    return hashes;
   }
 
   /**
@@ -62,32 +118,134 @@ public class SourceLinesHashCache {
   }
 
   public boolean contains(Component component) {
-    return cacheFileIds.contains(getId(component));
+    return segmentsByRef.containsKey(getId(component));
   }
 
   private static int getId(Component component) {
     return component.getReportAttributes().getRef();
   }
 
-  private void save(int fileId, List<String> hashes) {
-    Path filePath = getFilePath(fileId);
+  private void keepOnHeap(int ref, List<String> hashes) {
+    hashesOnHeapByRef.put(ref, hashes);
+    linesOnHeap += hashes.size();
+    Iterator<List<String>> leastRecentlyUsed = hashesOnHeapByRef.values().iterator();
+    while (linesOnHeap > maxLinesOnHeap && hashesOnHeapByRef.size() > 1) {
+      linesOnHeap -= leastRecentlyUsed.next().size();
+      leastRecentlyUsed.remove();
+    }
+  }
+
+  private void save(int ref, List<String> hashes) {
+    byte[] bytes = encode(hashes);
     try {
-      Files.write(filePath, hashes, StandardCharsets.UTF_8);
+      FileChannel fileChannel = getChannel();
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      while (buffer.hasRemaining()) {
+        fileChannel.write(buffer, fileSize + buffer.position());
+      }
     } catch (IOException e) {
       throw new IllegalStateException(String.format("Failed to write to '%s'", filePath), e);
     }
+    segmentsByRef.put(ref, new Segment(fileSize, bytes.length, hashes.size()));
+    fileSize += bytes.length;
   }
 
-  private List<String> load(int fileId) {
-    Path filePath = getFilePath(fileId);
+  private List<String> load(int ref) {
+    List<String> hashes = hashesOnHeapByRef.get(ref);
+    if (hashes != null) {
+      return hashes;
+    }
+    Segment segment = segmentsByRef.get(ref);
+    ByteBuffer buffer = ByteBuffer.allocate(segment.length);
     try {
-      return Files.readAllLines(filePath, StandardCharsets.UTF_8);
+      FileChannel fileChannel = getChannel();
+      while (buffer.hasRemaining()) {
+        if (fileChannel.read(buffer, segment.offset + buffer.position()) < 0) {
+          throw new IllegalStateException(String.format("Unexpected end of '%s'", filePath));
+        }
+      }
+      hashes = decode(buffer.array(), segment.lines);
     } catch (IOException e) {
       throw new IllegalStateException(String.format("Failed to read '%s'", filePath), e);
     }
+    keepOnHeap(ref, hashes);
+    return hashes;
   }
 
-  private Path getFilePath(int fileId) {
-    return cacheDirectoryPath.resolve(FILE_NAME_PREFIX + fileId);
+  private FileChannel getChannel() throws IOException {
+    if (channel == null) {
+      channel = FileChannel.open(filePath, CREATE_NEW, READ, WRITE);
+    }
+    return channel;
+  }
+
+  private static byte[] encode(List<String> hashes) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(hashes.size() * (1 + MD5_HEX_LENGTH / 2));
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      for (String hash : hashes) {
+        if (hash.isEmpty()) {
+          out.writeByte(EMPTY_HASH);
+        } else if (isMd5Hex(hash)) {
+          out.writeByte(MD5_HASH);
+          for (int i = 0; i < MD5_HEX_LENGTH; i += 2) {
+            out.writeByte((Character.digit(hash.charAt(i), 16) << 4) | Character.digit(hash.charAt(i + 1), 16));
+          }
+        } else {
+          out.writeByte(OTHER_HASH);
+          out.writeUTF(hash);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to encode line hashes", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static List<String> decode(byte[] bytes, int lines) throws IOException {
+    List<String> hashes = new ArrayList<>(lines);
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      char[] hex = new char[MD5_HEX_LENGTH];
+      for (int line = 0; line < lines; line++) {
+        byte type = in.readByte();
+        if (type == EMPTY_HASH) {
+          hashes.add("");
+        } else if (type == MD5_HASH) {
+          for (int i = 0; i < MD5_HEX_LENGTH; i += 2) {
+            int b = in.readUnsignedByte();
+            hex[i] = HEX_DIGITS[b >>> 4];
+            hex[i + 1] = HEX_DIGITS[b & 0x0F];
+          }
+          hashes.add(new String(hex));
+        } else {
+          hashes.add(in.readUTF());
+        }
+      }
+    }
+    return Collections.unmodifiableList(hashes);
+  }
+
+  private static boolean isMd5Hex(String hash) {
+    if (hash.length() != MD5_HEX_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < MD5_HEX_LENGTH; i++) {
+      char c = hash.charAt(i);
+      if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static final class Segment {
+    private final long offset;
+    private final int length;
+    private final int lines;
+
+    private Segment(long offset, int length, int lines) {
+      this.offset = offset;
+      this.length = length;
+      this.lines = lines;
+    }
   }
 }
@@ -32,6 +32,7 @@ import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
 import static com.google.common.collect.ImmutableList.of;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class BatchReportReaderImplTest {
@@ -51,12 +52,13 @@ public class BatchReportReaderImplTest {
   @Rule
   public JUnitTempFolder tempFolder = new JUnitTempFolder();
 
+  private BatchReportDirectoryHolder holder;
   private ScannerReportWriter writer;
   private BatchReportReaderImpl underTest;
 
   @Before
   public void setUp() {
-    BatchReportDirectoryHolder holder = new ImmutableBatchReportDirectoryHolder(tempFolder.newDir());
+    holder = new ImmutableBatchReportDirectoryHolder(tempFolder.newDir());
     underTest = new BatchReportReaderImpl(holder);
     writer = new ScannerReportWriter(holder.getDirectory());
   }
@@ -100,6 +102,7 @@ public class BatchReportReaderImplTest {
   @Test
   public void verify_readComponentMeasures_returns_measures() {
     writer.appendComponentMeasure(COMPONENT_REF, MEASURE);
+    writer.flush();
 
     try (CloseableIterator<ScannerReport.Measure> measures = underTest.readComponentMeasures(COMPONENT_REF)) {
       assertThat(measures.next()).isEqualTo(MEASURE);
@@ -110,6 +113,7 @@ public class BatchReportReaderImplTest {
   @Test
   public void readComponentMeasures_is_not_cached() {
     writer.appendComponentMeasure(COMPONENT_REF, MEASURE);
+    writer.flush();
 
     assertThat(underTest.readComponentMeasures(COMPONENT_REF)).isNotSameAs(underTest.readComponentMeasures(COMPONENT_REF));
   }
@@ -284,6 +288,24 @@ public class BatchReportReaderImplTest {
     res.close();
   }
 
+  @Test
+  public void read_segmented_report() {
+    writer = new ScannerReportWriter(holder.getDirectory(), true);
+    writer.writeComponent(COMPONENT);
+    writer.appendComponentIssue(COMPONENT_REF, ISSUE);
+    writer.writeComponentSource(COMPONENT_REF, output -> output.write("1\n2\n3".getBytes(UTF_8)));
+    writer.flush();
+
+    assertThat(underTest.readComponent(COMPONENT_REF)).isEqualTo(COMPONENT);
+    CloseableIterator<ScannerReport.Issue> issues = underTest.readComponentIssues(COMPONENT_REF);
+    assertThat(issues).toIterable().containsExactly(ISSUE);
+    issues.close();
+    CloseableIterator<String> source = underTest.readFileSource(COMPONENT_REF).get();
+    assertThat(source).toIterable().containsExactly("1", "2", "3");
+    source.close();
+    assertThat(underTest.readFileSource(COMPONENT_REF + 1)).isEmpty();
+  }
+
   @Test
   public void verify_readAnalysisWarnings() {
     ScannerReport.AnalysisWarning warning1 = ScannerReport.AnalysisWarning.newBuilder().setText("warning 1").build();
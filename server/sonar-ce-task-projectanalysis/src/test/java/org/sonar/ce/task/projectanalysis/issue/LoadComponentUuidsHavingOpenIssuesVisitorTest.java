@@ -37,15 +37,19 @@ public class LoadComponentUuidsHavingOpenIssuesVisitorTest {
 
   BaseIssuesLoader baseIssuesLoader = mock(BaseIssuesLoader.class);
   ComponentsWithUnprocessedIssues componentsWithUnprocessedIssues = mock(ComponentsWithUnprocessedIssues.class);
-  VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(new LoadComponentUuidsHavingOpenIssuesVisitor(baseIssuesLoader, componentsWithUnprocessedIssues)));
+  PrefetchingOpenIssuesLoader prefetchingOpenIssuesLoader = mock(PrefetchingOpenIssuesLoader.class);
+  VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(
+    new LoadComponentUuidsHavingOpenIssuesVisitor(baseIssuesLoader, componentsWithUnprocessedIssues, prefetchingOpenIssuesLoader)));
 
   @Test
   public void set_issues_when_visiting_project() {
     when(baseIssuesLoader.loadUuidsOfComponentsWithOpenIssues()).thenReturn(newHashSet("FILE1", "FILE2"));
 
-    underTest.visit(ReportComponent.builder(PROJECT, 1).build());
+    ReportComponent project = ReportComponent.builder(PROJECT, 1).build();
+    underTest.visit(project);
 
     verify(componentsWithUnprocessedIssues).setUuids(newHashSet("FILE1", "FILE2"));
+    verify(prefetchingOpenIssuesLoader).prefetch(project, newHashSet("FILE1", "FILE2"));
   }
 
   @Test
@@ -55,6 +59,6 @@ public class LoadComponentUuidsHavingOpenIssuesVisitorTest {
     underTest.visit(ReportComponent.builder(DIRECTORY, 1).build());
     underTest.visit(ReportComponent.builder(FILE, 1).build());
 
-    verifyZeroInteractions(componentsWithUnprocessedIssues);
+    verifyZeroInteractions(componentsWithUnprocessedIssues, prefetchingOpenIssuesLoader);
   }
 }
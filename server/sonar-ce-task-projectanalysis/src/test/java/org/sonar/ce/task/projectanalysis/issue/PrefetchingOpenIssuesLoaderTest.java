@@ -0,0 +1,165 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.ReportComponent;
+import org.sonar.ce.task.projectanalysis.filemove.MovedFilesRepository;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.issue.IssueDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.api.issue.Issue.STATUS_CLOSED;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+
+public class PrefetchingOpenIssuesLoaderTest {
+
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private ComponentIssuesLoader issuesLoader = mock(ComponentIssuesLoader.class);
+  private MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
+  private PrefetchingOpenIssuesLoader underTest = new PrefetchingOpenIssuesLoader(db.getDbClient(), issuesLoader, movedFilesRepository, 1);
+
+  private ComponentDto project;
+  private RuleDefinitionDto rule;
+
+  @Before
+  public void setUp() {
+    project = db.components().insertPrivateProject();
+    rule = db.rules().insert();
+    when(movedFilesRepository.getOriginalFile(any(Component.class))).thenReturn(Optional.empty());
+    when(issuesLoader.toOpenIssues(any())).thenAnswer(invocation -> invocation.<Collection<IssueDto>>getArgument(0).stream()
+      .map(IssueDto::toDefaultIssue)
+      .collect(toList()));
+  }
+
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
+  @Test
+  public void loadOpenIssues_returns_prefetched_open_issues_of_files_in_visit_order() {
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project));
+    ComponentDto file3 = db.components().insertComponent(newFileDto(project));
+    IssueDto issue1 = db.issues().insert(rule, project, file1);
+    IssueDto issue3 = db.issues().insert(rule, project, file3);
+    IssueDto otherIssue3 = db.issues().insert(rule, project, file3);
+    db.issues().insert(rule, project, file3, t -> t.setStatus(STATUS_CLOSED));
+
+    underTest.prefetch(treeOf(file1, file2, file3), newHashSet(project.uuid(), file1.uuid(), file3.uuid()));
+
+    assertThat(keysOf(underTest.loadOpenIssues(file1.uuid()))).containsOnly(issue1.getKey());
+    assertThat(underTest.loadOpenIssues(file2.uuid())).isEmpty();
+    assertThat(keysOf(underTest.loadOpenIssues(file3.uuid()))).containsOnly(issue3.getKey(), otherIssue3.getKey());
+    verify(issuesLoader, never()).loadOpenIssues(anyString());
+  }
+
+  @Test
+  public void loadOpenIssues_uses_uuid_of_original_file_of_moved_files() {
+    ComponentDto originalFile = db.components().insertComponent(newFileDto(project));
+    IssueDto issue = db.issues().insert(rule, project, originalFile);
+    Component movedFile = ReportComponent.builder(Component.Type.FILE, 2).setUuid("moved_file").build();
+    when(movedFilesRepository.getOriginalFile(movedFile))
+      .thenReturn(Optional.of(new MovedFilesRepository.OriginalFile(originalFile.uuid(), originalFile.getDbKey())));
+
+    underTest.prefetch(ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(project.uuid()).addChildren(movedFile).build(),
+      newHashSet(originalFile.uuid()));
+
+    assertThat(keysOf(underTest.loadOpenIssues(originalFile.uuid()))).containsOnly(issue.getKey());
+    verify(issuesLoader, never()).loadOpenIssues(anyString());
+  }
+
+  @Test
+  public void loadOpenIssues_falls_back_to_ComponentIssuesLoader_when_not_prefetched() {
+    underTest.loadOpenIssues("file_uuid");
+
+    verify(issuesLoader).loadOpenIssues("file_uuid");
+  }
+
+  @Test
+  public void loadOpenIssues_falls_back_to_ComponentIssuesLoader_when_files_are_not_requested_in_visit_order() {
+    ComponentDto file1 = db.components().insertComponent(newFileDto(project));
+    ComponentDto file2 = db.components().insertComponent(newFileDto(project));
+    db.issues().insert(rule, project, file1);
+    IssueDto issue2 = db.issues().insert(rule, project, file2);
+
+    underTest.prefetch(treeOf(file1, file2), newHashSet(file1.uuid(), file2.uuid()));
+
+    assertThat(keysOf(underTest.loadOpenIssues(file2.uuid()))).containsOnly(issue2.getKey());
+    underTest.loadOpenIssues(file1.uuid());
+    underTest.loadOpenIssues(file2.uuid());
+
+    verify(issuesLoader).loadOpenIssues(file1.uuid());
+    verify(issuesLoader).loadOpenIssues(file2.uuid());
+  }
+
+  @Test
+  public void loadOpenIssues_fails_when_loader_thread_dies_with_an_error() {
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    Error error = new Error("loader died");
+    DbClient dbClient = mock(DbClient.class);
+    when(dbClient.openSession(false)).thenThrow(error);
+    underTest = new PrefetchingOpenIssuesLoader(dbClient, issuesLoader, movedFilesRepository, 1);
+
+    underTest.prefetch(treeOf(file), newHashSet(file.uuid()));
+
+    assertThatThrownBy(() -> underTest.loadOpenIssues(file.uuid()))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Failed to load open issues")
+      .hasCause(error);
+  }
+
+  private ReportComponent treeOf(ComponentDto... files) {
+    ReportComponent.Builder builder = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(project.uuid());
+    int ref = 2;
+    for (ComponentDto file : files) {
+      builder.addChildren(ReportComponent.builder(Component.Type.FILE, ref++).setUuid(file.uuid()).build());
+    }
+    return builder.build();
+  }
+
+  private static List<String> keysOf(List<DefaultIssue> issues) {
+    return issues.stream().map(DefaultIssue::key).collect(toList());
+  }
+}
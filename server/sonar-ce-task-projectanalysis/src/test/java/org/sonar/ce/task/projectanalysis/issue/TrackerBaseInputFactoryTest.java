@@ -58,7 +58,7 @@ public class TrackerBaseInputFactoryTest {
   private MovedFilesRepository movedFilesRepository = mock(MovedFilesRepository.class);
 
   private TrackerBaseInputFactory underTest = new TrackerBaseInputFactory(issuesLoader, dbClient, movedFilesRepository, mock(ReportModulesPath.class), analysisMetadataHolder,
-    new IssueFieldsSetter(), mock(ComponentsWithUnprocessedIssues.class));
+    new IssueFieldsSetter(), mock(ComponentsWithUnprocessedIssues.class), new PrefetchingOpenIssuesLoader(dbClient, issuesLoader, movedFilesRepository));
 
   @Before
   public void setUp() {
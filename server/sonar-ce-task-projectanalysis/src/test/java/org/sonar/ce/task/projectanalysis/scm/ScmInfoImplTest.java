@@ -19,6 +19,8 @@
  */
 package org.sonar.ce.task.projectanalysis.scm;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -82,6 +84,74 @@ public class ScmInfoImplTest {
     new ScmInfoImpl(new Changeset[0]);
   }
 
+  @Test
+  public void lines_without_changeset() {
+    ScmInfo scmInfo = new ScmInfoImpl(new Changeset[] {CHANGESET_1, null, CHANGESET_2});
+
+    assertThat(scmInfo.hasChangesetForLine(1)).isTrue();
+    assertThat(scmInfo.hasChangesetForLine(2)).isFalse();
+    assertThat(scmInfo.hasChangesetForLine(3)).isTrue();
+    assertThat(scmInfo.getAllChangesets()).containsExactly(CHANGESET_1, null, CHANGESET_2);
+  }
+
+  @Test
+  public void support_more_distinct_changesets_than_a_byte_can_index() {
+    int lines = 70_000;
+    Changeset[] changesets = new Changeset[lines];
+    for (int i = 0; i < lines; i++) {
+      changesets[i] = Changeset.newChangesetBuilder().setDate((long) i).setRevision("rev-" + i).build();
+    }
+
+    ScmInfo scmInfo = new ScmInfoImpl(changesets);
+
+    assertThat(scmInfo.getChangesetForLine(1)).isSameAs(changesets[0]);
+    assertThat(scmInfo.getChangesetForLine(300)).isSameAs(changesets[299]);
+    assertThat(scmInfo.getChangesetForLine(lines)).isSameAs(changesets[lines - 1]);
+    assertThat(scmInfo.getLatestChangeset()).isSameAs(changesets[lines - 1]);
+    assertThat(scmInfo.getAllChangesets()).containsExactly(changesets);
+  }
+
+  @Test
+  public void apply_interner_once_per_distinct_changeset() {
+    Changeset sharedChangeset1 = Changeset.newChangesetBuilder().setAuthor("john").setDate(123456789L).setRevision("rev-1").build();
+    List<Changeset> internedChangesets = new ArrayList<>();
+
+    ScmInfo scmInfo = new ScmInfoImpl(new Changeset[] {CHANGESET_1, CHANGESET_2, CHANGESET_1}, c -> {
+      internedChangesets.add(c);
+      return c.equals(sharedChangeset1) ? sharedChangeset1 : c;
+    });
+
+    assertThat(internedChangesets).containsExactly(CHANGESET_1, CHANGESET_2);
+    assertThat(scmInfo.getChangesetForLine(1)).isSameAs(sharedChangeset1);
+    assertThat(scmInfo.getChangesetForLine(2)).isSameAs(CHANGESET_2);
+    assertThat(scmInfo.getChangesetForLine(3)).isSameAs(sharedChangeset1);
+  }
+
+  @Test
+  public void store_equal_changesets_once() {
+    Changeset changeset = Changeset.newChangesetBuilder().setDate(123456789L).build();
+    Changeset equalChangeset = Changeset.newChangesetBuilder().setDate(123456789L).build();
+
+    ScmInfo scmInfo = new ScmInfoImpl(new Changeset[] {changeset, equalChangeset});
+
+    assertThat(scmInfo.getChangesetForLine(1)).isSameAs(changeset);
+    assertThat(scmInfo.getChangesetForLine(2)).isSameAs(changeset);
+  }
+
+  @Test
+  public void intern_changesets_of_existing_instance() {
+    Changeset sharedChangeset2 = Changeset.newChangesetBuilder().setAuthor("henry").setDate(1234567810L).setRevision("rev-2").build();
+    ScmInfoImpl scmInfo = new ScmInfoImpl(new Changeset[] {CHANGESET_1, CHANGESET_2, CHANGESET_1});
+
+    ScmInfo interned = scmInfo.internChangesets(c -> c.equals(sharedChangeset2) ? sharedChangeset2 : c);
+
+    assertThat(interned.getChangesetForLine(1)).isSameAs(CHANGESET_1);
+    assertThat(interned.getChangesetForLine(2)).isSameAs(sharedChangeset2);
+    assertThat(interned.getChangesetForLine(3)).isSameAs(CHANGESET_1);
+    assertThat(interned.getLatestChangeset()).isSameAs(sharedChangeset2);
+    assertThat(scmInfo.getChangesetForLine(2)).isSameAs(CHANGESET_2);
+  }
+
   @Test
   public void fail_with_IAE_when_line_is_smaller_than_one() {
     thrown.expect(IllegalArgumentException.class);
@@ -112,6 +112,26 @@ public class ScmInfoRepositoryImplTest {
     verifyZeroInteractions(diff);
   }
 
+  @Test
+  public void share_equal_changesets_between_files() {
+    Component otherFile = builder(Component.Type.FILE, 2).setKey("FILE_KEY_2").setUuid("FILE_UUID_2").setFileAttributes(attributes).build();
+    addChangesetInReport("john", DATE_1, "rev-1");
+    reportReader.putChangesets(ScannerReport.Changesets.newBuilder()
+      .setComponentRef(2)
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder()
+        .setAuthor("john")
+        .setDate(DATE_1)
+        .setRevision("rev-1")
+        .build())
+      .addChangesetIndexByLine(0)
+      .build());
+
+    Changeset changeset = underTest.getScmInfo(FILE).get().getChangesetForLine(1);
+    Changeset otherChangeset = underTest.getScmInfo(otherFile).get().getChangesetForLine(1);
+
+    assertThat(otherChangeset).isSameAs(changeset);
+  }
+
   @Test
   public void read_from_report() {
     addChangesetInReport("john", DATE_1, "rev-1");
@@ -103,14 +103,15 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     when(fileSourceDataComputer.compute(fileComponent().build(), fileSourceDataWarnings))
       .thenReturn(new FileSourceDataComputer.Data(fileSourceData, lineHashes, sourceHash, null));
 
-    underTest.execute(new TestComputationStepContext());
+    TestComputationStepContext context = new TestComputationStepContext();
+    underTest.execute(context);
 
     assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(1);
     FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectByFileUuid(session, FILE1_UUID);
     assertThat(fileSourceDto.getProjectUuid()).isEqualTo(PROJECT_UUID);
     assertThat(fileSourceDto.getFileUuid()).isEqualTo(FILE1_UUID);
     assertThat(fileSourceDto.getBinaryData()).isNotEmpty();
-    assertThat(fileSourceDto.getDataHash()).isNotEmpty();
+    assertThat(fileSourceDto.getDataHash()).isEqualTo(DigestUtils.md5Hex(fileSourceData.toByteArray()));
     assertThat(fileSourceDto.getLineHashesVersion()).isEqualTo(LineHashVersion.WITHOUT_SIGNIFICANT_CODE.getDbValue());
     assertThat(fileSourceDto.getLineHashes()).isNotEmpty();
     assertThat(fileSourceDto.getCreatedAt()).isEqualTo(NOW);
@@ -122,6 +123,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     assertThat(data.getLines(0).getSource()).isEqualTo("line1");
     assertThat(data.getLines(1).getLine()).isEqualTo(2);
     assertThat(data.getLines(1).getSource()).isEqualTo("line2");
+    context.getStatistics().assertValue("inserts", 1);
     verify(fileSourceDataWarnings).commitWarnings();
   }
 
@@ -312,7 +314,13 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     Changeset changeset = Changeset.newChangesetBuilder().setDate(1L).setRevision("rev-1").build();
     setComputedData(DbFileSources.Data.newBuilder().build(), Collections.singletonList("lineHash"), "sourceHash", changeset);
 
-    underTest.execute(new TestComputationStepContext());
+    TestComputationStepContext context = new TestComputationStepContext();
+    underTest.execute(context);
+
+    context.getStatistics()
+      .assertValue("inserts", 0)
+      .assertValue("updates", 0)
+      .assertValue("unchanged", 1);
 
     assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(1);
     FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectByFileUuid(session, FILE1_UUID);
@@ -417,8 +425,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
 
   private FileSourceDto createDto(Consumer<FileSourceDto> modifier) {
     DbFileSources.Data sourceData = DbFileSources.Data.newBuilder().build();
-    byte[] data = FileSourceDto.encodeSourceData(sourceData);
-    String dataHash = DigestUtils.md5Hex(data);
+    String dataHash = DigestUtils.md5Hex(sourceData.toByteArray());
 
     FileSourceDto dto = new FileSourceDto()
       .setProjectUuid(PROJECT_UUID)
@@ -19,9 +19,12 @@
  */
 package org.sonar.ce.task.projectanalysis.source;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.function.Function;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -38,6 +41,8 @@ import static org.mockito.Mockito.when;
 public class SourceLinesHashCacheTest {
   private static final String FILE_UUID = "FILE_UUID";
   private static final String FILE_KEY = "FILE_KEY";
+  private static final String MD5_1 = "0123456789abcdef0123456789abcdef";
+  private static final String MD5_2 = "fedcba9876543210fedcba9876543210";
 
   @Rule
   public JUnitTempFolder tempFolder = new JUnitTempFolder();
@@ -52,6 +57,11 @@ public class SourceLinesHashCacheTest {
     underTest = new SourceLinesHashCache(tempFolder);
   }
 
+  @After
+  public void tearDown() {
+    underTest.stop();
+  }
+
   @Test
   public void should_computeIfAbsent() {
     Component component = createComponent(1);
@@ -86,6 +96,38 @@ public class SourceLinesHashCacheTest {
     assertThat(underTest.get(component)).isEqualTo(list);
   }
 
+  @Test
+  public void get_returns_same_instance_while_hashes_are_kept_on_heap() {
+    Component component = createComponent(1);
+    List<String> hashes = underTest.computeIfAbsent(component, c -> Arrays.asList("hash1", "hash2"));
+
+    assertThat(underTest.get(component)).isSameAs(hashes);
+  }
+
+  @Test
+  public void get_reads_hashes_evicted_from_heap_from_disk() {
+    underTest = new SourceLinesHashCache(tempFolder, 2);
+    Component component1 = createComponent(1);
+    Component component2 = createComponent(2);
+    List<String> hashes1 = Arrays.asList(MD5_1, "", "not a md5 hash", MD5_2.toUpperCase(Locale.ENGLISH));
+    List<String> hashes2 = Arrays.asList(MD5_2, MD5_1, "");
+
+    List<String> cached1 = underTest.computeIfAbsent(component1, c -> hashes1);
+    underTest.computeIfAbsent(component2, c -> hashes2);
+
+    List<String> reloaded1 = underTest.get(component1);
+    assertThat(reloaded1).isNotSameAs(cached1).containsExactlyElementsOf(hashes1);
+    assertThat(underTest.get(component2)).containsExactlyElementsOf(hashes2);
+    assertThat(underTest.computeIfAbsent(component1, c -> {
+      throw new IllegalStateException("should not be called");
+    })).containsExactlyElementsOf(hashes1);
+  }
+
+  @Test
+  public void stop_can_be_called_when_nothing_was_cached() {
+    underTest.stop();
+  }
+
   private static Component createComponent(int ref) {
     return ReportComponent.builder(Component.Type.FILE, ref)
       .setKey(FILE_KEY)
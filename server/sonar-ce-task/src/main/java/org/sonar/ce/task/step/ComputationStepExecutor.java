@@ -25,6 +25,8 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.task.CeTaskInterrupter;
 import org.sonar.core.util.logs.Profiler;
+import org.sonar.db.profiling.SqlStatistics;
+import org.sonar.server.platform.monitoring.SqlStatisticsMonitoring;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
@@ -37,6 +39,8 @@ public final class ComputationStepExecutor {
   private final CeTaskInterrupter taskInterrupter;
   @CheckForNull
   private final Listener listener;
+  @CheckForNull
+  private final SqlStatisticsMonitoring sqlStatisticsMonitoring;
 
   /**
    * Used when no {@link ComputationStepExecutor.Listener} is available in pico
@@ -47,9 +51,15 @@ public final class ComputationStepExecutor {
   }
 
   public ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter, @Nullable Listener listener) {
+    this(steps, taskInterrupter, listener, null);
+  }
+
+  public ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter, @Nullable Listener listener,
+    @Nullable SqlStatisticsMonitoring sqlStatisticsMonitoring) {
     this.steps = steps;
     this.taskInterrupter = taskInterrupter;
     this.listener = listener;
+    this.sqlStatisticsMonitoring = sqlStatisticsMonitoring;
   }
 
   public void execute() {
@@ -76,16 +86,28 @@ public final class ComputationStepExecutor {
   private void executeStep(Profiler stepProfiler, ComputationStep.Context context, ComputationStep step) {
     String status = "FAILED";
     stepProfiler.start();
+    SqlStatistics sqlStatistics = sqlStatisticsMonitoring == null ? null : sqlStatisticsMonitoring.start();
     try {
       taskInterrupter.check(Thread.currentThread());
       step.execute(context);
       status = "SUCCESS";
     } finally {
+      if (sqlStatistics != null) {
+        sqlStatisticsMonitoring.stop(sqlStatistics, step.getDescription());
+        addSqlStatistics(stepProfiler, sqlStatistics);
+      }
       stepProfiler.addContext("status", status);
       stepProfiler.stopInfo(step.getDescription());
     }
   }
 
+  private static void addSqlStatistics(Profiler stepProfiler, SqlStatistics sqlStatistics) {
+    stepProfiler.addContext("sqlStatements", sqlStatistics.getStatementCount());
+    stepProfiler.addContext("sqlDistinctStatements", sqlStatistics.getDistinctStatementCount());
+    stepProfiler.addContext("sqlRows", sqlStatistics.getRowCount());
+    stepProfiler.addContext("sqlTime", sqlStatistics.getDurationMs() + "ms");
+  }
+
   private void executeListener(boolean allStepsExecuted) {
     try {
       listener.finished(allStepsExecuted);
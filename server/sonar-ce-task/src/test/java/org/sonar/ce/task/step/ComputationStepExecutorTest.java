@@ -25,10 +25,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.ce.task.CeTaskInterrupter;
 import org.sonar.ce.task.ChangeLogLevel;
+import org.sonar.db.DefaultDatabase;
+import org.sonar.server.platform.monitoring.SqlStatisticsMonitoring;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
@@ -138,6 +141,24 @@ public class ComputationStepExecutorTest {
     }
   }
 
+  @Test
+  public void execute_logs_sql_statistics_of_each_ComputationStep_if_enabled() {
+    ComputationStep step = new StepWithStatistics("Step One", "foo", "100");
+    SqlStatisticsMonitoring sqlStatisticsMonitoring = new SqlStatisticsMonitoring(new MapSettings()
+      .setProperty(DefaultDatabase.SQL_STATISTICS_ENABLED, true)
+      .asConfig());
+
+    try (ChangeLogLevel executor = new ChangeLogLevel(ComputationStepExecutor.class, LoggerLevel.INFO);
+      ChangeLogLevel logLevel = new ChangeLogLevel(step.getClass(), LoggerLevel.INFO)) {
+      new ComputationStepExecutor(mockComputationSteps(step), taskInterrupter, listener, sqlStatisticsMonitoring).execute();
+
+      List<String> infoLogs = logTester.logs(LoggerLevel.INFO);
+      assertThat(infoLogs).hasSize(1);
+      assertThat(infoLogs.get(0)).contains("Step One | foo=100 | sqlStatements=0 | sqlDistinctStatements=0 | sqlRows=0 | sqlTime=0ms | status=SUCCESS | time=");
+      assertThat(sqlStatisticsMonitoring.getExecutionCount()).isEqualTo(1);
+    }
+  }
+
   @Test
   public void execute_throws_IAE_if_step_adds_time_statistic() {
     ComputationStep step = new StepWithStatistics("A Step", "foo", "100", "time", "20");
@@ -126,6 +126,8 @@ import org.sonar.server.platform.WebServerImpl;
 import org.sonar.server.platform.db.migration.MigrationConfigurationModule;
 import org.sonar.server.platform.db.migration.version.DatabaseVersion;
 import org.sonar.server.platform.monitoring.DbSection;
+import org.sonar.server.platform.monitoring.SqlStatisticsMBeanImpl;
+import org.sonar.server.platform.monitoring.SqlStatisticsMonitoring;
 import org.sonar.server.platform.monitoring.cluster.ProcessInfoProvider;
 import org.sonar.server.platform.serverid.JdbcUrlSanitizer;
 import org.sonar.server.platform.serverid.ServerIdChecksum;
@@ -425,6 +427,8 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
 
       // System
       ServerLogging.class,
+      SqlStatisticsMonitoring.class,
+      SqlStatisticsMBeanImpl.class,
 
       // SonarSource editions
       PlatformEditionProvider.class,
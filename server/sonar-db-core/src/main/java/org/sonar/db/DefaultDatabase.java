@@ -39,6 +39,7 @@ import org.sonar.db.dialect.DialectUtils;
 import org.sonar.db.profiling.NullConnectionInterceptor;
 import org.sonar.db.profiling.ProfiledConnectionInterceptor;
 import org.sonar.db.profiling.ProfiledDataSource;
+import org.sonar.db.profiling.SqlStatisticsConnectionInterceptor;
 import org.sonar.process.logging.LogbackHelper;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -60,6 +61,10 @@ public class DefaultDatabase implements Database {
   private static final String DBCP_JDBC_MAX_ACTIVE = "maxTotal";
   private static final String SONAR_JDBC_MAX_WAIT = "sonar.jdbc.maxWait";
   private static final String DBCP_JDBC_MAX_WAIT = "maxWaitMillis";
+  /**
+   * Enables the recording of {@link org.sonar.db.profiling.SqlStatistics} when SQL logs are disabled.
+   */
+  public static final String SQL_STATISTICS_ENABLED = "sonar.sqlStatistics.enabled";
   private static final Map<String, String> SONAR_JDBC_TO_DBCP_PROPERTY_MAPPINGS = ImmutableMap.of(
     SONAR_JDBC_MAX_ACTIVE, DBCP_JDBC_MAX_ACTIVE,
     SONAR_JDBC_MAX_WAIT, DBCP_JDBC_MAX_WAIT);
@@ -69,6 +74,7 @@ public class DefaultDatabase implements Database {
   private ProfiledDataSource datasource;
   private Dialect dialect;
   private Properties properties;
+  private boolean sqlStatisticsEnabled;
 
   public DefaultDatabase(LogbackHelper logbackHelper, Settings settings) {
     this.logbackHelper = logbackHelper;
@@ -97,6 +103,7 @@ public class DefaultDatabase implements Database {
     String jdbcUrl = properties.getProperty(JDBC_URL.getKey());
     dialect = DialectUtils.find(properties.getProperty(SONAR_JDBC_DIALECT), jdbcUrl);
     properties.setProperty(SONAR_JDBC_DRIVER, dialect.getDefaultDriverClassName());
+    sqlStatisticsEnabled = settings.getBoolean(SQL_STATISTICS_ENABLED);
   }
 
   private void initDataSource() throws Exception {
@@ -106,7 +113,7 @@ public class DefaultDatabase implements Database {
     datasource = new ProfiledDataSource(basicDataSource, NullConnectionInterceptor.INSTANCE);
     datasource.setConnectionInitSqls(dialect.getConnectionInitStatements());
     datasource.setValidationQuery(dialect.getValidationQuery());
-    enableSqlLogging(datasource, logbackHelper.getLoggerLevel("sql") == Level.TRACE);
+    enableSqlLogging(logbackHelper.getLoggerLevel("sql") == Level.TRACE);
   }
 
   private void checkConnection() {
@@ -148,11 +155,13 @@ public class DefaultDatabase implements Database {
 
   @Override
   public void enableSqlLogging(boolean enable) {
-    enableSqlLogging(datasource, enable);
-  }
-
-  private static void enableSqlLogging(ProfiledDataSource ds, boolean enable) {
-    ds.setConnectionInterceptor(enable ? ProfiledConnectionInterceptor.INSTANCE : NullConnectionInterceptor.INSTANCE);
+    if (enable) {
+      datasource.setConnectionInterceptor(ProfiledConnectionInterceptor.INSTANCE);
+    } else if (sqlStatisticsEnabled) {
+      datasource.setConnectionInterceptor(SqlStatisticsConnectionInterceptor.INSTANCE);
+    } else {
+      datasource.setConnectionInterceptor(NullConnectionInterceptor.INSTANCE);
+    }
   }
 
   /**
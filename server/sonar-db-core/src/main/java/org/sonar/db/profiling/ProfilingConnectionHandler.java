@@ -29,9 +29,18 @@ import java.sql.Statement;
 class ProfilingConnectionHandler implements InvocationHandler {
 
   private final Connection connection;
+  private final boolean traceSql;
 
   ProfilingConnectionHandler(Connection connection) {
+    this(connection, true);
+  }
+
+  /**
+   * @param traceSql whether statements are logged. If {@code false}, statements are only recorded in {@link SqlStatistics}.
+   */
+  ProfilingConnectionHandler(Connection connection, boolean traceSql) {
     this.connection = connection;
+    this.traceSql = traceSql;
   }
 
   @Override
@@ -40,11 +49,11 @@ class ProfilingConnectionHandler implements InvocationHandler {
     if ("prepareStatement".equals(method.getName())) {
       PreparedStatement statement = (PreparedStatement) result;
       String sql = (String) args[0];
-      return buildStatementProxy(PreparedStatement.class, new ProfilingPreparedStatementHandler(statement, sql));
+      return buildStatementProxy(PreparedStatement.class, new ProfilingPreparedStatementHandler(statement, sql, traceSql));
     }
     if ("createStatement".equals(method.getName())) {
       Statement statement = (Statement) result;
-      return buildStatementProxy(Statement.class, new ProfilingStatementHandler(statement));
+      return buildStatementProxy(Statement.class, new ProfilingStatementHandler(statement, traceSql));
     }
     return result;
   }
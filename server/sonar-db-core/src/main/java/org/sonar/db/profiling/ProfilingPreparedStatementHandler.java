@@ -29,31 +29,42 @@ class ProfilingPreparedStatementHandler implements InvocationHandler {
   private final PreparedStatement statement;
   private final String sql;
   private final Object[] sqlParams;
+  private final boolean traceSql;
 
-  ProfilingPreparedStatementHandler(PreparedStatement statement, String sql) {
+  ProfilingPreparedStatementHandler(PreparedStatement statement, String sql, boolean traceSql) {
     this.statement = statement;
     this.sql = sql;
+    this.traceSql = traceSql;
     sqlParams = new Object[SqlLogFormatter.countArguments(sql)];
   }
 
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    SqlStatistics statistics = SqlStatistics.current();
     if (method.getName().startsWith("execute")) {
-      Profiler profiler = Profiler.create(ProfiledDataSource.SQL_LOGGER).start();
+      Profiler profiler = traceSql ? Profiler.create(ProfiledDataSource.SQL_LOGGER).start() : null;
+      long start = System.nanoTime();
       Object result;
       try {
         result = InvocationUtils.invokeQuietly(statement, method, args);
       } finally {
-        profiler.addContext("sql", SqlLogFormatter.reformatSql(sql));
-        if (sqlParams.length > 0) {
-          profiler.addContext("params", SqlLogFormatter.reformatParams(sqlParams));
+        if (statistics != null) {
+          statistics.addStatement(sql, System.nanoTime() - start);
+        }
+        if (profiler != null) {
+          profiler.addContext("sql", SqlLogFormatter.reformatSql(sql));
+          if (sqlParams.length > 0) {
+            profiler.addContext("params", SqlLogFormatter.reformatParams(sqlParams));
+          }
+          profiler.stopTrace("");
         }
-        profiler.stopTrace("");
       }
-      return result;
+      return RowCountingResultSetHandler.wrapIfResultSet(result, statistics);
     } else if (method.getName().startsWith("set") && args.length > 1) {
       sqlParams[(int) args[0] - 1] = args[1];
       return InvocationUtils.invokeQuietly(statement, method, args);
+    } else if ("getResultSet".equals(method.getName())) {
+      return RowCountingResultSetHandler.wrapIfResultSet(InvocationUtils.invokeQuietly(statement, method, args), statistics);
     } else {
       return InvocationUtils.invokeQuietly(statement, method, args);
     }
@@ -27,24 +27,35 @@ import org.sonar.api.utils.log.Profiler;
 class ProfilingStatementHandler implements InvocationHandler {
 
   private final Statement statement;
+  private final boolean traceSql;
 
-  ProfilingStatementHandler(Statement statement) {
+  ProfilingStatementHandler(Statement statement, boolean traceSql) {
     this.statement = statement;
+    this.traceSql = traceSql;
   }
 
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    SqlStatistics statistics = SqlStatistics.current();
     if (method.getName().startsWith("execute")) {
-      Profiler profiler = Profiler.create(ProfiledDataSource.SQL_LOGGER).start();
+      Profiler profiler = traceSql ? Profiler.create(ProfiledDataSource.SQL_LOGGER).start() : null;
+      long start = System.nanoTime();
       Object result;
       try {
         result = InvocationUtils.invokeQuietly(statement, method, args);
       } finally {
         String sql = (String) args[0];
-        profiler.addContext("sql", SqlLogFormatter.reformatSql(sql));
-        profiler.stopTrace("");
+        if (statistics != null) {
+          statistics.addStatement(sql, System.nanoTime() - start);
+        }
+        if (profiler != null) {
+          profiler.addContext("sql", SqlLogFormatter.reformatSql(sql));
+          profiler.stopTrace("");
+        }
       }
-      return result;
+      return RowCountingResultSetHandler.wrapIfResultSet(result, statistics);
+    } else if ("getResultSet".equals(method.getName())) {
+      return RowCountingResultSetHandler.wrapIfResultSet(InvocationUtils.invokeQuietly(statement, method, args), statistics);
     } else {
       return InvocationUtils.invokeQuietly(statement, method, args);
     }
@@ -0,0 +1,57 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import javax.annotation.Nullable;
+
+/**
+ * Counts the rows fetched from a {@link ResultSet} into {@link SqlStatistics}.
+ */
+class RowCountingResultSetHandler implements InvocationHandler {
+
+  private final ResultSet resultSet;
+  private final SqlStatistics statistics;
+
+  private RowCountingResultSetHandler(ResultSet resultSet, SqlStatistics statistics) {
+    this.resultSet = resultSet;
+    this.statistics = statistics;
+  }
+
+  static Object wrapIfResultSet(@Nullable Object result, @Nullable SqlStatistics statistics) {
+    if (statistics == null || !(result instanceof ResultSet)) {
+      return result;
+    }
+    return Proxy.newProxyInstance(RowCountingResultSetHandler.class.getClassLoader(), new Class[] {ResultSet.class},
+      new RowCountingResultSetHandler((ResultSet) result, statistics));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    Object result = InvocationUtils.invokeQuietly(resultSet, method, args);
+    if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+      statistics.addRow();
+    }
+    return result;
+  }
+}
@@ -29,6 +29,9 @@ public class SqlLogFormatter {
   public static final int PARAM_MAX_WIDTH = 500;
   private static final String PARAM_NULL = "[null]";
   private static final Pattern NEWLINE_PATTERN = Pattern.compile("\\n");
+  private static final Pattern STRING_LITERAL_PATTERN = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern NUMBER_LITERAL_PATTERN = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+  private static final Pattern IN_LIST_PATTERN = Pattern.compile("(?i)\\bin\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
 
   private SqlLogFormatter() {
     // only statics
@@ -51,6 +54,18 @@ public class SqlLogFormatter {
     return result.toString();
   }
 
+  /**
+   * The "shape" of a statement is the reformatted SQL in which literals are replaced by
+   * placeholders and lists of values of IN clauses are collapsed, so that statements
+   * which differ only by their parameters share the same shape.
+   */
+  public static String reformatSqlShape(String sql) {
+    String shape = reformatSql(sql);
+    shape = STRING_LITERAL_PATTERN.matcher(shape).replaceAll("?");
+    shape = NUMBER_LITERAL_PATTERN.matcher(shape).replaceAll("?");
+    return IN_LIST_PATTERN.matcher(shape).replaceAll("in (?)");
+  }
+
   public static String reformatParam(@Nullable Object param) {
     if (param == null) {
       return PARAM_NULL;
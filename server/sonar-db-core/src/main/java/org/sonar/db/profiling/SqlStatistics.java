@@ -0,0 +1,124 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Aggregates the SQL statements executed by the current thread between {@link #start()} and {@link #stop()}:
+ * number of statements, distinct statement shapes (see {@link SqlLogFormatter#reformatSqlShape(String)}),
+ * rows fetched and cumulative execution time.
+ * <p>
+ * Statements are recorded only if connections are intercepted by {@link SqlStatisticsConnectionInterceptor}
+ * or {@link ProfiledConnectionInterceptor}. Scopes can be nested, in which case statements are also
+ * accounted in the enclosing scopes.
+ */
+public class SqlStatistics {
+
+  private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+  @CheckForNull
+  private final SqlStatistics parent;
+  private final Map<String, Integer> countByShape = new HashMap<>();
+  private long statementCount = 0;
+  private long rowCount = 0;
+  private long durationNanos = 0;
+
+  private SqlStatistics(@Nullable SqlStatistics parent) {
+    this.parent = parent;
+  }
+
+  /**
+   * Starts recording the statements executed by the current thread.
+   */
+  public static SqlStatistics start() {
+    SqlStatistics statistics = new SqlStatistics(CURRENT.get());
+    CURRENT.set(statistics);
+    return statistics;
+  }
+
+  /**
+   * Stops recording. The statistics remain readable.
+   */
+  public void stop() {
+    checkState(CURRENT.get() == this, "SQL statistics are not the current ones of thread %s", Thread.currentThread().getName());
+    if (parent == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(parent);
+    }
+  }
+
+  @CheckForNull
+  static SqlStatistics current() {
+    return CURRENT.get();
+  }
+
+  void addStatement(String sql, long statementDurationNanos) {
+    String shape = SqlLogFormatter.reformatSqlShape(sql);
+    for (SqlStatistics statistics = this; statistics != null; statistics = statistics.parent) {
+      statistics.statementCount++;
+      statistics.durationNanos += statementDurationNanos;
+      statistics.countByShape.merge(shape, 1, Integer::sum);
+    }
+  }
+
+  void addRow() {
+    for (SqlStatistics statistics = this; statistics != null; statistics = statistics.parent) {
+      statistics.rowCount++;
+    }
+  }
+
+  public long getStatementCount() {
+    return statementCount;
+  }
+
+  public int getDistinctStatementCount() {
+    return countByShape.size();
+  }
+
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  public long getDurationMs() {
+    return TimeUnit.NANOSECONDS.toMillis(durationNanos);
+  }
+
+  /**
+   * Shapes of the statements executed strictly more than {@code threshold} times, which usually reveals
+   * a N+1 select pattern, sorted by descending number of executions.
+   */
+  public Map<String, Integer> getRepeatedStatements(int threshold) {
+    Map<String, Integer> result = new LinkedHashMap<>();
+    countByShape.entrySet().stream()
+      .filter(e -> e.getValue() > threshold)
+      .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+      .forEach(e -> result.put(e.getKey(), e.getValue()));
+    return result;
+  }
+}
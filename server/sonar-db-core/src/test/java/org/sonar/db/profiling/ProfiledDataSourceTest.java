@@ -25,6 +25,7 @@ import java.lang.reflect.Modifier;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import org.apache.commons.dbcp2.BasicDataSource;
@@ -133,6 +134,42 @@ public class ProfiledDataSourceTest {
       .doesNotContain("params=");
   }
 
+  @Test
+  public void record_statistics_without_logging_statements() throws Exception {
+    logTester.setLevel(LoggerLevel.TRACE);
+
+    Connection connection = mock(Connection.class);
+    when(originDataSource.getConnection()).thenReturn(connection);
+
+    String sql = "select * from issues where id=?";
+    PreparedStatement preparedStatement = mock(PreparedStatement.class);
+    ResultSet resultSet = mock(ResultSet.class);
+    when(connection.prepareStatement(sql)).thenReturn(preparedStatement);
+    when(preparedStatement.execute()).thenReturn(true);
+    when(preparedStatement.getResultSet()).thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true, true, false);
+
+    ProfiledDataSource ds = new ProfiledDataSource(originDataSource, SqlStatisticsConnectionInterceptor.INSTANCE);
+
+    SqlStatistics statistics = SqlStatistics.start();
+    try {
+      PreparedStatement preparedStatementProxy = ds.getConnection().prepareStatement(sql);
+      preparedStatementProxy.setInt(1, 42);
+      assertThat(preparedStatementProxy.execute()).isTrue();
+      ResultSet resultSetProxy = preparedStatementProxy.getResultSet();
+      while (resultSetProxy.next()) {
+        // consume rows
+      }
+    } finally {
+      statistics.stop();
+    }
+
+    assertThat(statistics.getStatementCount()).isEqualTo(1);
+    assertThat(statistics.getDistinctStatementCount()).isEqualTo(1);
+    assertThat(statistics.getRowCount()).isEqualTo(2);
+    assertThat(logTester.logs(LoggerLevel.TRACE)).isEmpty();
+  }
+
   @Test
   public void delegate_to_underlying_data_source() throws Exception {
     ProfiledDataSource proxy = new ProfiledDataSource(originDataSource, ProfiledConnectionInterceptor.INSTANCE);
@@ -37,6 +37,15 @@ public class SqlLogFormatterTest {
     assertThat(SqlLogFormatter.reformatSql("select    *\n\t\t  from  \tissues")).isEqualTo("select * from issues");
   }
 
+  @Test
+  public void reformatSqlShape() {
+    assertThat(SqlLogFormatter.reformatSqlShape("select *\n  from issues where id=?")).isEqualTo("select * from issues where id=?");
+    assertThat(SqlLogFormatter.reformatSqlShape("select * from issues where id=42 and kee='foo''s'")).isEqualTo("select * from issues where id=? and kee=?");
+    assertThat(SqlLogFormatter.reformatSqlShape("select * from t1 where c2 = 1.5")).isEqualTo("select * from t1 where c2 = ?");
+    assertThat(SqlLogFormatter.reformatSqlShape("select * from issues where kee in (?, ?,?) and id IN ( ? )"))
+      .isEqualTo("select * from issues where kee in (?) and id in (?)");
+  }
+
   @Test
   public void reformatParam() {
     assertThat(SqlLogFormatter.reformatParam(null)).isEqualTo("[null]");
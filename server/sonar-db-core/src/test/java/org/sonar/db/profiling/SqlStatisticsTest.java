@@ -0,0 +1,101 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.db.profiling;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+public class SqlStatisticsTest {
+
+  @After
+  public void tearDown() {
+    while (SqlStatistics.current() != null) {
+      SqlStatistics.current().stop();
+    }
+  }
+
+  @Test
+  public void aggregate_statements_of_current_thread() {
+    SqlStatistics underTest = SqlStatistics.start();
+    assertThat(SqlStatistics.current()).isSameAs(underTest);
+
+    underTest.addStatement("select * from issues where id=1", 2_000_000L);
+    underTest.addStatement("select * from issues where id=2", 3_000_000L);
+    underTest.addStatement("select * from rules", 1_000_000L);
+    underTest.addRow();
+    underTest.addRow();
+    underTest.stop();
+
+    assertThat(SqlStatistics.current()).isNull();
+    assertThat(underTest.getStatementCount()).isEqualTo(3);
+    assertThat(underTest.getDistinctStatementCount()).isEqualTo(2);
+    assertThat(underTest.getRowCount()).isEqualTo(2);
+    assertThat(underTest.getDurationMs()).isEqualTo(6);
+  }
+
+  @Test
+  public void getRepeatedStatements_returns_shapes_above_threshold_sorted_by_count() {
+    SqlStatistics underTest = SqlStatistics.start();
+    for (int i = 0; i < 5; i++) {
+      underTest.addStatement("select * from issues where id=" + i, 0L);
+    }
+    for (int i = 0; i < 3; i++) {
+      underTest.addStatement("select * from rules where id=" + i, 0L);
+    }
+    underTest.addStatement("select * from users", 0L);
+    underTest.stop();
+
+    assertThat(underTest.getRepeatedStatements(2)).containsExactly(
+      entry("select * from issues where id=?", 5),
+      entry("select * from rules where id=?", 3));
+    assertThat(underTest.getRepeatedStatements(5)).isEmpty();
+  }
+
+  @Test
+  public void nested_statistics_are_accounted_in_enclosing_ones() {
+    SqlStatistics parent = SqlStatistics.start();
+    parent.addStatement("select 1", 0L);
+    SqlStatistics child = SqlStatistics.start();
+    child.addStatement("select 2", 0L);
+    child.addRow();
+    child.stop();
+
+    assertThat(SqlStatistics.current()).isSameAs(parent);
+    parent.stop();
+
+    assertThat(child.getStatementCount()).isEqualTo(1);
+    assertThat(parent.getStatementCount()).isEqualTo(2);
+    assertThat(parent.getRowCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void stop_fails_if_not_current_statistics() {
+    SqlStatistics parent = SqlStatistics.start();
+    SqlStatistics.start();
+
+    assertThatThrownBy(parent::stop)
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("SQL statistics are not the current ones of thread");
+  }
+}
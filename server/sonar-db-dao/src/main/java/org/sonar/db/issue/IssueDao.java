@@ -23,6 +23,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.RowNotFoundException;
@@ -64,13 +66,22 @@ public class IssueDao implements Dao {
     return mapper(session).selectModuleAndDirComponentUuidsOfOpenIssuesForProjectUuid(projectUuid);
   }
 
-  public List<IssueDto> selectNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(DbSession dbSession, String componentUuid) {
-    return mapper(dbSession).selectNonClosedByComponentUuidExcludingExternals(componentUuid);
+  /**
+   * Scrolls the issues of a component that are sent to scanners: external issues and security hotspots are excluded.
+   * When {@code changedSince} is {@code null}, all non-closed issues are returned. Otherwise only the issues updated
+   * after this date are returned, closed ones included, so that callers can drop them from their own copy.
+   */
+  public void scrollByComponentUuidForScanner(DbSession dbSession, String componentUuid, @Nullable Long changedSince, ResultHandler<IssueDto> handler) {
+    mapper(dbSession).scrollByComponentUuidForScanner(componentUuid, changedSince, handler);
   }
 
-  public List<IssueDto> selectNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(DbSession dbSession, ComponentDto module) {
+  /**
+   * Same as {@link #scrollByComponentUuidForScanner(DbSession, String, Long, ResultHandler)} for all the components
+   * of a project or module.
+   */
+  public void scrollByModuleOrProjectForScanner(DbSession dbSession, ComponentDto module, @Nullable Long changedSince, ResultHandler<IssueDto> handler) {
     String likeModuleUuidPath = buildLikeValue(module.moduleUuidPath(), WildcardPosition.AFTER);
-    return mapper(dbSession).selectNonClosedByModuleOrProject(module.projectUuid(), likeModuleUuidPath);
+    mapper(dbSession).scrollByModuleOrProjectForScanner(module.projectUuid(), likeModuleUuidPath, changedSince, handler);
   }
 
   public List<PrIssueDto> selectOpenByComponentUuids(DbSession dbSession, Collection<String> componentUuids) {
@@ -22,6 +22,7 @@ package org.sonar.db.issue;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import javax.annotation.Nullable;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.component.ComponentDto;
@@ -48,11 +49,15 @@ public interface IssueMapper {
 
   void scrollNonClosedByComponentUuid(@Param("componentUuid") String componentUuid, ResultHandler<IssueDto> handler);
 
+  void scrollNonClosedByComponentUuids(@Param("componentUuids") Collection<String> componentUuids, ResultHandler<IssueDto> handler);
+
   void scrollClosedByComponentUuid(@Param("componentUuid") String componentUuid, @Param("closeDateAfter") long closeDateAfter, ResultHandler<IssueDto> handler);
 
-  List<IssueDto> selectNonClosedByComponentUuidExcludingExternals(@Param("componentUuid") String componentUuid);
+  void scrollByModuleOrProjectForScanner(@Param("projectUuid") String projectUuid, @Param("likeModuleUuidPath") String likeModuleUuidPath,
+    @Nullable @Param("changedSince") Long changedSince, ResultHandler<IssueDto> handler);
 
-  List<IssueDto> selectNonClosedByModuleOrProject(@Param("projectUuid") String projectUuid, @Param("likeModuleUuidPath") String likeModuleUuidPath);
+  void scrollByComponentUuidForScanner(@Param("componentUuid") String componentUuid, @Nullable @Param("changedSince") Long changedSince,
+    ResultHandler<IssueDto> handler);
 
   Collection<IssueGroupDto> selectIssueGroupsByBaseComponent(
     @Param("baseComponent") ComponentDto baseComponent,
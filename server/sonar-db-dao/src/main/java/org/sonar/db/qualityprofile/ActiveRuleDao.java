@@ -23,7 +23,9 @@ import com.google.common.base.Preconditions;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.function.Consumer;
 import org.sonar.db.Dao;
 import org.sonar.db.DatabaseUtils;
@@ -33,6 +35,7 @@ import org.sonar.db.rule.RuleParamDto;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 import static org.sonar.db.DatabaseUtils.executeLargeInputsWithoutOutput;
 import static org.sonar.db.KeyLongValue.toMap;
@@ -74,6 +77,17 @@ public class ActiveRuleDao implements Dao {
     return executeLargeInputs(uuids, chunk -> mapper(dbSession).selectByTypeAndProfileUuids(types, chunk));
   }
 
+  /**
+   * Most recent update date of the active rules of the given profiles and of their rules. Empty if the profiles
+   * have no active rules.
+   */
+  public OptionalLong selectMaxUpdatedAtByProfileUuids(DbSession dbSession, Collection<String> uuids) {
+    return executeLargeInputs(uuids, chunk -> singletonList(mapper(dbSession).selectMaxUpdatedAtByProfileUuids(chunk))).stream()
+      .filter(Objects::nonNull)
+      .mapToLong(Long::longValue)
+      .max();
+  }
+
   public List<OrgActiveRuleDto> selectByProfile(DbSession dbSession, QProfileDto profile) {
     return selectByProfileUuid(dbSession, profile.getKee());
   }
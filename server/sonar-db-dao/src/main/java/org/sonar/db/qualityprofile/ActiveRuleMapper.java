@@ -55,6 +55,9 @@ public interface ActiveRuleMapper {
 
   List<OrgActiveRuleDto> selectByTypeAndProfileUuids(@Param("types") List<Integer> types, @Param("profileUuids") List<String> uuids);
 
+  @CheckForNull
+  Long selectMaxUpdatedAtByProfileUuids(@Param("profileUuids") List<String> uuids);
+
   List<ActiveRuleDto> selectByRuleProfileUuid(@Param("ruleProfileUuid") String uuid);
 
   List<ActiveRuleDto> selectByRuleIdsAndRuleProfileUuids(
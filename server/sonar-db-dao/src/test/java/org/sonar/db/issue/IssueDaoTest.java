@@ -19,7 +19,7 @@
  */
 package org.sonar.db.issue;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -132,62 +132,28 @@ public class IssueDaoTest {
   }
 
   @Test
-  public void scrollNonClosedByComponentUuid() {
+  public void scrollByModuleOrProjectForScanner() {
     RuleDefinitionDto rule = db.rules().insert();
     ComponentDto project = db.components().insertPrivateProject();
-    ComponentDto file = db.components().insertComponent(newFileDto(project));
-    IssueDto openIssue1OnFile = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()));
-    IssueDto openIssue2OnFile = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()));
-    IssueDto closedIssueOnFile = db.issues().insert(rule, project, file, i -> i.setStatus("CLOSED").setResolution("FIXED").setType(randomRuleTypeExceptHotspot()));
-    IssueDto openIssueOnProject = db.issues().insert(rule, project, project, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()));
-
-    IssueDto securityHotspot = db.issues().insert(rule, project, file, i -> i.setType(RuleType.SECURITY_HOTSPOT));
-
-    RuleDefinitionDto external = db.rules().insert(ruleDefinitionDto -> ruleDefinitionDto.setIsExternal(true));
-    IssueDto issueFromExteralruleOnFile = db.issues().insert(external, project, file, i -> i.setKee("ON_FILE_FROM_EXTERNAL").setType(randomRuleTypeExceptHotspot()));
-
-    assertThat(underTest.selectNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(db.getSession(), file.uuid()))
-      .extracting(IssueDto::getKey)
-      .containsExactlyInAnyOrder(Arrays.stream(new IssueDto[] {openIssue1OnFile, openIssue2OnFile}).map(IssueDto::getKey).toArray(String[]::new));
-
-    assertThat(underTest.selectNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(db.getSession(), project.uuid()))
-      .extracting(IssueDto::getKey)
-      .containsExactlyInAnyOrder(Arrays.stream(new IssueDto[] {openIssueOnProject}).map(IssueDto::getKey).toArray(String[]::new));
-
-    assertThat(underTest.selectNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(db.getSession(), "does_not_exist")).isEmpty();
-  }
-
-  @Test
-  public void scrollNonClosedByModuleOrProject() {
-    RuleDefinitionDto rule = db.rules().insert();
-    ComponentDto project = db.components().insertPrivateProject();
-    ComponentDto anotherProject = db.components().insertPrivateProject();
     ComponentDto module = db.components().insertComponent(newModuleDto(project));
     ComponentDto file = db.components().insertComponent(newFileDto(module));
-    IssueDto openIssue1OnFile = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()));
-    IssueDto openIssue2OnFile = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()));
-    IssueDto closedIssueOnFile = db.issues().insert(rule, project, file, i -> i.setStatus("CLOSED").setResolution("FIXED").setType(randomRuleTypeExceptHotspot()));
-    IssueDto openIssueOnModule = db.issues().insert(rule, project, module, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()));
-    IssueDto openIssueOnProject = db.issues().insert(rule, project, project, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()));
-    IssueDto openIssueOnAnotherProject = db.issues().insert(rule, anotherProject, anotherProject,
-      i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()));
-
-    IssueDto securityHotspot = db.issues().insert(rule, project, file, i -> i.setType(RuleType.SECURITY_HOTSPOT));
-
-    RuleDefinitionDto external = db.rules().insert(ruleDefinitionDto -> ruleDefinitionDto.setIsExternal(true));
-    IssueDto issueFromExteralruleOnFile = db.issues().insert(external, project, file, i -> i.setKee("ON_FILE_FROM_EXTERNAL").setType(randomRuleTypeExceptHotspot()));
-
-    assertThat(underTest.selectNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(db.getSession(), project))
-      .extracting(IssueDto::getKey)
-      .containsExactlyInAnyOrder(
-        Arrays.stream(new IssueDto[] {openIssue1OnFile, openIssue2OnFile, openIssueOnModule, openIssueOnProject}).map(IssueDto::getKey).toArray(String[]::new));
-
-    assertThat(underTest.selectNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(db.getSession(), module))
-      .extracting(IssueDto::getKey)
-      .containsExactlyInAnyOrder(Arrays.stream(new IssueDto[] {openIssue1OnFile, openIssue2OnFile, openIssueOnModule}).map(IssueDto::getKey).toArray(String[]::new));
-
-    ComponentDto notPersisted = ComponentTesting.newPrivateProjectDto(db.getDefaultOrganization());
-    assertThat(underTest.selectNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(db.getSession(), notPersisted)).isEmpty();
+    IssueDto oldOpenIssue = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null).setUpdatedAt(1_000L).setType(randomRuleTypeExceptHotspot()));
+    IssueDto recentOpenIssue = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null).setUpdatedAt(3_000L).setType(randomRuleTypeExceptHotspot()));
+    db.issues().insert(rule, project, file, i -> i.setStatus("CLOSED").setResolution("FIXED").setUpdatedAt(1_000L).setType(randomRuleTypeExceptHotspot()));
+    IssueDto recentClosedIssue = db.issues().insert(rule, project, module, i -> i.setStatus("CLOSED").setResolution("FIXED").setUpdatedAt(3_000L).setType(randomRuleTypeExceptHotspot()));
+    db.issues().insert(rule, project, file, i -> i.setUpdatedAt(3_000L).setType(RuleType.SECURITY_HOTSPOT));
+
+    List<String> nonClosed = new ArrayList<>();
+    underTest.scrollByModuleOrProjectForScanner(db.getSession(), project, null, context -> nonClosed.add(context.getResultObject().getKey()));
+    assertThat(nonClosed).containsExactlyInAnyOrder(oldOpenIssue.getKey(), recentOpenIssue.getKey());
+
+    List<String> changedSince = new ArrayList<>();
+    underTest.scrollByModuleOrProjectForScanner(db.getSession(), project, 2_000L, context -> changedSince.add(context.getResultObject().getKey()));
+    assertThat(changedSince).containsExactlyInAnyOrder(recentOpenIssue.getKey(), recentClosedIssue.getKey());
+
+    List<String> ofFile = new ArrayList<>();
+    underTest.scrollByComponentUuidForScanner(db.getSession(), file.uuid(), 2_000L, context -> ofFile.add(context.getResultObject().getKey()));
+    assertThat(ofFile).containsExactly(recentOpenIssue.getKey());
   }
 
   @Test
@@ -51,6 +51,7 @@ import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 
+import static java.util.Arrays.asList;
 import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
@@ -240,6 +241,28 @@ public class IssueMapperTest {
     assertThat(result.getUpdatedAt()).isEqualTo(1_500_000_000_000L);
   }
 
+  @Test
+  public void scrollNonClosedByComponentUuids_returns_non_closed_issues_of_specified_components() {
+    OrganizationDto organization = dbTester.organizations().insert();
+    ComponentDto component1 = randomComponent(organization);
+    ComponentDto component2 = randomComponent(organization);
+    ComponentDto component3 = randomComponent(organization);
+    RuleDefinitionDto rule = dbTester.rules().insert();
+    IssueDto open1 = insertNewClosedIssue(component1, rule, t -> t.setStatus(Issue.STATUS_OPEN));
+    IssueDto confirmed2 = insertNewClosedIssue(component2, rule, t -> t.setStatus(Issue.STATUS_CONFIRMED));
+    insertNewClosedIssue(component1, rule);
+    insertNewClosedIssue(component3, rule, t -> t.setStatus(Issue.STATUS_OPEN));
+
+    RecorderResultHandler resultHandler = new RecorderResultHandler();
+    underTest.scrollNonClosedByComponentUuids(asList(component1.uuid(), component2.uuid()), resultHandler);
+
+    assertThat(resultHandler.issues)
+      .extracting(IssueDto::getKey, IssueDto::getComponentUuid)
+      .containsExactlyInAnyOrder(
+        tuple(open1.getKey(), component1.uuid()),
+        tuple(confirmed2.getKey(), component2.uuid()));
+  }
+
   @Test
   public void scrollClosedByComponentUuid_returns_empty_when_no_issue_for_component() {
     String componentUuid = randomAlphabetic(10);
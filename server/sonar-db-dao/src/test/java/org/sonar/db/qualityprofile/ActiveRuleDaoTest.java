@@ -205,6 +205,19 @@ public class ActiveRuleDaoTest {
       .isEmpty();
   }
 
+  @Test
+  public void selectMaxUpdatedAtByProfileUuids() {
+    RuleDefinitionDto oldRule = db.rules().insert(r -> r.setUpdatedAt(1_000L));
+    RuleDefinitionDto updatedRule = db.rules().insert(r -> r.setUpdatedAt(3_000L));
+    underTest.insert(dbSession, createFor(profile1, oldRule).setUpdatedAt(2_000L));
+    underTest.insert(dbSession, createFor(profile1, updatedRule).setUpdatedAt(1_000L));
+    underTest.insert(dbSession, createFor(profile2, oldRule).setUpdatedAt(5_000L));
+
+    assertThat(underTest.selectMaxUpdatedAtByProfileUuids(dbSession, singletonList(profile1.getKee()))).hasValue(3_000L);
+    assertThat(underTest.selectMaxUpdatedAtByProfileUuids(dbSession, asList(profile1.getKee(), profile2.getKee()))).hasValue(5_000L);
+    assertThat(underTest.selectMaxUpdatedAtByProfileUuids(dbSession, singletonList("unknown"))).isEmpty();
+  }
+
   @Test
   public void selectByRuleProfile() {
     ActiveRuleDto activeRule1 = createFor(profile1, rule1).setSeverity(BLOCKER);
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
@@ -43,6 +44,7 @@ import org.elasticsearch.action.delete.DeleteRequestBuilder;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.document.DocumentField;
@@ -63,6 +65,8 @@ import static java.lang.String.format;
  * <ul>
  * <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
  * <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
+ * <li>when all the requests fit in a single bulk request, only the shards changed by this request are refreshed,
+ * instead of the whole index</li>
  * </ul>
  */
 public class BulkIndexer {
@@ -79,6 +83,9 @@ public class BulkIndexer {
   private final IndexingResult result = new IndexingResult();
   private final IndexingListener indexingListener;
   private final SizeHandler sizeHandler;
+  private final AtomicInteger sentBulks = new AtomicInteger();
+  private volatile boolean stopping = false;
+  private volatile boolean refreshedByBulk = false;
 
   public BulkIndexer(EsClient client, IndexType indexType, Size size) {
     this(client, indexType, size, IndexingListener.FAIL_ON_ERROR);
@@ -104,6 +111,9 @@ public class BulkIndexer {
 
   public void start() {
     result.clear();
+    sentBulks.set(0);
+    stopping = false;
+    refreshedByBulk = false;
     sizeHandler.beforeStart(this);
   }
 
@@ -111,13 +121,16 @@ public class BulkIndexer {
    * @return the number of documents successfully indexed
    */
   public IndexingResult stop() {
+    stopping = true;
     try {
       bulkProcessor.awaitClose(1, TimeUnit.MINUTES);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
       throw new IllegalStateException("Elasticsearch bulk requests still being executed after 1 minute", e);
     }
-    client.prepareRefresh(indexType.getMainType().getIndex()).get();
+    if (sentBulks.get() > 0 && !refreshedByBulk) {
+      client.prepareRefresh(indexType.getMainType().getIndex()).get();
+    }
     sizeHandler.afterStop(this);
     indexingListener.onFinish(result);
     return result;
@@ -203,6 +216,12 @@ public class BulkIndexer {
     @Override
     public void beforeBulk(long executionId, BulkRequest request) {
       profiler.start();
+      if (sentBulks.incrementAndGet() == 1 && stopping) {
+        // the first bulk request is sent when stopping, so it is the only one. The shards it changes are
+        // refreshed when executing it, which is cheaper than refreshing all the shards of the index afterwards.
+        request.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
+        refreshedByBulk = true;
+      }
     }
 
     @Override
@@ -73,11 +73,17 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
   private final EsClient esClient;
   private final DbClient dbClient;
   private final IssueIteratorFactory issueIteratorFactory;
+  private final IssueIndexGeneration indexGeneration;
 
   public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory) {
+    this(esClient, dbClient, issueIteratorFactory, new IssueIndexGeneration());
+  }
+
+  public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory, IssueIndexGeneration indexGeneration) {
     this.esClient = esClient;
     this.dbClient = dbClient;
     this.issueIteratorFactory = issueIteratorFactory;
+    this.indexGeneration = indexGeneration;
   }
 
   @Override
@@ -190,7 +196,7 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
     itemsByIssueKey.values().forEach(
       item -> bulkIndexer.addDeletion(TYPE_ISSUE.getMainType(), item.getDocId(), item.getDocRouting()));
 
-    return bulkIndexer.stop();
+    return stop(bulkIndexer);
   }
 
   private IndexingResult doIndexProjectItems(DbSession dbSession, ListMultimap<String, EsQueueDto> itemsByProjectUuid) {
@@ -219,7 +225,7 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
       }
     }
 
-    return bulkIndexer.stop();
+    return stop(bulkIndexer);
   }
 
   // Used by Compute Engine, no need to recovery on errors
@@ -231,7 +237,7 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
     BulkIndexer bulkIndexer = createBulkIndexer(Size.REGULAR, IndexingListener.FAIL_ON_ERROR);
     bulkIndexer.start();
     issueKeys.forEach(issueKey -> bulkIndexer.addDeletion(TYPE_ISSUE.getMainType(), issueKey, AuthorizationDoc.idOf(projectUuid)));
-    bulkIndexer.stop();
+    stop(bulkIndexer);
   }
 
   @VisibleForTesting
@@ -246,7 +252,7 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
       IssueDoc issue = issues.next();
       bulk.add(newIndexRequest(issue));
     }
-    bulk.stop();
+    stop(bulk);
   }
 
   private IndexRequest newIndexRequest(IssueDoc issue) {
@@ -268,6 +274,14 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
     return EsQueueDto.create(TYPE_ISSUE.format(), docId, docIdType, projectUuid);
   }
 
+  private IndexingResult stop(BulkIndexer bulkIndexer) {
+    try {
+      return bulkIndexer.stop();
+    } finally {
+      indexGeneration.increment();
+    }
+  }
+
   private BulkIndexer createBulkIndexer(Size size, IndexingListener listener) {
     return new BulkIndexer(esClient, TYPE_ISSUE, size, listener);
   }
@@ -45,11 +45,13 @@ import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIEL
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_QUALITY_GATE_STATUS;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_TAGS;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_UUID;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FLATTENED_METRICS;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.SUB_FIELD_DISTRIB_LANGUAGE;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.SUB_FIELD_DISTRIB_NCLOC;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.SUB_FIELD_MEASURES_KEY;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.SUB_FIELD_MEASURES_VALUE;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.TYPE_PROJECT_MEASURES;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.measureValueField;
 
 public class ProjectMeasuresDoc extends BaseDoc {
 
@@ -122,6 +124,9 @@ public class ProjectMeasuresDoc extends BaseDoc {
 
   public ProjectMeasuresDoc setMeasures(Collection<Map<String, Object>> measures) {
     setField(FIELD_MEASURES, measures);
+    measures.stream()
+      .filter(measure -> FLATTENED_METRICS.contains(measure.get(SUB_FIELD_MEASURES_KEY)))
+      .forEach(measure -> setField(measureValueField((String) measure.get(SUB_FIELD_MEASURES_KEY)), measure.get(SUB_FIELD_MEASURES_VALUE)));
     return this;
   }
 
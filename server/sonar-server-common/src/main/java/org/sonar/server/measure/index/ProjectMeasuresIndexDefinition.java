@@ -19,6 +19,8 @@
  */
 package org.sonar.server.measure.index;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.api.config.Configuration;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.server.es.Index;
@@ -29,6 +31,22 @@ import org.sonar.server.es.newindex.NewAuthorizedIndex;
 import org.sonar.server.es.newindex.TypeMapping;
 import org.sonar.server.permission.index.IndexAuthorizationConstants;
 
+import static org.sonar.api.measures.CoreMetrics.COVERAGE_KEY;
+import static org.sonar.api.measures.CoreMetrics.DUPLICATED_LINES_DENSITY_KEY;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
+import static org.sonar.api.measures.CoreMetrics.NEW_COVERAGE_KEY;
+import static org.sonar.api.measures.CoreMetrics.NEW_DUPLICATED_LINES_DENSITY_KEY;
+import static org.sonar.api.measures.CoreMetrics.NEW_LINES_KEY;
+import static org.sonar.api.measures.CoreMetrics.NEW_MAINTAINABILITY_RATING_KEY;
+import static org.sonar.api.measures.CoreMetrics.NEW_RELIABILITY_RATING_KEY;
+import static org.sonar.api.measures.CoreMetrics.NEW_SECURITY_HOTSPOTS_REVIEWED_KEY;
+import static org.sonar.api.measures.CoreMetrics.NEW_SECURITY_RATING_KEY;
+import static org.sonar.api.measures.CoreMetrics.NEW_SECURITY_REVIEW_RATING_KEY;
+import static org.sonar.api.measures.CoreMetrics.RELIABILITY_RATING_KEY;
+import static org.sonar.api.measures.CoreMetrics.SECURITY_HOTSPOTS_REVIEWED_KEY;
+import static org.sonar.api.measures.CoreMetrics.SECURITY_RATING_KEY;
+import static org.sonar.api.measures.CoreMetrics.SECURITY_REVIEW_RATING_KEY;
+import static org.sonar.api.measures.CoreMetrics.SQALE_RATING_KEY;
 import static org.sonar.server.es.newindex.DefaultIndexSettingsElement.SEARCH_GRAMS_ANALYZER;
 import static org.sonar.server.es.newindex.DefaultIndexSettingsElement.SORTABLE_ANALYZER;
 import static org.sonar.server.es.newindex.SettingsConfiguration.MANUAL_REFRESH_INTERVAL;
@@ -57,6 +75,21 @@ public class ProjectMeasuresIndexDefinition implements IndexDefinition {
   public static final String SUB_FIELD_MEASURES_VALUE = "value";
   public static final String FIELD_MEASURES_MEASURE_KEY = FIELD_MEASURES + "." + SUB_FIELD_MEASURES_KEY;
   public static final String FIELD_MEASURES_MEASURE_VALUE = FIELD_MEASURES + "." + SUB_FIELD_MEASURES_VALUE;
+  /**
+   * Prefix of the numeric fields which flatten the {@link #FIELD_MEASURES nested measures} of {@link #FLATTENED_METRICS}.
+   * These metrics are used by the facets of the projects page, which are much cheaper to aggregate on a field of the
+   * root document than on nested documents.
+   */
+  public static final String FIELD_MEASURE_VALUE_PREFIX = "measureValue_";
+  public static final Set<String> FLATTENED_METRICS = ImmutableSet.of(
+    NCLOC_KEY, NEW_LINES_KEY,
+    DUPLICATED_LINES_DENSITY_KEY, NEW_DUPLICATED_LINES_DENSITY_KEY,
+    COVERAGE_KEY, NEW_COVERAGE_KEY,
+    SQALE_RATING_KEY, NEW_MAINTAINABILITY_RATING_KEY,
+    RELIABILITY_RATING_KEY, NEW_RELIABILITY_RATING_KEY,
+    SECURITY_RATING_KEY, NEW_SECURITY_RATING_KEY,
+    SECURITY_REVIEW_RATING_KEY, NEW_SECURITY_REVIEW_RATING_KEY,
+    SECURITY_HOTSPOTS_REVIEWED_KEY, NEW_SECURITY_HOTSPOTS_REVIEWED_KEY);
   public static final String FIELD_LANGUAGES = "languages";
   public static final String FIELD_NCLOC_DISTRIBUTION = "nclocLanguageDistribution";
   public static final String SUB_FIELD_DISTRIB_LANGUAGE = "language";
@@ -107,10 +140,18 @@ public class ProjectMeasuresIndexDefinition implements IndexDefinition {
       .addKeywordField(SUB_FIELD_MEASURES_KEY)
       .addDoubleField(SUB_FIELD_MEASURES_VALUE)
       .build();
+    FLATTENED_METRICS.forEach(metricKey -> mapping.createDoubleField(measureValueField(metricKey)));
     mapping.nestedFieldBuilder(FIELD_NCLOC_DISTRIBUTION)
       .addKeywordField(SUB_FIELD_DISTRIB_LANGUAGE)
       .addIntegerField(SUB_FIELD_DISTRIB_NCLOC)
       .build();
     mapping.createDateTimeField(FIELD_ANALYSED_AT);
   }
+
+  /**
+   * Name of the flattened field of a metric of {@link #FLATTENED_METRICS}
+   */
+  public static String measureValueField(String metricKey) {
+    return FIELD_MEASURE_VALUE_PREFIX + metricKey;
+  }
 }
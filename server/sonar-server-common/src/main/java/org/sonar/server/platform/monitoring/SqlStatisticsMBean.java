@@ -0,0 +1,53 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.List;
+
+public interface SqlStatisticsMBean {
+
+  String OBJECT_NAME = "SonarQube:name=SqlStatistics";
+
+  /**
+   * Whether SQL statistics are recorded.
+   */
+  boolean isEnabled();
+
+  /**
+   * Number of recorded executions of Web Service actions or Compute Engine steps since startup.
+   */
+  long getExecutionCount();
+
+  /**
+   * Number of executions which repeated at least one statement more than the configured threshold.
+   */
+  long getRepeatedStatementsAlertCount();
+
+  /**
+   * Most recent statements repeated more than the configured threshold within a single execution.
+   */
+  List<String> getLastRepeatedStatements();
+
+  List<String> getTopUnitsByStatements();
+
+  List<String> getTopUnitsByRows();
+
+  List<String> getTopUnitsByDuration();
+}
@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.List;
+import org.picocontainer.Startable;
+import org.sonar.process.Jmx;
+
+public class SqlStatisticsMBeanImpl implements SqlStatisticsMBean, Startable {
+
+  static final int TOP_UNITS_LIMIT = 20;
+
+  private final SqlStatisticsMonitoring monitoring;
+
+  public SqlStatisticsMBeanImpl(SqlStatisticsMonitoring monitoring) {
+    this.monitoring = monitoring;
+  }
+
+  @Override
+  public void start() {
+    Jmx.register(OBJECT_NAME, this);
+  }
+
+  @Override
+  public void stop() {
+    Jmx.unregister(OBJECT_NAME);
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return monitoring.isEnabled();
+  }
+
+  @Override
+  public long getExecutionCount() {
+    return monitoring.getExecutionCount();
+  }
+
+  @Override
+  public long getRepeatedStatementsAlertCount() {
+    return monitoring.getRepeatedStatementsAlertCount();
+  }
+
+  @Override
+  public List<String> getLastRepeatedStatements() {
+    return monitoring.getLastRepeatedStatements();
+  }
+
+  @Override
+  public List<String> getTopUnitsByStatements() {
+    return monitoring.getTopUnitsByStatements(TOP_UNITS_LIMIT);
+  }
+
+  @Override
+  public List<String> getTopUnitsByRows() {
+    return monitoring.getTopUnitsByRows(TOP_UNITS_LIMIT);
+  }
+
+  @Override
+  public List<String> getTopUnitsByDuration() {
+    return monitoring.getTopUnitsByDuration(TOP_UNITS_LIMIT);
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.db.DefaultDatabase;
+import org.sonar.db.profiling.SqlStatistics;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Aggregates the {@link SqlStatistics} of units of work (Web Service actions, Compute Engine steps) and
+ * detects the statements which are repeated more than a threshold within a single execution of a unit,
+ * typically N+1 select patterns.
+ * <p>
+ * Enabled by property {@link DefaultDatabase#SQL_STATISTICS_ENABLED}.
+ */
+@ServerSide
+@ComputeEngineSide
+public class SqlStatisticsMonitoring {
+
+  public static final String REPEATED_STATEMENTS_THRESHOLD = "sonar.sqlStatistics.repeatedStatementsThreshold";
+  static final int DEFAULT_REPEATED_STATEMENTS_THRESHOLD = 50;
+  static final int MAX_REPEATED_STATEMENTS_HISTORY = 100;
+  private static final Logger LOG = Loggers.get(SqlStatisticsMonitoring.class);
+
+  private final boolean enabled;
+  private final int repeatedStatementsThreshold;
+  private final ConcurrentMap<String, UnitStatistics> statisticsByUnit = new ConcurrentHashMap<>();
+  private final AtomicLong repeatedStatementsAlertCount = new AtomicLong();
+  private final Deque<String> lastRepeatedStatements = new ArrayDeque<>();
+
+  public SqlStatisticsMonitoring(Configuration config) {
+    this.enabled = config.getBoolean(DefaultDatabase.SQL_STATISTICS_ENABLED).orElse(false);
+    this.repeatedStatementsThreshold = config.getInt(REPEATED_STATEMENTS_THRESHOLD).orElse(DEFAULT_REPEATED_STATEMENTS_THRESHOLD);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Starts recording the statements of the current thread.
+   *
+   * @return {@code null} if monitoring is disabled
+   */
+  @CheckForNull
+  public SqlStatistics start() {
+    return enabled ? SqlStatistics.start() : null;
+  }
+
+  /**
+   * Stops recording and, if {@code unit} is not null, aggregates the statistics on this unit.
+   */
+  public void stop(SqlStatistics statistics, @Nullable String unit) {
+    statistics.stop();
+    if (unit == null) {
+      return;
+    }
+    statisticsByUnit.computeIfAbsent(unit, UnitStatistics::new).add(statistics);
+    Map<String, Integer> repeatedStatements = statistics.getRepeatedStatements(repeatedStatementsThreshold);
+    if (!repeatedStatements.isEmpty()) {
+      repeatedStatementsAlertCount.incrementAndGet();
+      repeatedStatements.forEach((shape, count) -> {
+        String message = format("%s executed %d times [%s]", unit, count, shape);
+        LOG.warn("Repeated SQL statement: {}", message);
+        addRepeatedStatement(message);
+      });
+    }
+  }
+
+  private void addRepeatedStatement(String message) {
+    synchronized (lastRepeatedStatements) {
+      lastRepeatedStatements.addFirst(message);
+      if (lastRepeatedStatements.size() > MAX_REPEATED_STATEMENTS_HISTORY) {
+        lastRepeatedStatements.removeLast();
+      }
+    }
+  }
+
+  public long getRepeatedStatementsAlertCount() {
+    return repeatedStatementsAlertCount.get();
+  }
+
+  public List<String> getLastRepeatedStatements() {
+    synchronized (lastRepeatedStatements) {
+      return new ArrayList<>(lastRepeatedStatements);
+    }
+  }
+
+  public long getExecutionCount() {
+    return statisticsByUnit.values().stream().mapToLong(u -> u.executions.get()).sum();
+  }
+
+  public List<String> getTopUnitsByStatements(int limit) {
+    return topUnits(limit, u -> u.statements.get());
+  }
+
+  public List<String> getTopUnitsByDuration(int limit) {
+    return topUnits(limit, u -> u.durationMs.get());
+  }
+
+  public List<String> getTopUnitsByRows(int limit) {
+    return topUnits(limit, u -> u.rows.get());
+  }
+
+  private List<String> topUnits(int limit, ToLongFunction<UnitStatistics> criterion) {
+    return statisticsByUnit.values().stream()
+      .sorted(Comparator.comparingLong(criterion).reversed())
+      .limit(limit)
+      .map(UnitStatistics::toString)
+      .collect(toList());
+  }
+
+  private static class UnitStatistics {
+    private final String unit;
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong maxStatements = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong durationMs = new AtomicLong();
+
+    private UnitStatistics(String unit) {
+      this.unit = unit;
+    }
+
+    private void add(SqlStatistics statistics) {
+      executions.incrementAndGet();
+      statements.addAndGet(statistics.getStatementCount());
+      maxStatements.accumulateAndGet(statistics.getStatementCount(), Math::max);
+      rows.addAndGet(statistics.getRowCount());
+      durationMs.addAndGet(statistics.getDurationMs());
+    }
+
+    @Override
+    public String toString() {
+      long count = executions.get();
+      return format("%s: executions=%d, statements=%d (avg=%d, max=%d), rows=%d, time=%dms",
+        unit, count, statements.get(), statements.get() / Math.max(1, count), maxStatements.get(), rows.get(), durationMs.get());
+    }
+  }
+}
@@ -150,8 +150,12 @@ public class RuleIndex {
   }
 
   public SearchIdResult<Integer> search(RuleQuery query, SearchOptions options) {
+    // rules and active rules change rarely (startup and edition of quality profiles), so the
+    // same pages and facets are requested many times between two refreshes of the index.
+    // Shard request cache is invalidated by Elasticsearch on refresh.
     SearchRequestBuilder esSearch = client
-      .prepareSearch(TYPE_RULE);
+      .prepareSearch(TYPE_RULE)
+      .setRequestCache(true);
 
     QueryBuilder qb = buildQuery(query);
     Map<String, QueryBuilder> filters = buildFilters(query);
@@ -22,6 +22,7 @@ package org.sonar.server.es;
 import com.google.common.collect.ImmutableMap;
 import java.util.ArrayList;
 import java.util.List;
+import org.apache.commons.lang.StringUtils;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
@@ -38,6 +39,10 @@ import org.sonar.server.es.newindex.FakeIndexDefinition;
 
 import static java.util.Collections.emptyMap;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.sonar.server.es.newindex.FakeIndexDefinition.INDEX;
 import static org.sonar.server.es.newindex.FakeIndexDefinition.TYPE_FAKE;
 
@@ -76,6 +81,47 @@ public class BulkIndexerTest {
     assertThat(count()).isEqualTo(2);
   }
 
+  @Test
+  public void single_bulk_refreshes_only_the_shards_it_changes() {
+    EsClient client = spy(es.client());
+    BulkIndexer indexer = new BulkIndexer(client, TYPE_FAKE, Size.REGULAR);
+    indexer.start();
+    indexer.add(newIndexRequest(42));
+    indexer.add(newIndexRequest(78));
+    indexer.stop();
+
+    assertThat(count()).isEqualTo(2);
+    verify(client, never()).prepareRefresh(any(Index.class));
+  }
+
+  @Test
+  public void multiple_bulks_refresh_the_index_when_stopping() {
+    EsClient client = spy(es.client());
+    BulkIndexer indexer = new BulkIndexer(client, TYPE_FAKE, Size.REGULAR);
+    indexer.start();
+    // requests larger than the flush size are sent before stopping
+    indexer.add(newLargeIndexRequest(1));
+    indexer.add(newLargeIndexRequest(2));
+    indexer.add(newIndexRequest(3));
+    indexer.stop();
+
+    assertThat(count()).isEqualTo(3);
+    verify(client).prepareRefresh(TYPE_FAKE.getIndex());
+  }
+
+  @Test
+  public void stop_does_not_refresh_the_index_if_nothing_was_sent() {
+    // indexed but not visible until the next refresh
+    es.client().prepareIndex(TYPE_FAKE).setSource(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, 42)).get();
+    EsClient client = spy(es.client());
+    BulkIndexer indexer = new BulkIndexer(client, TYPE_FAKE, Size.REGULAR);
+    indexer.start();
+    indexer.stop();
+
+    assertThat(count()).isZero();
+    verify(client, never()).prepareRefresh(any(Index.class));
+  }
+
   @Test
   public void large_indexing() {
     // index has one replica
@@ -207,6 +253,12 @@ public class BulkIndexerTest {
       .source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, intField));
   }
 
+  private IndexRequest newLargeIndexRequest(int intField) {
+    // field is not mapped but is kept in the source of the document
+    return new IndexRequest(INDEX, TYPE_FAKE.getType())
+      .source(ImmutableMap.of(FakeIndexDefinition.INT_FIELD, intField, "padding", StringUtils.repeat("a", 600 * 1024)));
+  }
+
   private IndexRequest newIndexRequestWithDocId(String id) {
     return new IndexRequest(INDEX, TYPE_FAKE.getType())
       .id(id)
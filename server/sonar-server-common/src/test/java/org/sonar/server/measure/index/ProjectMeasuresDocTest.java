@@ -0,0 +1,45 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.measure.index;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.api.measures.CoreMetrics.COVERAGE_KEY;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_MEASURE_VALUE_PREFIX;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.measureValueField;
+
+public class ProjectMeasuresDocTest {
+
+  @Test
+  public void flatten_measures_of_facet_metrics() {
+    ProjectMeasuresDoc doc = new ProjectMeasuresDoc()
+      .setId("P1")
+      .setMeasuresFromMap(ImmutableMap.of(NCLOC_KEY, 1_000d, COVERAGE_KEY, 75.5d, "custom_metric", 3d));
+
+    assertThat(doc.getMeasures()).hasSize(3);
+    assertThat(doc.getFields())
+      .containsEntry(measureValueField(NCLOC_KEY), 1_000d)
+      .containsEntry(measureValueField(COVERAGE_KEY), 75.5d)
+      .doesNotContainKey(FIELD_MEASURE_VALUE_PREFIX + "custom_metric");
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.platform.monitoring;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.db.DefaultDatabase;
+import org.sonar.db.profiling.SqlStatistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SqlStatisticsMonitoringTest {
+
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private MapSettings settings = new MapSettings();
+
+  @Test
+  public void start_returns_null_if_disabled() {
+    SqlStatisticsMonitoring underTest = new SqlStatisticsMonitoring(settings.asConfig());
+
+    assertThat(underTest.isEnabled()).isFalse();
+    assertThat(underTest.start()).isNull();
+  }
+
+  @Test
+  public void start_and_stop_statistics_of_current_thread() {
+    settings.setProperty(DefaultDatabase.SQL_STATISTICS_ENABLED, true);
+    SqlStatisticsMonitoring underTest = new SqlStatisticsMonitoring(settings.asConfig());
+
+    SqlStatistics statistics = underTest.start();
+    assertThat(statistics).isNotNull();
+    underTest.stop(statistics, "api/issues/search");
+
+    assertThat(underTest.getExecutionCount()).isEqualTo(1);
+    assertThat(underTest.getTopUnitsByStatements(10))
+      .containsExactly("api/issues/search: executions=1, statements=0 (avg=0, max=0), rows=0, time=0ms");
+  }
+
+  @Test
+  public void aggregate_statistics_by_unit() {
+    SqlStatisticsMonitoring underTest = new SqlStatisticsMonitoring(settings.asConfig());
+
+    underTest.stop(mockStatistics(10, 100, 5), "api/issues/search");
+    underTest.stop(mockStatistics(30, 50, 15), "api/issues/search");
+    underTest.stop(mockStatistics(15, 1_000, 2), "api/rules/search");
+    underTest.stop(mockStatistics(1, 1, 1), null);
+
+    assertThat(underTest.getExecutionCount()).isEqualTo(3);
+    assertThat(underTest.getTopUnitsByStatements(10)).containsExactly(
+      "api/issues/search: executions=2, statements=40 (avg=20, max=30), rows=150, time=20ms",
+      "api/rules/search: executions=1, statements=15 (avg=15, max=15), rows=1000, time=2ms");
+    assertThat(underTest.getTopUnitsByRows(1)).extracting(s -> s.substring(0, s.indexOf(':'))).containsExactly("api/rules/search");
+    assertThat(underTest.getTopUnitsByDuration(1)).extracting(s -> s.substring(0, s.indexOf(':'))).containsExactly("api/issues/search");
+  }
+
+  @Test
+  public void flag_statements_repeated_more_than_threshold() {
+    settings.setProperty(SqlStatisticsMonitoring.REPEATED_STATEMENTS_THRESHOLD, 10);
+    SqlStatisticsMonitoring underTest = new SqlStatisticsMonitoring(settings.asConfig());
+    SqlStatistics statistics = mockStatistics(60, 60, 10);
+    when(statistics.getRepeatedStatements(10)).thenReturn(ImmutableMap.of("select * from components where uuid=?", 50));
+
+    underTest.stop(statistics, "api/components/tree");
+
+    verify(statistics).getRepeatedStatements(10);
+    assertThat(underTest.getRepeatedStatementsAlertCount()).isEqualTo(1);
+    assertThat(underTest.getLastRepeatedStatements())
+      .containsExactly("api/components/tree executed 50 times [select * from components where uuid=?]");
+    assertThat(logTester.logs(LoggerLevel.WARN))
+      .containsExactly("Repeated SQL statement: api/components/tree executed 50 times [select * from components where uuid=?]");
+  }
+
+  @Test
+  public void history_of_repeated_statements_is_bounded() {
+    SqlStatisticsMonitoring underTest = new SqlStatisticsMonitoring(settings.asConfig());
+    SqlStatistics statistics = mockStatistics(1, 1, 1);
+    when(statistics.getRepeatedStatements(anyInt())).thenReturn(ImmutableMap.of("select 1", 100));
+
+    for (int i = 0; i < SqlStatisticsMonitoring.MAX_REPEATED_STATEMENTS_HISTORY + 10; i++) {
+      underTest.stop(statistics, "unit" + i);
+    }
+
+    assertThat(underTest.getLastRepeatedStatements()).hasSize(SqlStatisticsMonitoring.MAX_REPEATED_STATEMENTS_HISTORY);
+    assertThat(underTest.getLastRepeatedStatements().get(0)).startsWith("unit109 ");
+  }
+
+  private static SqlStatistics mockStatistics(long statements, long rows, long durationMs) {
+    SqlStatistics statistics = mock(SqlStatistics.class);
+    when(statistics.getStatementCount()).thenReturn(statements);
+    when(statistics.getRowCount()).thenReturn(rows);
+    when(statistics.getDurationMs()).thenReturn(durationMs);
+    when(statistics.getRepeatedStatements(anyInt())).thenReturn(ImmutableMap.of());
+    return statistics;
+  }
+}
@@ -891,6 +891,26 @@ public class RuleIndexTest {
     assertThat(result.getFacets().get(FACET_TAGS).keySet()).containsOnly("T2", "T3");
   }
 
+  @Test
+  public void search_returns_changes_indexed_after_a_cached_search() {
+    RuleDefinitionDto rule = createRule(setLanguage("java"));
+    index();
+    RuleQuery query = new RuleQuery().setLanguages(singletonList("java"));
+    SearchOptions options = new SearchOptions().addFacets(singletonList(FACET_LANGUAGES));
+    // identical searches, the second one being served by the request cache
+    underTest.search(query, options);
+    SearchIdResult<Integer> result = underTest.search(query, options);
+    assertThat(result.getIds()).containsOnly(rule.getId());
+    assertThat(result.getFacets().get(FACET_LANGUAGES)).containsEntry("java", 1L);
+
+    db.rules().update(rule.setLanguage("js"));
+    ruleIndexer.commitAndIndex(db.getSession(), rule.getId());
+
+    result = underTest.search(query, options);
+    assertThat(result.getIds()).isEmpty();
+    assertThat(result.getFacets().get(FACET_LANGUAGES)).containsEntry("js", 1L).doesNotContainEntry("java", 1L);
+  }
+
   @Test
   public void languages_facet_should_return_top_100_items() {
     rangeClosed(1, 101).forEach(i -> db.rules().insert(r -> r.setLanguage("lang" + i)));
@@ -89,7 +89,7 @@ public class ComponentIndex {
       .setSize(searchOptions.getLimit());
 
     BoolQueryBuilder esQuery = boolQuery();
-    esQuery.filter(authorizationTypeSupport.createQueryFilter());
+    esQuery.filter(authorizationTypeSupport.createQueryFilter(TYPE_COMPONENT.getMainType()));
     setNullable(query.getQuery(), q -> {
       ComponentTextSearchQuery componentTextSearchQuery = ComponentTextSearchQuery.builder()
         .setQueryText(q)
@@ -168,7 +168,9 @@ public class ComponentIndex {
   private QueryBuilder createQuery(SuggestionQuery query, ComponentTextSearchFeature... features) {
     BoolQueryBuilder esQuery = boolQuery();
     esQuery.filter(termQuery(FIELD_INDEX_TYPE, TYPE_COMPONENT.getName()));
-    esQuery.filter(authorizationTypeSupport.createQueryFilter());
+    // components of other qualifiers would be dropped by the aggregation, but only after having been scored
+    esQuery.filter(termsQuery(FIELD_QUALIFIER, query.getQualifiers()));
+    esQuery.filter(authorizationTypeSupport.createQueryFilter(TYPE_COMPONENT.getMainType()));
     ComponentTextSearchQuery componentTextSearchQuery = ComponentTextSearchQuery.builder()
       .setQueryText(query.getQuery())
       .setFieldKey(FIELD_KEY)
@@ -0,0 +1,176 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.CheckForNull;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.server.ServerSide;
+import org.sonar.api.utils.System2;
+import org.sonar.process.Jmx;
+
+/**
+ * Cache of the aggregations (facets and effort) computed by {@link IssueIndex#search(IssueQuery, org.sonar.server.es.SearchOptions)}.
+ * <p>
+ * Aggregations do not depend on sorting nor paging, so that browsing the pages of a search does not compute them
+ * again. Entries are keyed by the query, post filter and aggregations sent to Elasticsearch, which include the
+ * authorization filter of the user. They are discarded when {@link IssueIndexer} changes the index from this process
+ * and expire after {@link #TTL_PROPERTY} seconds, as the index is also changed by the Compute Engine and by the other
+ * nodes of a cluster.
+ */
+@ServerSide
+public class IssueFacetCache implements IssueFacetCacheMBean, Startable {
+  static final String SIZE_PROPERTY = "sonar.issues.facetCache.size";
+  static final String TTL_PROPERTY = "sonar.issues.facetCache.ttlSeconds";
+  private static final int DEFAULT_SIZE = 500;
+  private static final int DEFAULT_TTL_SECONDS = 10;
+
+  private final IssueIndexGeneration indexGeneration;
+  private final System2 system2;
+  private final int maxSize;
+  private final long ttlMs;
+  private final Map<String, Entry> entries;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  public IssueFacetCache(Configuration configuration, IssueIndexGeneration indexGeneration, System2 system2) {
+    this.indexGeneration = indexGeneration;
+    this.system2 = system2;
+    this.maxSize = configuration.getInt(SIZE_PROPERTY).orElse(DEFAULT_SIZE);
+    this.ttlMs = configuration.getInt(TTL_PROPERTY).orElse(DEFAULT_TTL_SECONDS) * 1_000L;
+    this.entries = new LinkedHashMap<String, Entry>(16, 0.75F, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  @Override
+  public void start() {
+    Jmx.register(OBJECT_NAME, this);
+  }
+
+  @Override
+  public void stop() {
+    Jmx.unregister(OBJECT_NAME);
+  }
+
+  /**
+   * Executes the specified request, which must not contain aggregations, with the specified aggregations. The
+   * aggregations are computed by Elasticsearch only if they are not cached.
+   */
+  public SearchResponse search(SearchRequestBuilder request, Collection<AggregationBuilder> aggregations) {
+    if (maxSize <= 0 || ttlMs <= 0) {
+      return searchWithAggregations(request, aggregations);
+    }
+
+    long generation = indexGeneration.get();
+    String key = keyOf(request, aggregations);
+    Aggregations cached = get(key, generation);
+    if (cached != null) {
+      hitCount.incrementAndGet();
+      return withAggregations(request.get(), cached);
+    }
+    missCount.incrementAndGet();
+    SearchResponse response = searchWithAggregations(request, aggregations);
+    if (response.getAggregations() != null) {
+      put(key, new Entry(response.getAggregations(), generation, system2.now()));
+    }
+    return response;
+  }
+
+  @CheckForNull
+  private synchronized Aggregations get(String key, long generation) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.generation != generation || system2.now() - entry.createdAt >= ttlMs) {
+      entries.remove(key);
+      return null;
+    }
+    return entry.aggregations;
+  }
+
+  private synchronized void put(String key, Entry entry) {
+    entries.put(key, entry);
+  }
+
+  private static SearchResponse searchWithAggregations(SearchRequestBuilder request, Collection<AggregationBuilder> aggregations) {
+    aggregations.forEach(request::addAggregation);
+    return request.get();
+  }
+
+  private static String keyOf(SearchRequestBuilder request, Collection<AggregationBuilder> aggregations) {
+    SearchSourceBuilder requestSource = request.request().source();
+    SearchSourceBuilder keySource = new SearchSourceBuilder();
+    if (requestSource != null) {
+      keySource.query(requestSource.query()).postFilter(requestSource.postFilter());
+    }
+    aggregations.forEach(keySource::aggregation);
+    return keySource.toString();
+  }
+
+  private static SearchResponse withAggregations(SearchResponse response, Aggregations aggregations) {
+    InternalSearchResponse sections = new InternalSearchResponse(response.getHits(), (InternalAggregations) aggregations, response.getSuggest(),
+      null, response.isTimedOut(), response.isTerminatedEarly(), response.getNumReducePhases());
+    return new SearchResponse(sections, response.getScrollId(), response.getTotalShards(), response.getSuccessfulShards(),
+      response.getSkippedShards(), response.getTook().millis(), response.getShardFailures(), response.getClusters());
+  }
+
+  @Override
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  @Override
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  private static final class Entry {
+    private final Aggregations aggregations;
+    private final long generation;
+    private final long createdAt;
+
+    private Entry(Aggregations aggregations, long generation, long createdAt) {
+      this.aggregations = aggregations;
+      this.generation = generation;
+      this.createdAt = createdAt;
+    }
+  }
+}
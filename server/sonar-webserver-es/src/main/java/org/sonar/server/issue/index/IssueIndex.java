@@ -307,12 +307,20 @@ public class IssueIndex {
   private final System2 system;
   private final UserSession userSession;
   private final WebAuthorizationTypeSupport authorizationTypeSupport;
+  @CheckForNull
+  private final IssueFacetCache facetCache;
 
   public IssueIndex(EsClient client, System2 system, UserSession userSession, WebAuthorizationTypeSupport authorizationTypeSupport) {
+    this(client, system, userSession, authorizationTypeSupport, null);
+  }
+
+  public IssueIndex(EsClient client, System2 system, UserSession userSession, WebAuthorizationTypeSupport authorizationTypeSupport,
+    @Nullable IssueFacetCache facetCache) {
     this.client = client;
     this.system = system;
     this.userSession = userSession;
     this.authorizationTypeSupport = authorizationTypeSupport;
+    this.facetCache = facetCache;
 
     this.sorting = new Sorting();
     this.sorting.add(IssueQuery.SORT_BY_STATUS, FIELD_ISSUE_STATUS);
@@ -351,13 +359,18 @@ public class IssueIndex {
     AllFilters allFilters = createAllFilters(query);
     RequestFiltersComputer filterComputer = newFilterComputer(options, allFilters);
 
-    configureTopAggregations(query, options, esRequest, allFilters, filterComputer);
     configureQuery(esRequest, filterComputer);
     configureTopFilters(esRequest, filterComputer);
 
     esRequest.setFetchSource(false);
 
-    return esRequest.get();
+    if (facetCache == null) {
+      configureTopAggregations(query, options, esRequest, allFilters, filterComputer);
+      return esRequest.get();
+    }
+    SearchRequestBuilder aggregationsRequest = client.prepareSearch(TYPE_ISSUE.getMainType());
+    configureTopAggregations(query, options, aggregationsRequest, allFilters, filterComputer);
+    return facetCache.search(esRequest, aggregationsRequest.request().source().aggregations().getAggregatorFactories());
   }
 
   private void configureTopAggregations(IssueQuery query, SearchOptions options, SearchRequestBuilder esRequest, AllFilters allFilters, RequestFiltersComputer filterComputer) {
@@ -600,7 +613,7 @@ public class IssueIndex {
   }
 
   private QueryBuilder createAuthorizationFilter() {
-    return authorizationTypeSupport.createQueryFilter();
+    return authorizationTypeSupport.createQueryFilter(TYPE_ISSUE.getMainType());
   }
 
   private void addDatesFilter(AllFilters filters, IssueQuery query) {
@@ -1015,17 +1028,15 @@ public class IssueIndex {
     @Nullable List<SecurityStandardCategoryStatistics> children) {
     List<StringTerms.Bucket> severityBuckets = ((StringTerms) ((InternalFilter) categoryBucket.getAggregations().get(AGG_VULNERABILITIES)).getAggregations().get(AGG_SEVERITIES))
       .getBuckets();
-    long vulnerabilities = severityBuckets.stream().mapToLong(b -> ((InternalValueCount) b.getAggregations().get(AGG_COUNT)).getValue()).sum();
+    long vulnerabilities = severityBuckets.stream().mapToLong(StringTerms.Bucket::getDocCount).sum();
     // Worst severity having at least one issue
     OptionalInt severityRating = severityBuckets.stream()
-      .filter(b -> ((InternalValueCount) b.getAggregations().get(AGG_COUNT)).getValue() != 0)
+      .filter(b -> b.getDocCount() != 0)
       .mapToInt(b -> Severity.ALL.indexOf(b.getKeyAsString()) + 1)
       .max();
 
-    long toReviewSecurityHotspots = ((InternalValueCount) ((InternalFilter) categoryBucket.getAggregations().get(AGG_TO_REVIEW_SECURITY_HOTSPOTS)).getAggregations().get(AGG_COUNT))
-      .getValue();
-    long reviewedSecurityHotspots = ((InternalValueCount) ((InternalFilter) categoryBucket.getAggregations().get(AGG_REVIEWED_SECURITY_HOTSPOTS)).getAggregations().get(AGG_COUNT))
-      .getValue();
+    long toReviewSecurityHotspots = ((InternalFilter) categoryBucket.getAggregations().get(AGG_TO_REVIEW_SECURITY_HOTSPOTS)).getDocCount();
+    long reviewedSecurityHotspots = ((InternalFilter) categoryBucket.getAggregations().get(AGG_REVIEWED_SECURITY_HOTSPOTS)).getDocCount();
 
     Optional<Double> percent = computePercent(toReviewSecurityHotspots, reviewedSecurityHotspots);
     Integer securityReviewRating = computeRating(percent.orElse(null)).getIndex();
@@ -1049,23 +1060,19 @@ public class IssueIndex {
     return aggregationBuilder;
   }
 
+  /**
+   * Issues are counted with the doc count of the buckets: every issue document has a key, so a value count
+   * sub-aggregation on the key would only read doc values to return the same numbers.
+   */
   private static AggregationBuilder addSecurityReportIssueCountAggregations(AggregationBuilder categoryAggs) {
     return categoryAggs
       .subAggregation(
         AggregationBuilders.filter(AGG_VULNERABILITIES, NON_RESOLVED_VULNERABILITIES_FILTER)
           .subAggregation(
-            AggregationBuilders.terms(AGG_SEVERITIES).field(FIELD_ISSUE_SEVERITY)
-              .subAggregation(
-                AggregationBuilders.count(AGG_COUNT).field(FIELD_ISSUE_KEY))))
-      .subAggregation(AggregationBuilders.filter(AGG_TO_REVIEW_SECURITY_HOTSPOTS, TO_REVIEW_HOTSPOTS_FILTER)
-        .subAggregation(
-          AggregationBuilders.count(AGG_COUNT).field(FIELD_ISSUE_KEY)))
-      .subAggregation(AggregationBuilders.filter(AGG_IN_REVIEW_SECURITY_HOTSPOTS, IN_REVIEW_HOTSPOTS_FILTER)
-        .subAggregation(
-          AggregationBuilders.count(AGG_COUNT).field(FIELD_ISSUE_KEY)))
-      .subAggregation(AggregationBuilders.filter(AGG_REVIEWED_SECURITY_HOTSPOTS, REVIEWED_HOTSPOTS_FILTER)
-        .subAggregation(
-          AggregationBuilders.count(AGG_COUNT).field(FIELD_ISSUE_KEY)));
+            AggregationBuilders.terms(AGG_SEVERITIES).field(FIELD_ISSUE_SEVERITY)))
+      .subAggregation(AggregationBuilders.filter(AGG_TO_REVIEW_SECURITY_HOTSPOTS, TO_REVIEW_HOTSPOTS_FILTER))
+      .subAggregation(AggregationBuilders.filter(AGG_IN_REVIEW_SECURITY_HOTSPOTS, IN_REVIEW_HOTSPOTS_FILTER))
+      .subAggregation(AggregationBuilders.filter(AGG_REVIEWED_SECURITY_HOTSPOTS, REVIEWED_HOTSPOTS_FILTER));
   }
 
   private SearchRequestBuilder prepareNonClosedVulnerabilitiesAndHotspotSearch(String projectUuid, boolean isViewOrApp) {
@@ -1089,7 +1096,9 @@ public class IssueIndex {
           .should(IN_REVIEW_HOTSPOTS_FILTER)
           .should(REVIEWED_HOTSPOTS_FILTER)
           .minimumShouldMatch(1))
-      .setSize(0);
+      .setSize(0)
+      // results only change when the index is refreshed, so they are kept in the shard request cache until then
+      .setRequestCache(true);
   }
 
 }
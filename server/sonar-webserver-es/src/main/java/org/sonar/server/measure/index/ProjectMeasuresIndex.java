@@ -75,6 +75,7 @@ import org.sonar.server.permission.index.WebAuthorizationTypeSupport;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.emptyList;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.existsQuery;
 import static org.elasticsearch.index.query.QueryBuilders.nestedQuery;
 import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
@@ -123,8 +124,10 @@ import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIEL
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_QUALIFIER;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_QUALITY_GATE_STATUS;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FIELD_TAGS;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.FLATTENED_METRICS;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.SUB_FIELD_MEASURES_KEY;
 import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.TYPE_PROJECT_MEASURES;
+import static org.sonar.server.measure.index.ProjectMeasuresIndexDefinition.measureValueField;
 import static org.sonar.server.measure.index.ProjectMeasuresQuery.SORT_BY_LAST_ANALYSIS_DATE;
 import static org.sonar.server.measure.index.ProjectMeasuresQuery.SORT_BY_NAME;
 import static org.sonarqube.ws.client.project.ProjectsWsParameters.FILTER_LANGUAGES;
@@ -297,6 +300,10 @@ public class ProjectMeasuresIndex {
   }
 
   private static void addMetricSort(ProjectMeasuresQuery query, SearchRequestBuilder requestBuilder, String sort) {
+    if (FLATTENED_METRICS.contains(sort)) {
+      requestBuilder.addSort(measureValueField(sort), query.isAsc() ? ASC : DESC);
+      return;
+    }
     requestBuilder.addSort(
       new FieldSortBuilder(FIELD_MEASURES_MEASURE_VALUE)
         .setNestedSort(
@@ -314,9 +321,13 @@ public class ProjectMeasuresIndex {
       .forEach(esRequest::addAggregation);
   }
 
+  /**
+   * Facets are only defined on {@link ProjectMeasuresIndexDefinition#FLATTENED_METRICS}, so that they aggregate the
+   * values of the root documents instead of the nested measures.
+   */
   private static AbstractAggregationBuilder<?> createRangeFacet(String metricKey, double[] thresholds) {
     RangeAggregationBuilder rangeAgg = AggregationBuilders.range(metricKey)
-      .field(FIELD_MEASURES_MEASURE_VALUE);
+      .field(measureValueField(metricKey));
     final int lastIndex = thresholds.length - 1;
     IntStream.range(0, thresholds.length)
       .forEach(i -> {
@@ -329,11 +340,7 @@ public class ProjectMeasuresIndex {
           rangeAgg.addRange(thresholds[i], thresholds[i + 1]);
         }
       });
-
-    return AggregationBuilders.nested("nested_" + metricKey, FIELD_MEASURES)
-      .subAggregation(
-        AggregationBuilders.filter("filter_" + metricKey, termsQuery(FIELD_MEASURES_MEASURE_KEY, metricKey))
-          .subAggregation(rangeAgg));
+    return rangeAgg;
   }
 
   private static AbstractAggregationBuilder<?> createQualityGateFacet(ProjectMeasuresQuery projectMeasuresQuery) {
@@ -361,7 +368,7 @@ public class ProjectMeasuresIndex {
       "__indexType", new SimpleFieldFilterScope(FIELD_INDEX_TYPE),
       termQuery(FIELD_INDEX_TYPE, TYPE_PROJECT_MEASURES.getName()));
     if (!query.isIgnoreAuthorization()) {
-      filters.addFilter("__authorization", new SimpleFieldFilterScope("parent"), authorizationTypeSupport.createQueryFilter());
+      filters.addFilter("__authorization", new SimpleFieldFilterScope("parent"), authorizationTypeSupport.createQueryFilter(TYPE_PROJECT_MEASURES.getMainType()));
     }
     Multimap<String, MetricCriterion> metricCriterionMultimap = ArrayListMultimap.create();
     query.getMetricCriteria()
@@ -402,6 +409,13 @@ public class ProjectMeasuresIndex {
   }
 
   private static QueryBuilder toQuery(MetricCriterion criterion) {
+    String metricKey = criterion.getMetricKey();
+    if (FLATTENED_METRICS.contains(metricKey)) {
+      if (criterion.isNoData()) {
+        return boolQuery().mustNot(existsQuery(measureValueField(metricKey)));
+      }
+      return toValueQuery(criterion, measureValueField(metricKey));
+    }
     if (criterion.isNoData()) {
       return boolQuery().mustNot(
         nestedQuery(
@@ -413,13 +427,11 @@ public class ProjectMeasuresIndex {
       FIELD_MEASURES,
       boolQuery()
         .filter(termQuery(FIELD_MEASURES_MEASURE_KEY, criterion.getMetricKey()))
-        .filter(toValueQuery(criterion)),
+        .filter(toValueQuery(criterion, FIELD_MEASURES_MEASURE_VALUE)),
       ScoreMode.Avg);
   }
 
-  private static QueryBuilder toValueQuery(MetricCriterion criterion) {
-    String fieldName = FIELD_MEASURES_MEASURE_VALUE;
-
+  private static QueryBuilder toValueQuery(MetricCriterion criterion, String fieldName) {
     switch (criterion.getOperator()) {
       case GT:
         return rangeQuery(fieldName).gt(criterion.getValue());
@@ -454,7 +466,7 @@ public class ProjectMeasuresIndex {
 
     SearchRequestBuilder searchQuery = client
       .prepareSearch(TYPE_PROJECT_MEASURES.getMainType())
-      .setQuery(authorizationTypeSupport.createQueryFilter())
+      .setQuery(authorizationTypeSupport.createQueryFilter(TYPE_PROJECT_MEASURES.getMainType()))
       .setFetchSource(false)
       .setSize(0)
       .addAggregation(tagFacet);
@@ -537,7 +549,7 @@ public class ProjectMeasuresIndex {
       private static AbstractAggregationBuilder<?> createNoDataFacet(String metricKey) {
         return AggregationBuilders.filter(
           "no_data_" + metricKey,
-          boolQuery().mustNot(nestedQuery(FIELD_MEASURES, termQuery(FIELD_MEASURES_MEASURE_KEY, metricKey), ScoreMode.Avg)));
+          boolQuery().mustNot(existsQuery(measureValueField(metricKey))));
       }
     }
   }
@@ -564,15 +576,13 @@ public class ProjectMeasuresIndex {
       }
 
       private static AbstractAggregationBuilder<?> createMeasureRatingFacet(String metricKey) {
-        return AggregationBuilders.nested("nested_" + metricKey, FIELD_MEASURES)
-          .subAggregation(
-            AggregationBuilders.filter("filter_" + metricKey, termsQuery(FIELD_MEASURES_MEASURE_KEY, metricKey))
-              .subAggregation(filters(metricKey,
-                new KeyedFilter("1", termQuery(FIELD_MEASURES_MEASURE_VALUE, 1D)),
-                new KeyedFilter("2", termQuery(FIELD_MEASURES_MEASURE_VALUE, 2D)),
-                new KeyedFilter("3", termQuery(FIELD_MEASURES_MEASURE_VALUE, 3D)),
-                new KeyedFilter("4", termQuery(FIELD_MEASURES_MEASURE_VALUE, 4D)),
-                new KeyedFilter("5", termQuery(FIELD_MEASURES_MEASURE_VALUE, 5D)))));
+        String fieldName = measureValueField(metricKey);
+        return filters(metricKey,
+          new KeyedFilter("1", termQuery(fieldName, 1D)),
+          new KeyedFilter("2", termQuery(fieldName, 2D)),
+          new KeyedFilter("3", termQuery(fieldName, 3D)),
+          new KeyedFilter("4", termQuery(fieldName, 4D)),
+          new KeyedFilter("5", termQuery(fieldName, 5D)));
       }
     }
   }
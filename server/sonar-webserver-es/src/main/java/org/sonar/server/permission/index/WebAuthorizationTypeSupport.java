@@ -19,17 +19,32 @@
  */
 package org.sonar.server.permission.index;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.join.query.JoinQueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
 import org.sonar.api.server.ServerSide;
 import org.sonar.db.user.GroupDto;
+import org.sonar.server.es.EsClient;
+import org.sonar.server.es.IndexType.IndexMainType;
 import org.sonar.server.user.UserSession;
 
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termsQuery;
+import static org.sonar.server.es.IndexType.FIELD_INDEX_TYPE;
 import static org.sonar.server.permission.index.IndexAuthorizationConstants.FIELD_ALLOW_ANYONE;
 import static org.sonar.server.permission.index.IndexAuthorizationConstants.FIELD_GROUP_IDS;
 import static org.sonar.server.permission.index.IndexAuthorizationConstants.FIELD_USER_IDS;
@@ -38,10 +53,37 @@ import static org.sonar.server.permission.index.IndexAuthorizationConstants.TYPE
 @ServerSide
 public class WebAuthorizationTypeSupport {
 
+  /**
+   * Above this number of authorized projects, the ids of the authorization documents are not inlined in the filter.
+   */
+  static final int MAX_PROJECTS_IN_TERMS_FILTER = 1_000;
+
   private final UserSession userSession;
+  @CheckForNull
+  private final EsClient esClient;
+  private final int maxProjectsInTermsFilter;
+  /**
+   * Permissions (see {@link #permissionsKey(IndexMainType)}) known to give access to more than
+   * {@link #maxProjectsInTermsFilter} projects, for which the search of authorization documents is skipped.
+   * Keeping a stale entry is harmless, as {@code has_parent} filters correctly whatever the number of projects.
+   */
+  private final Cache<String, Boolean> tooManyProjectsPermissions = CacheBuilder.newBuilder()
+    .maximumSize(10_000)
+    .expireAfterWrite(1, TimeUnit.MINUTES)
+    .build();
 
   public WebAuthorizationTypeSupport(UserSession userSession) {
+    this(userSession, null, MAX_PROJECTS_IN_TERMS_FILTER);
+  }
+
+  public WebAuthorizationTypeSupport(UserSession userSession, EsClient esClient) {
+    this(userSession, esClient, MAX_PROJECTS_IN_TERMS_FILTER);
+  }
+
+  WebAuthorizationTypeSupport(UserSession userSession, @Nullable EsClient esClient, int maxProjectsInTermsFilter) {
     this.userSession = userSession;
+    this.esClient = esClient;
+    this.maxProjectsInTermsFilter = maxProjectsInTermsFilter;
   }
 
   /**
@@ -53,6 +95,59 @@ public class WebAuthorizationTypeSupport {
       return QueryBuilders.matchAllQuery();
     }
 
+    return createHasParentFilter(createPermissionFilter());
+  }
+
+  /**
+   * Build a filter to restrict query on the children of the specified authorization type to the documents on which
+   * user has read access.
+   * <p>
+   * The authorization documents the user can read are searched first. When they are not too many, the filter is a
+   * terms query on the parent ids of the children, which is much cheaper than the {@code has_parent} query returned
+   * by {@link #createQueryFilter()} on large indices.
+   */
+  public QueryBuilder createQueryFilter(IndexMainType authorizationType) {
+    if (userSession.isRoot()) {
+      return QueryBuilders.matchAllQuery();
+    }
+
+    BoolQueryBuilder permissionFilter = createPermissionFilter();
+    String permissionsKey = permissionsKey(authorizationType);
+    if (esClient == null || tooManyProjectsPermissions.getIfPresent(permissionsKey) != null) {
+      return createHasParentFilter(permissionFilter);
+    }
+
+    SearchHits hits = esClient.prepareSearch(authorizationType)
+      .setQuery(boolQuery()
+        .filter(termQuery(FIELD_INDEX_TYPE, authorizationType.getType()))
+        .filter(permissionFilter))
+      .setFetchSource(false)
+      .setSize(maxProjectsInTermsFilter)
+      .setTerminateAfter(maxProjectsInTermsFilter + 1)
+      .get()
+      .getHits();
+    if (hits.getTotalHits() > maxProjectsInTermsFilter) {
+      tooManyProjectsPermissions.put(permissionsKey, Boolean.TRUE);
+      return createHasParentFilter(permissionFilter);
+    }
+
+    List<String> authorizationDocIds = Arrays.stream(hits.getHits())
+      .map(SearchHit::getId)
+      .collect(toList());
+    // authorization documents store their own id in the parent id field of the join, they must be excluded
+    return boolQuery()
+      .filter(termsQuery(authorizationType.getIndex().getJoinField() + "#" + authorizationType.getType(), authorizationDocIds))
+      .mustNot(termQuery(FIELD_INDEX_TYPE, authorizationType.getType()));
+  }
+
+  private String permissionsKey(IndexMainType authorizationType) {
+    return authorizationType.format() + ":" + userSession.getUserId() + ":" + userSession.getGroups().stream()
+      .map(group -> String.valueOf(group.getId()))
+      .sorted()
+      .collect(joining(","));
+  }
+
+  private BoolQueryBuilder createPermissionFilter() {
     Integer userId = userSession.getUserId();
     BoolQueryBuilder filter = boolQuery();
 
@@ -70,9 +165,13 @@ public class WebAuthorizationTypeSupport {
       .map(GroupDto::getId)
       .forEach(groupId -> filter.should(termQuery(FIELD_GROUP_IDS, groupId)));
 
+    return filter;
+  }
+
+  private static QueryBuilder createHasParentFilter(BoolQueryBuilder permissionFilter) {
     return JoinQueryBuilders.hasParentQuery(
       TYPE_AUTHORIZATION,
-      QueryBuilders.boolQuery().filter(filter),
+      QueryBuilders.boolQuery().filter(permissionFilter),
       false);
   }
 }
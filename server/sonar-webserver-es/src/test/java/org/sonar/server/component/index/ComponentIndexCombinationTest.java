@@ -24,8 +24,10 @@ import org.junit.Test;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.db.component.ComponentDto;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 public class ComponentIndexCombinationTest extends ComponentIndexTest {
 
@@ -51,6 +53,29 @@ public class ComponentIndexCombinationTest extends ComponentIndexTest {
     assertSearchResults(SuggestionQuery.builder().setQuery("struts").setQualifiers(singletonList(Qualifiers.PROJECT)).build(), project);
   }
 
+  @Test
+  public void do_not_return_nor_count_components_of_other_qualifiers() {
+    ComponentDto project = indexProject("struts", "Apache Struts");
+    IntStream.rangeClosed(1, 10).forEach(i -> indexFile(project, "src/main/java/Struts" + i + ".java", "Struts" + i + ".java"));
+
+    ComponentIndexResults results = index.searchSuggestions(SuggestionQuery.builder().setQuery("struts").setQualifiers(singletonList(Qualifiers.PROJECT)).build(),
+      features.get());
+
+    assertThat(results.getQualifiers())
+      .extracting(ComponentHitsPerQualifier::getQualifier, ComponentHitsPerQualifier::getTotalHits)
+      .containsExactly(tuple(Qualifiers.PROJECT, 1L));
+  }
+
+  @Test
+  public void return_empty_results_if_no_qualifier_is_requested() {
+    ComponentDto project = indexProject("struts", "Apache Struts");
+    indexFile(project, "src/main/java/StrutsManager.java", "StrutsManager.java");
+
+    ComponentIndexResults results = index.searchSuggestions(SuggestionQuery.builder().setQuery("struts").setQualifiers(emptyList()).build(), features.get());
+
+    assertThat(results.isEmpty()).isTrue();
+  }
+
   @Test
   public void should_limit_the_number_of_results() {
     IntStream.rangeClosed(0, 10).forEach(i -> indexProject("sonarqube" + i, "SonarQube" + i));
@@ -0,0 +1,136 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue.index;
+
+import java.util.Map;
+import java.util.TimeZone;
+import org.elasticsearch.action.search.SearchResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.impl.utils.TestSystem2;
+import org.sonar.db.DbTester;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.server.es.EsTester;
+import org.sonar.server.es.Facets;
+import org.sonar.server.es.SearchOptions;
+import org.sonar.server.permission.index.IndexPermissions;
+import org.sonar.server.permission.index.PermissionIndexerTester;
+import org.sonar.server.permission.index.WebAuthorizationTypeSupport;
+import org.sonar.server.tester.UserSessionRule;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.sonar.api.resources.Qualifiers.PROJECT;
+import static org.sonar.api.rule.Severity.BLOCKER;
+import static org.sonar.api.rule.Severity.MAJOR;
+import static org.sonar.db.component.ComponentTesting.newFileDto;
+import static org.sonar.db.component.ComponentTesting.newPrivateProjectDto;
+import static org.sonar.db.organization.OrganizationTesting.newOrganizationDto;
+import static org.sonar.server.issue.IssueDocTesting.newDoc;
+import static org.sonar.server.issue.index.IssueIndexDefinition.TYPE_ISSUE;
+
+public class IssueFacetCacheTest {
+
+  @Rule
+  public EsTester es = EsTester.create();
+  @Rule
+  public UserSessionRule userSession = UserSessionRule.standalone();
+  private TestSystem2 system2 = new TestSystem2().setNow(1_500_000_000_000L);
+  @Rule
+  public DbTester db = DbTester.create(system2);
+
+  private IssueIndexGeneration indexGeneration = new IssueIndexGeneration();
+  private IssueIndexer issueIndexer = new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()), indexGeneration);
+  private PermissionIndexerTester authorizationIndexer = new PermissionIndexerTester(es, issueIndexer);
+  private ComponentDto project = newPrivateProjectDto(newOrganizationDto(), "P1");
+  private ComponentDto file = newFileDto(project, null);
+
+  private IssueFacetCache underTest = new IssueFacetCache(new MapSettings().asConfig(), indexGeneration, system2);
+  private IssueIndex issueIndex = new IssueIndex(es.client(), system2, userSession, new WebAuthorizationTypeSupport(userSession), underTest);
+
+  @Test
+  public void facets_are_not_computed_again_when_browsing_pages() {
+    indexIssues(newDoc("I1", file).setSeverity(MAJOR), newDoc("I2", file).setSeverity(BLOCKER));
+    searchSeverities(1);
+    // not indexed through IssueIndexer, so cached facets are not discarded
+    es.putDocuments(TYPE_ISSUE, newDoc("I3", file).setSeverity(MAJOR));
+
+    SearchResponse response = searchSeverities(2);
+
+    assertThat(response.getHits().getTotalHits()).isEqualTo(3L);
+    assertThat(response.getHits().getHits()).hasSize(1);
+    assertThat(severitiesOf(response)).containsOnly(entry(MAJOR, 1L), entry(BLOCKER, 1L));
+    assertThat(underTest.getMissCount()).isEqualTo(1L);
+    assertThat(underTest.getHitCount()).isEqualTo(1L);
+    assertThat(underTest.getSize()).isEqualTo(1);
+  }
+
+  @Test
+  public void facets_are_computed_again_when_issues_are_indexed() {
+    indexIssues(newDoc("I1", file).setSeverity(MAJOR));
+    searchSeverities(1);
+
+    indexIssues(newDoc("I2", file).setSeverity(BLOCKER));
+
+    assertThat(severitiesOf(searchSeverities(1))).containsOnly(entry(MAJOR, 1L), entry(BLOCKER, 1L));
+    assertThat(underTest.getMissCount()).isEqualTo(2L);
+    assertThat(underTest.getHitCount()).isZero();
+  }
+
+  @Test
+  public void facets_are_computed_again_when_entry_has_expired() {
+    indexIssues(newDoc("I1", file).setSeverity(MAJOR));
+    searchSeverities(1);
+    es.putDocuments(TYPE_ISSUE, newDoc("I2", file).setSeverity(BLOCKER));
+
+    system2.setNow(system2.now() + 10_000L);
+
+    assertThat(severitiesOf(searchSeverities(1))).containsOnly(entry(MAJOR, 1L), entry(BLOCKER, 1L));
+    assertThat(underTest.getMissCount()).isEqualTo(2L);
+  }
+
+  @Test
+  public void facets_are_not_cached_when_cache_size_is_zero() {
+    underTest = new IssueFacetCache(new MapSettings().setProperty(IssueFacetCache.SIZE_PROPERTY, 0).asConfig(), indexGeneration, system2);
+    issueIndex = new IssueIndex(es.client(), system2, userSession, new WebAuthorizationTypeSupport(userSession), underTest);
+    indexIssues(newDoc("I1", file).setSeverity(MAJOR));
+    searchSeverities(1);
+    es.putDocuments(TYPE_ISSUE, newDoc("I2", file).setSeverity(BLOCKER));
+
+    assertThat(severitiesOf(searchSeverities(1))).containsOnly(entry(MAJOR, 1L), entry(BLOCKER, 1L));
+    assertThat(underTest.getSize()).isZero();
+  }
+
+  private SearchResponse searchSeverities(int page) {
+    return issueIndex.search(IssueQuery.builder().build(), new SearchOptions().setPage(page, 1).addFacets(singletonList("severities")));
+  }
+
+  private static Map<String, Long> severitiesOf(SearchResponse response) {
+    return new Facets(response, TimeZone.getDefault()).get("severities");
+  }
+
+  private void indexIssues(IssueDoc... issues) {
+    issueIndexer.index(asList(issues).iterator());
+    authorizationIndexer.allow(new IndexPermissions(project.uuid(), PROJECT).allowAnyone());
+  }
+}
@@ -44,7 +44,7 @@ public class FooIndex {
       .setTypes(TYPE_AUTHORIZATION.getType())
       .setQuery(QueryBuilders.boolQuery()
         .must(QueryBuilders.termQuery(FooIndexDefinition.FIELD_PROJECT_UUID, projectUuid))
-        .filter(authorizationTypeSupport.createQueryFilter()))
+        .filter(authorizationTypeSupport.createQueryFilter(TYPE_AUTHORIZATION)))
       .get()
       .getHits();
     List<String> names = Arrays.stream(hits.getHits())
@@ -59,7 +59,7 @@ public class PermissionIndexerTest {
   @Rule
   public UserSessionRule userSession = UserSessionRule.standalone();
 
-  private FooIndex fooIndex = new FooIndex(es.client(), new WebAuthorizationTypeSupport(userSession));
+  private FooIndex fooIndex = new FooIndex(es.client(), new WebAuthorizationTypeSupport(userSession, es.client()));
   private FooIndexer fooIndexer = new FooIndexer(es.client());
   private PermissionIndexer underTest = new PermissionIndexer(db.getDbClient(), es.client(), fooIndexer);
 
@@ -19,22 +19,31 @@
  */
 package org.sonar.server.permission.index;
 
+import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.MatchAllQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
 import org.elasticsearch.join.query.HasParentQueryBuilder;
+import org.elasticsearch.search.SearchHit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.sonar.db.user.GroupDto;
 import org.sonar.db.user.GroupTesting;
+import org.sonar.server.es.EsTester;
 import org.sonar.server.tester.UserSessionRule;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.sonar.server.permission.index.FooIndexDefinition.DESCRIPTOR;
+import static org.sonar.server.permission.index.FooIndexDefinition.TYPE_AUTHORIZATION;
 import static org.sonar.test.JsonAssert.assertJson;
 
 public class WebAuthorizationTypeSupportTest {
 
   @Rule
   public UserSessionRule userSession = UserSessionRule.standalone();
+  @Rule
+  public EsTester es = EsTester.createCustom(new FooIndexDefinition());
 
   private WebAuthorizationTypeSupport underTest = new WebAuthorizationTypeSupport(userSession);
 
@@ -150,4 +159,72 @@ public class WebAuthorizationTypeSupportTest {
         "  }" +
         "}");
   }
+
+  @Test
+  public void createQueryFilter_on_authorization_type_does_not_include_permission_filters_if_user_is_flagged_as_root() {
+    userSession.logIn().setRoot();
+
+    QueryBuilder filter = new WebAuthorizationTypeSupport(userSession, es.client()).createQueryFilter(TYPE_AUTHORIZATION);
+
+    assertThat(filter).isInstanceOf(MatchAllQueryBuilder.class);
+  }
+
+  @Test
+  public void createQueryFilter_on_authorization_type_filters_on_parent_ids_of_projects_user_has_access_to() {
+    GroupDto group = GroupTesting.newGroupDto().setId(10);
+    userSession.logIn().setUserId(1234).setGroups(group);
+    indexPermissions(new IndexPermissions("P1", "TRK").allowAnyone());
+    indexPermissions(new IndexPermissions("P2", "TRK").addUserId(1234));
+    indexPermissions(new IndexPermissions("P3", "TRK").addGroupId(10));
+    indexPermissions(new IndexPermissions("P4", "TRK").addUserId(5678).addGroupId(11));
+
+    BoolQueryBuilder filter = (BoolQueryBuilder) new WebAuthorizationTypeSupport(userSession, es.client()).createQueryFilter(TYPE_AUTHORIZATION);
+
+    TermsQueryBuilder parentIdsFilter = (TermsQueryBuilder) filter.filter().get(0);
+    assertThat(parentIdsFilter.fieldName()).isEqualTo("join_foos#auth");
+    assertThat(parentIdsFilter.values()).containsOnly("auth_P1", "auth_P2", "auth_P3");
+  }
+
+  @Test
+  public void createQueryFilter_on_authorization_type_does_not_match_authorization_documents() {
+    userSession.logIn().setUserId(1234);
+    indexPermissions(new IndexPermissions("P1", "TRK").addUserId(1234));
+    indexPermissions(new IndexPermissions("P2", "TRK").addUserId(5678));
+    FooIndexer fooIndexer = new FooIndexer(es.client());
+    fooIndexer.indexOnAnalysis("P1");
+    fooIndexer.indexOnAnalysis("P2");
+
+    QueryBuilder filter = new WebAuthorizationTypeSupport(userSession, es.client()).createQueryFilter(TYPE_AUTHORIZATION);
+
+    SearchHit[] hits = es.client().prepareSearch(DESCRIPTOR)
+      .setQuery(boolQuery().filter(filter))
+      .get()
+      .getHits()
+      .getHits();
+    assertThat(hits).extracting(SearchHit::getId).containsOnly("P1_bar", "P1_baz");
+  }
+
+  @Test
+  public void createQueryFilter_on_authorization_type_uses_has_parent_query_if_user_has_access_to_too_many_projects() {
+    userSession.anonymous();
+    indexPermissions(new IndexPermissions("P1", "TRK").allowAnyone());
+    indexPermissions(new IndexPermissions("P2", "TRK").allowAnyone());
+
+    QueryBuilder filter = new WebAuthorizationTypeSupport(userSession, es.client(), 1).createQueryFilter(TYPE_AUTHORIZATION);
+
+    assertThat(filter).isInstanceOf(HasParentQueryBuilder.class);
+  }
+
+  @Test
+  public void createQueryFilter_on_authorization_type_uses_has_parent_query_if_no_es_client() {
+    userSession.anonymous();
+
+    QueryBuilder filter = underTest.createQueryFilter(TYPE_AUTHORIZATION);
+
+    assertThat(filter).isInstanceOf(HasParentQueryBuilder.class);
+  }
+
+  private void indexPermissions(IndexPermissions permissions) {
+    es.putDocuments(TYPE_AUTHORIZATION, AuthorizationDoc.fromDto(TYPE_AUTHORIZATION, permissions));
+  }
 }
@@ -0,0 +1,173 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import com.google.common.collect.ListMultimap;
+import com.google.common.hash.Hasher;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.sonar.api.platform.Server;
+import org.sonar.api.server.ws.Request;
+import org.sonar.api.server.ws.Response;
+import org.sonar.api.server.ws.WebService;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.OrgActiveRuleDto;
+import org.sonar.db.qualityprofile.QProfileDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.rule.RuleParamDto;
+import org.sonar.scanner.protocol.input.ScannerInput;
+import org.sonarqube.ws.MediaTypes;
+
+import static com.google.common.base.Strings.nullToEmpty;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Optional.ofNullable;
+import static org.sonar.core.util.stream.MoreCollectors.index;
+import static org.sonar.core.util.stream.MoreCollectors.toList;
+import static org.sonar.core.util.stream.MoreCollectors.toSet;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
+import static org.sonar.server.exceptions.NotFoundException.checkFound;
+import static org.sonar.server.ws.WsUtils.newETagHasher;
+import static org.sonar.server.ws.WsUtils.weakETag;
+import static org.sonar.server.ws.WsUtils.writeNotModifiedIfMatch;
+
+public class ActiveRulesAction implements BatchWsAction {
+
+  private static final String PARAM_PROFILES = "profiles";
+
+  private final DbClient dbClient;
+  private final Server server;
+
+  public ActiveRulesAction(DbClient dbClient, Server server) {
+    this.dbClient = dbClient;
+    this.server = server;
+  }
+
+  @Override
+  public void define(WebService.NewController controller) {
+    WebService.NewAction action = controller.createAction("active_rules")
+      .setDescription("Return the rules activated in the given quality profiles, as a stream of delimited protobuf messages.<br/>" +
+        "The response has an ETag, which changes when the rules of one of the profiles are updated. " +
+        "When it matches the header If-None-Match of the request, HTTP status 304 is returned without body.")
+      .setSince("8.4")
+      .setInternal(true)
+      .setHandler(this);
+
+    action
+      .createParam(PARAM_PROFILES)
+      .setRequired(true)
+      .setDescription("Comma-separated list of quality profile keys")
+      .setExampleValue("AU-Tpxb--iU5OvuD2FLy,AU-TpxcA-iU5OvuD2FLz");
+  }
+
+  @Override
+  public void handle(Request request, Response response) throws Exception {
+    List<String> profileKeys = request.mandatoryParamAsStrings(PARAM_PROFILES);
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      Map<String, QProfileDto> profilesByKey = dbClient.qualityProfileDao().selectByUuids(dbSession, profileKeys).stream()
+        .collect(uniqueIndex(QProfileDto::getKee));
+      profileKeys.forEach(key -> checkFound(profilesByKey.get(key), "Quality profile '%s' does not exist", key));
+
+      String eTag = computeETag(dbSession, profileKeys, profilesByKey);
+      if (writeNotModifiedIfMatch(request, response, eTag)) {
+        return;
+      }
+
+      response.stream().setMediaType(MediaTypes.PROTOBUF);
+      OutputStream output = response.stream().output();
+      ScannerInput.ActiveRule.Builder builder = ScannerInput.ActiveRule.newBuilder();
+      for (String profileKey : profileKeys) {
+        writeActiveRules(dbSession, profilesByKey.get(profileKey), builder, output);
+      }
+    }
+  }
+
+  /**
+   * Activations and deactivations update the date {@link QProfileDto#getRulesUpdatedAt()} of the profile. Custom rules
+   * and the parameters of their active rules can be updated without touching the profiles, which updates the dates of
+   * the rules. Plugins are installed or updated with a restart of the server.
+   */
+  private String computeETag(DbSession dbSession, List<String> profileKeys, Map<String, QProfileDto> profilesByKey) {
+    Hasher hasher = newETagHasher()
+      .putLong(server.getStartedAt().getTime())
+      .putLong(dbClient.activeRuleDao().selectMaxUpdatedAtByProfileUuids(dbSession, profileKeys).orElse(0L));
+    for (String profileKey : profileKeys) {
+      hasher
+        .putString(profileKey, UTF_8)
+        .putString(Objects.toString(profilesByKey.get(profileKey).getRulesUpdatedAt(), ""), UTF_8);
+    }
+    return weakETag(hasher);
+  }
+
+  private void writeActiveRules(DbSession dbSession, QProfileDto profile, ScannerInput.ActiveRule.Builder builder, OutputStream output) {
+    List<OrgActiveRuleDto> activeRules = dbClient.activeRuleDao().selectByProfile(dbSession, profile);
+    Set<Integer> ruleIds = activeRules.stream().map(OrgActiveRuleDto::getRuleId).collect(toSet());
+    Map<Integer, RuleDefinitionDto> rulesById = dbClient.ruleDao().selectDefinitionByIds(dbSession, ruleIds).stream()
+      .collect(uniqueIndex(RuleDefinitionDto::getId));
+    Set<Integer> templateIds = rulesById.values().stream()
+      .map(RuleDefinitionDto::getTemplateId)
+      .filter(Objects::nonNull)
+      .collect(toSet());
+    Map<Integer, RuleDefinitionDto> templatesById = dbClient.ruleDao().selectDefinitionByIds(dbSession, templateIds).stream()
+      .collect(uniqueIndex(RuleDefinitionDto::getId));
+    ListMultimap<Integer, RuleParamDto> ruleParamsByRuleId = dbClient.ruleDao().selectRuleParamsByRuleIds(dbSession, ruleIds).stream()
+      .collect(index(RuleParamDto::getRuleId));
+    ListMultimap<Integer, ActiveRuleParamDto> activeParamsByActiveRuleId = dbClient.activeRuleDao()
+      .selectParamsByActiveRuleIds(dbSession, activeRules.stream().map(OrgActiveRuleDto::getId).collect(toList()))
+      .stream()
+      .collect(index(ActiveRuleParamDto::getActiveRuleId));
+
+    for (OrgActiveRuleDto activeRule : activeRules) {
+      RuleDefinitionDto rule = rulesById.get(activeRule.getRuleId());
+      builder
+        .setQprofileKey(profile.getKee())
+        .setRuleRepository(rule.getRepositoryKey())
+        .setRuleKey(rule.getRuleKey())
+        .setSeverity(activeRule.getSeverityString())
+        .setCreatedAt(activeRule.getCreatedAt())
+        .setUpdatedAt(activeRule.getUpdatedAt());
+      ofNullable(rule.getName()).ifPresent(builder::setName);
+      ofNullable(rule.getLanguage()).ifPresent(builder::setLanguage);
+      ofNullable(rule.getConfigKey()).ifPresent(builder::setInternalKey);
+      ofNullable(rule.getTemplateId()).map(templatesById::get).ifPresent(template -> builder.setTemplateRuleKey(template.getKey().toString()));
+
+      // parameters without value are sent as empty strings, as api/rules/search does
+      Map<String, String> params = new HashMap<>();
+      ruleParamsByRuleId.get(rule.getId())
+        .forEach(param -> params.put(param.getName(), nullToEmpty(param.getDefaultValue())));
+      activeParamsByActiveRuleId.get(activeRule.getId())
+        .forEach(param -> params.put(param.getKey(), nullToEmpty(param.getValue())));
+      builder.putAllParams(params);
+
+      try {
+        builder.build().writeDelimitedTo(output);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to serialize active rule", e);
+      }
+      builder.clear();
+    }
+  }
+}
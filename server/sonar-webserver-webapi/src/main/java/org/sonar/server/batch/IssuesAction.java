@@ -23,9 +23,13 @@ import com.google.common.base.Splitter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.server.ws.Change;
@@ -36,7 +40,6 @@ import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.issue.IssueDto;
-import org.sonar.db.user.UserDto;
 import org.sonar.scanner.protocol.input.ScannerInput;
 import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.user.UserSession;
@@ -45,8 +48,7 @@ import org.sonarqube.ws.MediaTypes;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.String.format;
 import static java.util.Optional.ofNullable;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static org.sonar.api.web.UserRole.USER;
 import static org.sonar.server.ws.KeyExamples.KEY_BRANCH_EXAMPLE_001;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
@@ -55,6 +57,8 @@ public class IssuesAction implements BatchWsAction {
 
   private static final String PARAM_KEY = "key";
   private static final String PARAM_BRANCH = "branch";
+  private static final String PARAM_CHANGED_SINCE = "changedSince";
+  private static final int BATCH_SIZE = 1_000;
   private static final Splitter MODULE_PATH_SPLITTER = Splitter.on('.').trimResults().omitEmptyStrings();
 
   private final DbClient dbClient;
@@ -73,7 +77,9 @@ public class IssuesAction implements BatchWsAction {
       .setDescription("Return open issues")
       .setResponseExample(getClass().getResource("issues-example.proto"))
       .setSince("5.1")
-      .setChangelog(new Change("7.6", String.format("The use of module keys in parameter '%s' is deprecated", PARAM_KEY)))
+      .setChangelog(
+        new Change("7.6", String.format("The use of module keys in parameter '%s' is deprecated", PARAM_KEY)),
+        new Change("8.4", String.format("Parameter '%s' is added", PARAM_CHANGED_SINCE)))
       .setInternal(true)
       .setHandler(this);
 
@@ -88,44 +94,86 @@ public class IssuesAction implements BatchWsAction {
       .setSince("6.6")
       .setDescription("Branch key")
       .setExampleValue(KEY_BRANCH_EXAMPLE_001);
+
+    action
+      .createParam(PARAM_CHANGED_SINCE)
+      .setSince("8.4")
+      .setDescription("Only return the issues updated after this date, including closed ones. " +
+        "When not set, all the issues which are not closed are returned.")
+      .setExampleValue("2020-04-01T13:00:00+0100");
   }
 
   @Override
   public void handle(Request request, Response response) throws Exception {
-    try (DbSession dbSession = dbClient.openSession(false)) {
+    try (DbSession dbSession = dbClient.openSession(false);
+      DbSession userDbSession = dbClient.openSession(false)) {
       ComponentDto component = loadComponent(dbSession, request);
       userSession.checkComponentPermission(USER, component);
       Map<String, String> keysByUUid = keysByUUid(dbSession, component);
+      Long changedSince = ofNullable(request.paramAsDateTime(PARAM_CHANGED_SINCE)).map(Date::getTime).orElse(null);
 
-      ScannerInput.ServerIssue.Builder responseBuilder = ScannerInput.ServerIssue.newBuilder();
       response.stream().setMediaType(MediaTypes.PROTOBUF);
-      OutputStream output = response.stream().output();
-
-      List<IssueDto> issueDtos = new ArrayList<>();
+      IssueWriter writer = new IssueWriter(userDbSession, keysByUUid, response.stream().output());
       switch (component.scope()) {
         case Scopes.PROJECT:
-          issueDtos.addAll(dbClient.issueDao().selectNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(dbSession, component));
+          dbClient.issueDao().scrollByModuleOrProjectForScanner(dbSession, component, changedSince, writer);
           break;
         case Scopes.FILE:
-          issueDtos.addAll(dbClient.issueDao().selectNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(dbSession, component.uuid()));
+          dbClient.issueDao().scrollByComponentUuidForScanner(dbSession, component.uuid(), changedSince, writer);
           break;
         default:
           // only projects, modules and files are supported. Other types of components are not allowed.
           throw new IllegalArgumentException(format("Component of scope '%s' is not allowed", component.scope()));
       }
+      writer.flush();
+    }
+  }
 
-      List<String> usersUuids = issueDtos.stream()
-        .filter(issue -> issue.getAssigneeUuid() != null)
-        .map(IssueDto::getAssigneeUuid)
-        .collect(toList());
+  /**
+   * Writes the scrolled issues to the response by batches, so that logins of assignees can be loaded with a single
+   * request per batch while keeping memory usage independent of the number of issues.
+   * Logins are loaded with a dedicated session because some drivers do not allow to execute a statement on a connection
+   * which is streaming a result set.
+   */
+  private class IssueWriter implements ResultHandler<IssueDto> {
+    private final DbSession userDbSession;
+    private final Map<String, String> keysByUUid;
+    private final OutputStream output;
+    private final ScannerInput.ServerIssue.Builder issueBuilder = ScannerInput.ServerIssue.newBuilder();
+    private final List<IssueDto> batch = new ArrayList<>(BATCH_SIZE);
+    private final Map<String, String> userLoginsByUserUuids = new HashMap<>();
+
+    private IssueWriter(DbSession userDbSession, Map<String, String> keysByUUid, OutputStream output) {
+      this.userDbSession = userDbSession;
+      this.keysByUUid = keysByUUid;
+      this.output = output;
+    }
+
+    @Override
+    public void handleResult(ResultContext<? extends IssueDto> resultContext) {
+      batch.add(resultContext.getResultObject());
+      if (batch.size() >= BATCH_SIZE) {
+        flush();
+      }
+    }
 
-      Map<String, String> userLoginsByUserUuids = dbClient.userDao().selectByUuids(dbSession, usersUuids)
-        .stream().collect(toMap(UserDto::getUuid, UserDto::getLogin));
+    private void flush() {
+      Set<String> unknownUserUuids = batch.stream()
+        .map(IssueDto::getAssigneeUuid)
+        .filter(uuid -> uuid != null && !userLoginsByUserUuids.containsKey(uuid))
+        .collect(toSet());
+      if (!unknownUserUuids.isEmpty()) {
+        dbClient.userDao().selectByUuids(userDbSession, unknownUserUuids)
+          .forEach(user -> userLoginsByUserUuids.put(user.getUuid(), user.getLogin()));
+        // do not look again for users which do not exist anymore
+        unknownUserUuids.forEach(uuid -> userLoginsByUserUuids.putIfAbsent(uuid, null));
+      }
 
-      issueDtos.forEach(issue -> {
+      batch.forEach(issue -> {
         issue.setAssigneeUuid(userLoginsByUserUuids.get(issue.getAssigneeUuid()));
-        handleIssue(issue, responseBuilder, keysByUUid, output);
+        handleIssue(issue, issueBuilder, keysByUUid, output);
       });
+      batch.clear();
     }
   }
 
@@ -26,6 +26,7 @@ import org.sonar.api.server.ws.Change;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
+import org.sonar.db.component.ComponentDto;
 import org.sonar.scanner.protocol.input.FileData;
 import org.sonar.scanner.protocol.input.MultiModuleProjectRepository;
 import org.sonar.scanner.protocol.input.ProjectRepositories;
@@ -37,6 +38,7 @@ import static java.util.Optional.ofNullable;
 import static org.sonar.server.ws.KeyExamples.KEY_BRANCH_EXAMPLE_001;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
 import static org.sonar.server.ws.KeyExamples.KEY_PULL_REQUEST_EXAMPLE_001;
+import static org.sonar.server.ws.WsUtils.writeNotModifiedIfMatch;
 import static org.sonar.server.ws.WsUtils.writeProtobuf;
 
 public class ProjectAction implements BatchWsAction {
@@ -58,9 +60,11 @@ public class ProjectAction implements BatchWsAction {
       .setDescription("Return project repository")
       .setResponseExample(getClass().getResource("project-example.json"))
       .setSince("4.5")
-      .setChangelog(new Change("7.6", String.format("The use of module keys in parameter '%s' is deprecated", PARAM_KEY)))
-      .setChangelog(new Change("7.6", "Stop returning settings"))
-      .setChangelog(new Change("7.7", "Stop supporting preview mode, removed timestamp and last analysis date"))
+      .setChangelog(
+        new Change("7.6", String.format("The use of module keys in parameter '%s' is deprecated", PARAM_KEY)),
+        new Change("7.6", "Stop returning settings"),
+        new Change("7.7", "Stop supporting preview mode, removed timestamp and last analysis date"),
+        new Change("8.4", "Return an ETag header and support conditional requests with If-None-Match"))
       .setInternal(true)
       .setHandler(this);
 
@@ -90,11 +94,19 @@ public class ProjectAction implements BatchWsAction {
 
   @Override
   public void handle(Request wsRequest, Response wsResponse) throws Exception {
-    ProjectRepositories data = projectDataLoader.load(ProjectDataQuery.create()
+    ProjectDataQuery query = ProjectDataQuery.create()
       .setProjectKey(wsRequest.mandatoryParam(PARAM_KEY))
       .setProfileName(wsRequest.param(PARAM_PROFILE))
       .setBranch(wsRequest.param(PARAM_BRANCH))
-      .setPullRequest(wsRequest.param(PARAM_PULL_REQUEST)));
+      .setPullRequest(wsRequest.param(PARAM_PULL_REQUEST));
+
+    ComponentDto branchOrMainModule = projectDataLoader.loadBranchOrMainModule(query);
+    String eTag = projectDataLoader.loadVersion(branchOrMainModule);
+    if (eTag != null && writeNotModifiedIfMatch(wsRequest, wsResponse, eTag)) {
+      return;
+    }
+
+    ProjectRepositories data = projectDataLoader.load(branchOrMainModule);
 
     WsProjectResponse projectResponse = buildResponse(data);
     writeProtobuf(projectResponse, wsRequest, wsResponse);
@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.server.ServerSide;
 import org.sonar.api.web.UserRole;
@@ -39,7 +40,10 @@ import org.sonar.server.component.ComponentFinder;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.user.UserSession;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.sonar.server.exceptions.BadRequestException.checkRequest;
+import static org.sonar.server.ws.WsUtils.newETagHasher;
+import static org.sonar.server.ws.WsUtils.weakETag;
 
 @ServerSide
 public class ProjectDataLoader {
@@ -55,18 +59,14 @@ public class ProjectDataLoader {
   }
 
   public ProjectRepositories load(ProjectDataQuery query) {
-    try (DbSession session = dbClient.openSession(false)) {
-      String projectKey = query.getProjectKey();
-      String branch = query.getBranch();
-      String pullRequest = query.getPullRequest();
-      ComponentDto project = componentFinder.getByKey(session, projectKey);
-      checkRequest(project.isRootProject(), "Key '%s' belongs to a component which is not a Project", projectKey);
-      boolean hasScanPerm = userSession.hasComponentPermission(UserRole.SCAN, project) ||
-        userSession.hasPermission(OrganizationPermission.SCAN, project.getOrganizationUuid());
-      checkPermission(hasScanPerm);
-      ComponentDto branchOrMainModule = (branch == null && pullRequest == null) ? project
-        : componentFinder.getByKeyAndOptionalBranchOrPullRequest(session, projectKey, branch, pullRequest);
+    return load(loadBranchOrMainModule(query));
+  }
 
+  /**
+   * @param branchOrMainModule as returned by {@link #loadBranchOrMainModule(ProjectDataQuery)}
+   */
+  public ProjectRepositories load(ComponentDto branchOrMainModule) {
+    try (DbSession session = dbClient.openSession(false)) {
       List<ComponentDto> modulesTree = dbClient.componentDao().selectEnabledDescendantModules(session, branchOrMainModule.uuid());
 
       List<FilePathWithHashDto> files = searchFilesWithHashAndRevision(session, branchOrMainModule);
@@ -85,6 +85,45 @@ public class ProjectDataLoader {
     }
   }
 
+  /**
+   * Version of the data returned by {@link #load(ComponentDto)}. Hashes and revisions of files are only changed when
+   * an analysis is processed, so the version is computed from the last analysis of the branch and from the keys of
+   * components, which can be updated without any analysis. Loading the version requires a single row request,
+   * instead of loading all the files of the branch.
+   *
+   * @param branchOrMainModule as returned by {@link #loadBranchOrMainModule(ProjectDataQuery)}
+   * @return {@code null} if the branch has never been analyzed
+   */
+  @CheckForNull
+  public String loadVersion(ComponentDto branchOrMainModule) {
+    try (DbSession session = dbClient.openSession(false)) {
+      return dbClient.snapshotDao().selectLastAnalysisByRootComponentUuid(session, branchOrMainModule.uuid())
+        .map(analysis -> weakETag(newETagHasher()
+          .putString(branchOrMainModule.getDbKey(), UTF_8)
+          .putChar(':')
+          .putString(analysis.getUuid(), UTF_8)))
+        .orElse(null);
+    }
+  }
+
+  /**
+   * Loads the project, branch or pull request requested by the query, if the user is allowed to analyze it.
+   */
+  public ComponentDto loadBranchOrMainModule(ProjectDataQuery query) {
+    String projectKey = query.getProjectKey();
+    String branch = query.getBranch();
+    String pullRequest = query.getPullRequest();
+    try (DbSession session = dbClient.openSession(false)) {
+      ComponentDto project = componentFinder.getByKey(session, projectKey);
+      checkRequest(project.isRootProject(), "Key '%s' belongs to a component which is not a Project", projectKey);
+      boolean hasScanPerm = userSession.hasComponentPermission(UserRole.SCAN, project) ||
+        userSession.hasPermission(OrganizationPermission.SCAN, project.getOrganizationUuid());
+      checkPermission(hasScanPerm);
+      return (branch == null && pullRequest == null) ? project
+        : componentFinder.getByKeyAndOptionalBranchOrPullRequest(session, projectKey, branch, pullRequest);
+    }
+  }
+
   private List<FilePathWithHashDto> searchFilesWithHashAndRevision(DbSession session, @Nullable ComponentDto module) {
     if (module == null) {
       return Collections.emptyList();
@@ -73,7 +73,9 @@ public class ListAction implements BranchWsAction {
       .setDescription("List the branches of a project or application.<br/>" +
         "Requires 'Browse' or 'Execute analysis' rights on the specified project or application.")
       .setResponseExample(Resources.getResource(getClass(), "list-example.json"))
-      .setChangelog(new Change("7.2", "Application can be used on this web service"))
+      .setChangelog(
+        new Change("7.2", "Application can be used on this web service"),
+        new Change("8.4", "Return an ETag header and support conditional requests with If-None-Match"))
       .setHandler(this);
 
     addProjectParam(action);
@@ -102,7 +104,7 @@ public class ListAction implements BranchWsAction {
       ProjectBranches.ListWsResponse.Builder protobufResponse = ProjectBranches.ListWsResponse.newBuilder();
       branches.forEach(b -> addBranch(protobufResponse, b, qualityGateMeasuresByComponentUuids.get(b.getUuid()),
         analysisDateByBranchUuid.get(b.getUuid())));
-      WsUtils.writeProtobuf(protobufResponse.build(), request, response);
+      WsUtils.writeProtobufIfNoneMatch(protobufResponse.build(), request, response);
     }
   }
 
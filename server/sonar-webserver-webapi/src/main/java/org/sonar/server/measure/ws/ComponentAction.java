@@ -73,7 +73,7 @@ import static org.sonar.server.measure.ws.SnapshotDtoToWsPeriod.snapshotToWsPeri
 import static org.sonar.server.ws.KeyExamples.KEY_BRANCH_EXAMPLE_001;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
 import static org.sonar.server.ws.KeyExamples.KEY_PULL_REQUEST_EXAMPLE_001;
-import static org.sonar.server.ws.WsUtils.writeProtobuf;
+import static org.sonar.server.ws.WsUtils.writeProtobufIfNoneMatch;
 
 public class ComponentAction implements MeasuresWsAction {
   private static final Set<String> QUALIFIERS_ELIGIBLE_FOR_BEST_VALUE = ImmutableSortedSet.of(Qualifiers.FILE, Qualifiers.UNIT_TEST_FILE);
@@ -96,6 +96,7 @@ public class ComponentAction implements MeasuresWsAction {
       .setResponseExample(getClass().getResource("component-example.json"))
       .setSince("5.4")
       .setChangelog(
+        new Change("8.4", "Return an ETag header and support conditional requests with If-None-Match"),
         new Change("8.1", "the response field periods under measures field is deprecated. Use period instead."),
         new Change("8.1", "the response field periods is deprecated. Use period instead."),
         new Change("7.6", format("The use of module keys in parameter '%s' is deprecated", PARAM_COMPONENT)),
@@ -127,7 +128,7 @@ public class ComponentAction implements MeasuresWsAction {
   @Override
   public void handle(Request request, Response response) throws Exception {
     ComponentWsResponse componentWsResponse = doHandle(toComponentWsRequest(request));
-    writeProtobuf(componentWsResponse, request, response);
+    writeProtobufIfNoneMatch(componentWsResponse, request, response);
   }
 
   private ComponentWsResponse doHandle(ComponentRequest request) {
@@ -54,7 +54,7 @@ import static org.sonar.server.qualitygate.ws.QualityGatesWsParameters.PARAM_PRO
 import static org.sonar.server.qualitygate.ws.QualityGatesWsParameters.PARAM_PROJECT_KEY;
 import static org.sonar.server.qualitygate.ws.QualityGatesWsParameters.PARAM_PULL_REQUEST;
 import static org.sonar.server.user.AbstractUserSession.insufficientPrivilegesException;
-import static org.sonar.server.ws.WsUtils.writeProtobuf;
+import static org.sonar.server.ws.WsUtils.writeProtobufIfNoneMatch;
 
 public class ProjectStatusAction implements QualityGatesWsAction {
   private static final String QG_STATUSES_ONE_LINE = Arrays.stream(ProjectStatusResponse.Status.values())
@@ -90,6 +90,7 @@ public class ProjectStatusAction implements QualityGatesWsAction {
       .setSince("5.3")
       .setHandler(this)
       .setChangelog(
+        new Change("8.4", "Return an ETag header and support conditional requests with If-None-Match"),
         new Change("7.7", "The parameters 'branch' and 'pullRequest' were added"),
         new Change("7.6", "The field 'warning' is deprecated from the response"),
         new Change("6.4", "The field 'ignoredConditions' is added to the response"));
@@ -135,7 +136,7 @@ public class ProjectStatusAction implements QualityGatesWsAction {
 
     try (DbSession dbSession = dbClient.openSession(false)) {
       ProjectStatusResponse projectStatusResponse = doHandle(dbSession, analysisId, projectId, projectKey, branchKey, pullRequestId);
-      writeProtobuf(projectStatusResponse, request, response);
+      writeProtobufIfNoneMatch(projectStatusResponse, request, response);
     }
   }
 
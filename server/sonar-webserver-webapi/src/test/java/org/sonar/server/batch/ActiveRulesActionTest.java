@@ -0,0 +1,191 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.batch;
+
+import java.util.Date;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.platform.Server;
+import org.sonar.api.utils.System2;
+import org.sonar.core.util.CloseableIterator;
+import org.sonar.core.util.Protobuf;
+import org.sonar.db.DbTester;
+import org.sonar.db.qualityprofile.ActiveRuleDto;
+import org.sonar.db.qualityprofile.ActiveRuleParamDto;
+import org.sonar.db.qualityprofile.QProfileDto;
+import org.sonar.db.rule.RuleDefinitionDto;
+import org.sonar.db.rule.RuleParamDto;
+import org.sonar.scanner.protocol.input.ScannerInput.ActiveRule;
+import org.sonar.server.exceptions.NotFoundException;
+import org.sonar.server.ws.TestResponse;
+import org.sonar.server.ws.WsActionTester;
+
+import static com.google.common.collect.Lists.newArrayList;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ActiveRulesActionTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+
+  private Server server = mock(Server.class);
+
+  private WsActionTester ws = new WsActionTester(new ActiveRulesAction(db.getDbClient(), server));
+
+  @Test
+  public void return_active_rules_of_profiles() {
+    when(server.getStartedAt()).thenReturn(new Date());
+    QProfileDto profile1 = db.qualityProfiles().insert(db.getDefaultOrganization(), p -> p.setLanguage("java"));
+    QProfileDto profile2 = db.qualityProfiles().insert(db.getDefaultOrganization(), p -> p.setLanguage("js"));
+    RuleDefinitionDto template = db.rules().insert(r -> r.setLanguage("java").setIsTemplate(true));
+    RuleDefinitionDto rule1 = db.rules().insert(r -> r.setLanguage("java").setConfigKey("internal").setTemplateId(template.getId()));
+    RuleParamDto overriddenParam = db.rules().insertRuleParam(rule1, p -> p.setName("overridden").setDefaultValue("default"));
+    db.rules().insertRuleParam(rule1, p -> p.setName("defaulted").setDefaultValue("default"));
+    RuleDefinitionDto rule2 = db.rules().insert(r -> r.setLanguage("js"));
+    ActiveRuleDto activeRule1 = db.qualityProfiles().activateRule(profile1, rule1, a -> a.setSeverity("BLOCKER"));
+    db.getDbClient().activeRuleDao().insertParam(db.getSession(), activeRule1, ActiveRuleParamDto.createFor(overriddenParam).setValue("custom"));
+    db.qualityProfiles().activateRule(profile2, rule2, a -> a.setSeverity("MINOR"));
+    db.commit();
+
+    List<ActiveRule> activeRules = call(ws.newRequest().setParam("profiles", profile1.getKee() + "," + profile2.getKee()).execute());
+
+    assertThat(activeRules)
+      .extracting(ActiveRule::getQprofileKey, ActiveRule::getRuleRepository, ActiveRule::getRuleKey, ActiveRule::getSeverity, ActiveRule::getLanguage)
+      .containsExactly(
+        tuple(profile1.getKee(), rule1.getRepositoryKey(), rule1.getRuleKey(), "BLOCKER", "java"),
+        tuple(profile2.getKee(), rule2.getRepositoryKey(), rule2.getRuleKey(), "MINOR", "js"));
+    ActiveRule first = activeRules.get(0);
+    assertThat(first.getName()).isEqualTo(rule1.getName());
+    assertThat(first.getInternalKey()).isEqualTo("internal");
+    assertThat(first.getTemplateRuleKey()).isEqualTo(template.getKey().toString());
+    assertThat(first.getCreatedAt()).isEqualTo(activeRule1.getCreatedAt());
+    assertThat(first.getUpdatedAt()).isEqualTo(activeRule1.getUpdatedAt());
+    assertThat(first.getParamsMap()).containsOnly(entry("overridden", "custom"), entry("defaulted", "default"));
+    assertThat(activeRules.get(1).hasTemplateRuleKey()).isFalse();
+    assertThat(activeRules.get(1).getParamsMap()).isEmpty();
+  }
+
+  @Test
+  public void return_parameters_without_value_as_empty_strings() {
+    when(server.getStartedAt()).thenReturn(new Date());
+    QProfileDto profile = db.qualityProfiles().insert(db.getDefaultOrganization(), p -> p.setLanguage("java"));
+    RuleDefinitionDto rule = db.rules().insert(r -> r.setLanguage("java"));
+    db.rules().insertRuleParam(rule, p -> p.setName("noDefault").setDefaultValue(null));
+    RuleParamDto emptiedParam = db.rules().insertRuleParam(rule, p -> p.setName("emptied").setDefaultValue("default"));
+    ActiveRuleDto activeRule = db.qualityProfiles().activateRule(profile, rule);
+    db.getDbClient().activeRuleDao().insertParam(db.getSession(), activeRule, ActiveRuleParamDto.createFor(emptiedParam).setValue(null));
+    db.commit();
+
+    List<ActiveRule> activeRules = call(ws.newRequest().setParam("profiles", profile.getKee()).execute());
+
+    assertThat(activeRules).hasSize(1);
+    assertThat(activeRules.get(0).getParamsMap()).containsOnly(entry("noDefault", ""), entry("emptied", ""));
+  }
+
+  @Test
+  public void return_304_when_rules_of_profiles_did_not_change() {
+    when(server.getStartedAt()).thenReturn(new Date());
+    QProfileDto profile = db.qualityProfiles().insert(db.getDefaultOrganization(), p -> p.setRulesUpdatedAt("2020-04-01T10:00:00+0000"));
+    db.qualityProfiles().activateRule(profile, db.rules().insert());
+
+    TestResponse firstResponse = ws.newRequest().setParam("profiles", profile.getKee()).execute();
+    String eTag = firstResponse.getHeader("ETag");
+    TestResponse response = ws.newRequest()
+      .setParam("profiles", profile.getKee())
+      .setHeader("If-None-Match", eTag)
+      .execute();
+
+    assertThat(eTag).isNotEmpty();
+    assertThat(response.getStatus()).isEqualTo(HTTP_NOT_MODIFIED);
+    assertThat(response.getInput()).isEmpty();
+  }
+
+  @Test
+  public void return_active_rules_when_custom_rule_is_updated() {
+    when(server.getStartedAt()).thenReturn(new Date());
+    QProfileDto profile = db.qualityProfiles().insert(db.getDefaultOrganization(), p -> p.setRulesUpdatedAt("2020-04-01T10:00:00+0000"));
+    RuleDefinitionDto template = db.rules().insert(r -> r.setIsTemplate(true));
+    RuleDefinitionDto customRule = db.rules().insert(r -> r.setTemplateId(template.getId()).setUpdatedAt(1_000L));
+    RuleParamDto param = db.rules().insertRuleParam(customRule, p -> p.setName("max").setDefaultValue("10"));
+    ActiveRuleDto activeRule = db.qualityProfiles().activateRule(profile, customRule);
+    ActiveRuleParamDto activeRuleParam = ActiveRuleParamDto.createFor(param).setValue("10");
+    db.getDbClient().activeRuleDao().insertParam(db.getSession(), activeRule, activeRuleParam);
+    db.commit();
+    String eTag = ws.newRequest().setParam("profiles", profile.getKee()).execute().getHeader("ETag");
+
+    // same changes as api/rules/update on the parameters of a custom rule, profile is not updated
+    db.getDbClient().ruleDao().update(db.getSession(), customRule.setUpdatedAt(2_000L));
+    db.getDbClient().ruleDao().updateRuleParam(db.getSession(), customRule, param.setDefaultValue("20"));
+    db.getDbClient().activeRuleDao().updateParam(db.getSession(), activeRuleParam.setValue("20"));
+    db.commit();
+    TestResponse response = ws.newRequest()
+      .setParam("profiles", profile.getKee())
+      .setHeader("If-None-Match", eTag)
+      .execute();
+
+    assertThat(response.getHeader("ETag")).isNotEqualTo(eTag);
+    assertThat(call(response)).extracting(ActiveRule::getParamsMap).containsExactly(singletonMap("max", "20"));
+  }
+
+  @Test
+  public void return_active_rules_when_rules_of_profiles_changed() {
+    when(server.getStartedAt()).thenReturn(new Date());
+    QProfileDto profile = db.qualityProfiles().insert(db.getDefaultOrganization(), p -> p.setRulesUpdatedAt("2020-04-01T10:00:00+0000"));
+    db.qualityProfiles().activateRule(profile, db.rules().insert());
+    String eTag = ws.newRequest().setParam("profiles", profile.getKee()).execute().getHeader("ETag");
+
+    db.getDbClient().qualityProfileDao().update(db.getSession(), profile.setRulesUpdatedAt("2020-04-02T10:00:00+0000"));
+    db.commit();
+    TestResponse response = ws.newRequest()
+      .setParam("profiles", profile.getKee())
+      .setHeader("If-None-Match", eTag)
+      .execute();
+
+    assertThat(response.getHeader("ETag")).isNotEqualTo(eTag);
+    assertThat(call(response)).hasSize(1);
+  }
+
+  @Test
+  public void fail_if_profile_does_not_exist() {
+    when(server.getStartedAt()).thenReturn(new Date());
+    QProfileDto profile = db.qualityProfiles().insert(db.getDefaultOrganization());
+
+    expectedException.expect(NotFoundException.class);
+    expectedException.expectMessage("Quality profile 'unknown' does not exist");
+
+    ws.newRequest().setParam("profiles", profile.getKee() + ",unknown").execute();
+  }
+
+  private static List<ActiveRule> call(TestResponse response) {
+    try (CloseableIterator<ActiveRule> activeRules = Protobuf.readStream(response.getInputStream(), ActiveRule.parser())) {
+      return newArrayList(activeRules);
+    }
+  }
+}
@@ -51,6 +51,7 @@ import static org.apache.commons.lang.math.RandomUtils.nextInt;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.api.rules.RuleType.BUG;
+import static org.sonar.api.utils.DateUtils.parseDateTime;
 import static org.sonar.db.component.ComponentTesting.newDirectory;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.db.component.ComponentTesting.newModuleDto;
@@ -275,6 +276,32 @@ public class IssuesActionTest {
     );
   }
 
+  @Test
+  public void return_issues_changed_since_date_including_closed_ones() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setUpdatedAt(parseDateTime("2020-01-01T00:00:00+0000").getTime())
+      .setType(randomRuleTypeExceptHotspot()));
+    IssueDto changedIssue = db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setUpdatedAt(parseDateTime("2020-03-01T00:00:00+0000").getTime())
+      .setType(randomRuleTypeExceptHotspot()));
+    IssueDto closedIssue = db.issues().insert(rule, project, file, i -> i.setStatus("CLOSED").setResolution("FIXED")
+      .setUpdatedAt(parseDateTime("2020-03-01T00:00:00+0000").getTime()).setType(randomRuleTypeExceptHotspot()));
+    addPermissionTo(project);
+
+    TestRequest request = tester.newRequest()
+      .setParam("key", project.getKey())
+      .setParam("changedSince", "2020-02-01T00:00:00+0000");
+    try (CloseableIterator<ServerIssue> result = Protobuf.readStream(request.execute().getInputStream(), ServerIssue.parser())) {
+      assertThat(result)
+        .toIterable()
+        .extracting(ServerIssue::getKey, ServerIssue::getStatus)
+        .containsExactlyInAnyOrder(
+          tuple(changedIssue.getKey(), "OPEN"),
+          tuple(closedIssue.getKey(), "CLOSED"));
+    }
+  }
+
   @Test
   public void fail_if_requested_component_is_a_directory() throws IOException {
     ComponentDto project = db.components().insertPrivateProject();
@@ -19,8 +19,12 @@
  */
 package org.sonar.server.batch;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.db.component.ComponentTesting;
+import org.sonar.db.organization.OrganizationTesting;
 import org.sonar.scanner.protocol.input.FileData;
 import org.sonar.scanner.protocol.input.MultiModuleProjectRepository;
 import org.sonar.scanner.protocol.input.ProjectRepositories;
@@ -32,6 +36,8 @@ import org.sonarqube.ws.Batch.WsProjectResponse;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonar.test.JsonAssert.assertJson;
 
@@ -39,6 +45,12 @@ public class ProjectActionTest {
 
   private ProjectDataLoader projectDataLoader = mock(ProjectDataLoader.class);
   private WsActionTester ws = new WsActionTester(new ProjectAction(projectDataLoader));
+  private ComponentDto branchOrMainModule = ComponentTesting.newPrivateProjectDto(OrganizationTesting.newOrganizationDto());
+
+  @Before
+  public void setUp() {
+    when(projectDataLoader.loadBranchOrMainModule(any(ProjectDataQuery.class))).thenReturn(branchOrMainModule);
+  }
 
   @Test
   public void project_referentials() {
@@ -47,7 +59,8 @@ public class ProjectActionTest {
     ProjectRepositories projectReferentials = mock(SingleProjectRepository.class);
 
     ArgumentCaptor<ProjectDataQuery> queryArgumentCaptor = ArgumentCaptor.forClass(ProjectDataQuery.class);
-    when(projectDataLoader.load(queryArgumentCaptor.capture())).thenReturn(projectReferentials);
+    when(projectDataLoader.loadBranchOrMainModule(queryArgumentCaptor.capture())).thenReturn(branchOrMainModule);
+    when(projectDataLoader.load(branchOrMainModule)).thenReturn(projectReferentials);
 
     TestResponse response = ws.newRequest()
       .setParam("key", projectKey)
@@ -62,6 +75,35 @@ public class ProjectActionTest {
     assertThat(queryArgumentCaptor.getValue().getBranch()).isEqualTo("my_branch");
   }
 
+  @Test
+  public void return_etag_of_project_data() {
+    when(projectDataLoader.loadVersion(branchOrMainModule)).thenReturn("W/\"abc\"");
+    when(projectDataLoader.load(any(ComponentDto.class))).thenReturn(new SingleProjectRepository());
+
+    TestResponse response = ws.newRequest()
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .execute();
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getHeader("ETag")).isEqualTo("W/\"abc\"");
+    // the branch is loaded and the permission is checked only once
+    verify(projectDataLoader).loadBranchOrMainModule(any(ProjectDataQuery.class));
+  }
+
+  @Test
+  public void do_not_load_project_data_when_etag_matches() {
+    when(projectDataLoader.loadVersion(branchOrMainModule)).thenReturn("W/\"abc\"");
+
+    TestResponse response = ws.newRequest()
+      .setParam("key", "org.codehaus.sonar:sonar")
+      .setHeader("If-None-Match", "W/\"abc\"")
+      .execute();
+
+    assertThat(response.getStatus()).isEqualTo(304);
+    assertThat(response.getHeader("ETag")).isEqualTo("W/\"abc\"");
+    verify(projectDataLoader, never()).load(any(ComponentDto.class));
+  }
+
   /**
    * SONAR-7084
    */
@@ -71,7 +113,7 @@ public class ProjectActionTest {
 
     ProjectRepositories projectRepositories = new MultiModuleProjectRepository()
       .addFileDataToModule("module-1", null, new FileData(null, null));
-    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+    when(projectDataLoader.load(any(ComponentDto.class))).thenReturn(projectRepositories);
 
     WsProjectResponse wsProjectResponse = ws.newRequest()
       .setParam("key", projectKey)
@@ -86,7 +128,7 @@ public class ProjectActionTest {
 
     ProjectRepositories projectRepositories = new SingleProjectRepository()
       .addFileData("src/main/java/SomeClass.java", new FileData("789456", "123456789"));
-    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+    when(projectDataLoader.load(any(ComponentDto.class))).thenReturn(projectRepositories);
 
     WsProjectResponse wsProjectResponse = ws.newRequest()
       .setParam("key", projectKey)
@@ -103,7 +145,7 @@ public class ProjectActionTest {
 
     ProjectRepositories projectRepositories = new MultiModuleProjectRepository()
       .addFileDataToModule("module-1", "src/main/java/SomeClass.java", new FileData("789456", "123456789"));
-    when(projectDataLoader.load(any(ProjectDataQuery.class))).thenReturn(projectRepositories);
+    when(projectDataLoader.load(any(ComponentDto.class))).thenReturn(projectRepositories);
 
     WsProjectResponse wsProjectResponse = ws.newRequest()
       .setParam("key", projectKey)
@@ -148,11 +148,55 @@ public class ProjectDataLoaderTest {
     assertThat(repository.fileData(moduleBranch.getKey(), moduleFile.path()).hash()).isEqualTo("789456");
   }
 
+  @Test
+  public void version_is_null_if_branch_has_never_been_analyzed() {
+    ComponentDto project = db.components().insertPrivateProject();
+    userSession.logIn().addProjectPermission(SCAN_EXECUTION, project);
+
+    assertThat(underTest.loadVersion(project)).isNull();
+  }
+
+  @Test
+  public void version_changes_with_last_analysis() {
+    ComponentDto project = db.components().insertPrivateProject();
+    userSession.logIn().addProjectPermission(SCAN_EXECUTION, project);
+    db.components().insertSnapshot(project, s -> s.setLast(true));
+
+    String version = underTest.loadVersion(project);
+    assertThat(version).isNotNull().isEqualTo(underTest.loadVersion(project));
+
+    db.executeUpdateSql("update snapshots set islast=?", false);
+    db.components().insertSnapshot(project, s -> s.setLast(true));
+    assertThat(underTest.loadVersion(project)).isNotNull().isNotEqualTo(version);
+  }
+
+  @Test
+  public void load_branch_or_main_module_of_query() {
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto branch = db.components().insertProjectBranch(project, b -> b.setKey("my_branch"));
+    userSession.logIn().addProjectPermission(SCAN_EXECUTION, project);
+
+    assertThat(underTest.loadBranchOrMainModule(ProjectDataQuery.create().setProjectKey(project.getKey())).uuid())
+      .isEqualTo(project.uuid());
+    assertThat(underTest.loadBranchOrMainModule(ProjectDataQuery.create().setProjectKey(project.getKey()).setBranch("my_branch")).uuid())
+      .isEqualTo(branch.uuid());
+  }
+
+  @Test
+  public void load_branch_or_main_module_requires_scan_permission() {
+    ComponentDto project = db.components().insertPrivateProject();
+    userSession.logIn();
+
+    expectedException.expect(ForbiddenException.class);
+
+    underTest.loadBranchOrMainModule(ProjectDataQuery.create().setProjectKey(project.getKey()));
+  }
+
   @Test
   public void fails_with_NPE_if_query_is_null() {
     expectedException.expect(NullPointerException.class);
 
-    underTest.load(null);
+    underTest.load((ProjectDataQuery) null);
   }
 
   @Test
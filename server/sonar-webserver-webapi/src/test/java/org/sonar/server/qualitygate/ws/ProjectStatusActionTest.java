@@ -41,11 +41,13 @@ import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ForbiddenException;
 import org.sonar.server.exceptions.NotFoundException;
 import org.sonar.server.tester.UserSessionRule;
+import org.sonar.server.ws.TestResponse;
 import org.sonar.server.ws.WsActionTester;
 import org.sonarqube.ws.Qualitygates.ProjectStatusResponse;
 import org.sonarqube.ws.Qualitygates.ProjectStatusResponse.Status;
 
 import static java.lang.String.format;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.sonar.db.component.SnapshotTesting.newAnalysis;
@@ -164,6 +166,31 @@ public class ProjectStatusActionTest {
     assertJson(response).isSimilarTo(getClass().getResource("project_status-example.json"));
   }
 
+  @Test
+  public void return_304_when_status_did_not_change() throws IOException {
+    OrganizationDto organization = db.organizations().insert();
+    ComponentDto project = db.components().insertPrivateProject(organization);
+    MetricDto gateDetailsMetric = insertGateDetailMetric();
+    dbClient.liveMeasureDao().insert(dbSession,
+      newLiveMeasure(project, gateDetailsMetric)
+        .setData(IOUtils.toString(getClass().getResource("ProjectStatusActionTest/measure_data.json"))));
+    dbSession.commit();
+    userSession.addProjectPermission(UserRole.USER, project);
+
+    TestResponse firstResponse = ws.newRequest()
+      .setParam(PARAM_PROJECT_KEY, project.getKey())
+      .execute();
+    String eTag = firstResponse.getHeader("ETag");
+    TestResponse response = ws.newRequest()
+      .setParam(PARAM_PROJECT_KEY, project.getKey())
+      .setHeader("If-None-Match", eTag)
+      .execute();
+
+    assertThat(eTag).isNotEmpty();
+    assertThat(response.getStatus()).isEqualTo(HTTP_NOT_MODIFIED);
+    assertThat(response.getInput()).isEmpty();
+  }
+
   @Test
   public void return_past_status_when_branch_is_referenced_by_past_analysis_id() throws IOException {
     OrganizationDto organization = db.organizations().insert();
@@ -37,8 +37,10 @@ import org.sonar.api.impl.ws.ValidatingRequest;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.api.utils.text.JsonWriter;
+import org.sonar.db.profiling.SqlStatistics;
 import org.sonar.server.exceptions.BadRequestException;
 import org.sonar.server.exceptions.ServerException;
+import org.sonar.server.platform.monitoring.SqlStatisticsMonitoring;
 import org.sonarqube.ws.MediaTypes;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -61,11 +63,18 @@ public class WebServiceEngine implements LocalConnector, Startable {
   private static final Logger LOGGER = Loggers.get(WebServiceEngine.class);
 
   private final WebService[] webServices;
+  @Nullable
+  private final SqlStatisticsMonitoring sqlStatisticsMonitoring;
 
   private WebService.Context context;
 
   public WebServiceEngine(WebService[] webServices) {
+    this(webServices, null);
+  }
+
+  public WebServiceEngine(WebService[] webServices, @Nullable SqlStatisticsMonitoring sqlStatisticsMonitoring) {
     this.webServices = webServices;
+    this.sqlStatisticsMonitoring = sqlStatisticsMonitoring;
   }
 
   @Override
@@ -97,9 +106,11 @@ public class WebServiceEngine implements LocalConnector, Startable {
   }
 
   public void execute(Request request, Response response) {
+    SqlStatistics sqlStatistics = sqlStatisticsMonitoring == null ? null : sqlStatisticsMonitoring.start();
+    WebService.Action action = null;
     try {
       ActionExtractor actionExtractor = new ActionExtractor(request.getPath());
-      WebService.Action action = getAction(actionExtractor);
+      action = getAction(actionExtractor);
       checkFound(action, "Unknown url : %s", request.getPath());
       if (request instanceof ValidatingRequest) {
         ((ValidatingRequest) request).setAction(action);
@@ -116,6 +127,10 @@ public class WebServiceEngine implements LocalConnector, Startable {
       sendErrors(request, response, e, e.httpCode(), singletonList(e.getMessage()));
     } catch (Exception e) {
       sendErrors(request, response, e, 500, singletonList("An error has occurred. Please contact your administrator"));
+    } finally {
+      if (sqlStatistics != null) {
+        sqlStatisticsMonitoring.stop(sqlStatistics, action == null ? null : action.path());
+      }
     }
   }
 
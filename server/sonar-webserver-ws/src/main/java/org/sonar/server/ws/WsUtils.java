@@ -19,9 +19,12 @@
  */
 package org.sonar.server.ws;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.protobuf.Message;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.Arrays;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
@@ -29,6 +32,7 @@ import org.sonar.api.utils.text.JsonWriter;
 import org.sonar.core.util.ProtobufJsonFormat;
 
 import static java.lang.String.format;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.sonarqube.ws.MediaTypes.JSON;
 import static org.sonarqube.ws.MediaTypes.PROTOBUF;
@@ -58,6 +62,61 @@ public class WsUtils {
     }
   }
 
+  /**
+   * Same as {@link #writeProtobuf(Message, Request, Response)}, but supports conditional requests. The response
+   * has a weak ETag computed from the message and the media type. HTTP status 304, without body, is returned when
+   * the ETag matches the header If-None-Match of the request.
+   */
+  public static void writeProtobufIfNoneMatch(Message msg, Request request, Response response) {
+    String mediaType = request.getMediaType().equals(PROTOBUF) ? PROTOBUF : JSON;
+    String eTag = weakETag(newETagHasher()
+      .putString(mediaType, UTF_8)
+      .putBytes(msg.toByteArray()));
+    if (!writeNotModifiedIfMatch(request, response, eTag)) {
+      writeProtobuf(msg, request, response);
+    }
+  }
+
+  /**
+   * Hasher to be used to compute ETags, see {@link #weakETag(Hasher)}
+   */
+  public static Hasher newETagHasher() {
+    return Hashing.murmur3_128().newHasher();
+  }
+
+  public static String weakETag(Hasher hasher) {
+    return "W/\"" + hasher.hash() + "\"";
+  }
+
+  /**
+   * Adds the ETag to the response, which clients may keep but must revalidate before each use. When the ETag matches
+   * the header If-None-Match of the request, HTTP status 304 is set and {@code true} is returned: the body must not be
+   * written.
+   */
+  public static boolean writeNotModifiedIfMatch(Request request, Response response, String eTag) {
+    response.setHeader("Cache-Control", "private, no-cache");
+    response.setHeader("ETag", eTag);
+    if (request.header("If-None-Match").filter(ifNoneMatch -> matchesIfNoneMatch(ifNoneMatch, eTag)).isPresent()) {
+      response.stream().setStatus(HTTP_NOT_MODIFIED);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * If-None-Match is either "*" or a comma-separated list of ETags, compared with the weak comparison function
+   */
+  private static boolean matchesIfNoneMatch(String ifNoneMatch, String eTag) {
+    String opaqueTag = withoutWeakPrefix(eTag);
+    return Arrays.stream(ifNoneMatch.split(","))
+      .map(String::trim)
+      .anyMatch(tag -> "*".equals(tag) || withoutWeakPrefix(tag).equals(opaqueTag));
+  }
+
+  private static String withoutWeakPrefix(String eTag) {
+    return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+  }
+
   public static <T> T checkStateWithOptional(java.util.Optional<T> value, String message, Object... messageArguments) {
     if (!value.isPresent()) {
       throw new IllegalStateException(format(message, messageArguments));
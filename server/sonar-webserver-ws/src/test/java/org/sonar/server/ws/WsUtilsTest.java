@@ -67,6 +67,77 @@ public class WsUtilsTest {
     assertThat(Issues.Issue.parseFrom(response.getFlushedOutput()).getKey()).isEqualTo("I1");
   }
 
+  @Test
+  public void write_protobuf_with_etag() {
+    TestRequest request = new TestRequest();
+    DumbResponse response = new DumbResponse();
+
+    Issues.Issue msg = Issues.Issue.newBuilder().setKey("I1").build();
+    WsUtils.writeProtobufIfNoneMatch(msg, request, response);
+
+    assertThat(response.getHeader("ETag")).startsWith("W/\"");
+    assertThat(response.getHeader("Cache-Control")).isEqualTo("private, no-cache");
+    assertThat(response.stream().status()).isEqualTo(200);
+    assertThat(response.outputAsString()).contains("\"key\":\"I1\"");
+  }
+
+  @Test
+  public void return_304_when_etag_matches() {
+    Issues.Issue msg = Issues.Issue.newBuilder().setKey("I1").build();
+    DumbResponse firstResponse = new DumbResponse();
+    WsUtils.writeProtobufIfNoneMatch(msg, new TestRequest(), firstResponse);
+    String eTag = firstResponse.getHeader("ETag");
+
+    DumbResponse response = new DumbResponse();
+    WsUtils.writeProtobufIfNoneMatch(msg, new TestRequest().setHeader("If-None-Match", eTag), response);
+
+    assertThat(response.stream().status()).isEqualTo(304);
+    assertThat(response.getHeader("ETag")).isEqualTo(eTag);
+    assertThat(response.outputAsString()).isEmpty();
+  }
+
+  @Test
+  public void writeNotModifiedIfMatch_sets_etag_and_cache_control() {
+    DumbResponse response = new DumbResponse();
+
+    assertThat(WsUtils.writeNotModifiedIfMatch(new TestRequest(), response, "W/\"abc\"")).isFalse();
+
+    assertThat(response.getHeader("ETag")).isEqualTo("W/\"abc\"");
+    assertThat(response.getHeader("Cache-Control")).isEqualTo("private, no-cache");
+    assertThat(response.stream().status()).isEqualTo(200);
+  }
+
+  @Test
+  public void writeNotModifiedIfMatch_supports_lists_of_etags_wildcard_and_weak_comparison() {
+    assertThat(notModified("W/\"abc\"", "W/\"abc\"")).isTrue();
+    assertThat(notModified("W/\"def\", W/\"abc\"", "W/\"abc\"")).isTrue();
+    assertThat(notModified("\"abc\"", "W/\"abc\"")).isTrue();
+    assertThat(notModified("*", "W/\"abc\"")).isTrue();
+    assertThat(notModified("W/\"def\", W/\"ghi\"", "W/\"abc\"")).isFalse();
+  }
+
+  private static boolean notModified(String ifNoneMatch, String eTag) {
+    DumbResponse response = new DumbResponse();
+    boolean notModified = WsUtils.writeNotModifiedIfMatch(new TestRequest().setHeader("If-None-Match", ifNoneMatch), response, eTag);
+    assertThat(response.stream().status()).isEqualTo(notModified ? 304 : 200);
+    return notModified;
+  }
+
+  @Test
+  public void etag_depends_on_message_and_media_type() {
+    Issues.Issue msg = Issues.Issue.newBuilder().setKey("I1").build();
+    DumbResponse jsonResponse = new DumbResponse();
+    WsUtils.writeProtobufIfNoneMatch(msg, new TestRequest(), jsonResponse);
+    DumbResponse protobufResponse = new DumbResponse();
+    WsUtils.writeProtobufIfNoneMatch(msg, new TestRequest().setMediaType(MediaTypes.PROTOBUF), protobufResponse);
+    DumbResponse otherResponse = new DumbResponse();
+    WsUtils.writeProtobufIfNoneMatch(Issues.Issue.newBuilder().setKey("I2").build(), new TestRequest(), otherResponse);
+
+    assertThat(jsonResponse.getHeader("ETag"))
+      .isNotEqualTo(protobufResponse.getHeader("ETag"))
+      .isNotEqualTo(otherResponse.getHeader("ETag"));
+  }
+
   @Test
   public void rethrow_error_as_ISE_when_error_writing_message() {
     TestRequest request = new TestRequest();
@@ -50,7 +50,9 @@ import org.sonar.server.app.RestartFlagHolderImpl;
 import org.sonar.server.app.WebServerProcessLogging;
 import org.sonar.server.config.ConfigurationProvider;
 import org.sonar.server.es.EsModule;
+import org.sonar.server.issue.index.IssueFacetCache;
 import org.sonar.server.issue.index.IssueIndex;
+import org.sonar.server.issue.index.IssueIndexGeneration;
 import org.sonar.server.permission.index.WebAuthorizationTypeSupport;
 import org.sonar.server.platform.LogServerVersion;
 import org.sonar.server.platform.Platform;
@@ -132,6 +134,8 @@ public class PlatformLevel1 extends PlatformLevel {
 
       // issues
       IssueIndex.class,
+      IssueIndexGeneration.class,
+      IssueFacetCache.class,
 
       GlobalLockManagerImpl.class,
 
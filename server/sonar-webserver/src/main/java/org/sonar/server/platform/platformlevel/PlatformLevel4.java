@@ -121,6 +121,8 @@ import org.sonar.server.platform.ClusterVerification;
 import org.sonar.server.platform.PersistentSettings;
 import org.sonar.server.platform.SystemInfoWriterModule;
 import org.sonar.server.platform.WebCoreExtensionsInstaller;
+import org.sonar.server.platform.monitoring.SqlStatisticsMBeanImpl;
+import org.sonar.server.platform.monitoring.SqlStatisticsMonitoring;
 import org.sonar.server.platform.web.WebServiceFilter;
 import org.sonar.server.platform.web.WebServiceReroutingFilter;
 import org.sonar.server.platform.web.requestid.HttpRequestIdModule;
@@ -469,6 +471,8 @@ public class PlatformLevel4 extends PlatformLevel {
 
       // System
       ServerLogging.class,
+      SqlStatisticsMonitoring.class,
+      SqlStatisticsMBeanImpl.class,
       ChangeLogLevelServiceModule.class,
       HealthCheckerModule.class,
       SystemWsModule.class,
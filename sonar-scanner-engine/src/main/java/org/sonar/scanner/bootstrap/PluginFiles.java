@@ -64,6 +64,13 @@ public class PluginFiles {
     LOGGER.info("User cache: {}", cacheDir.getAbsolutePath());
   }
 
+  /**
+   * Directory of the user cache, shared by the analyses run with the same user home
+   */
+  public File getCacheDir() {
+    return cacheDir;
+  }
+
   public File createTempDir() {
     try {
       return Files.createTempDirectory(tempDir.toPath(), "plugins").toFile();
@@ -0,0 +1,145 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.bootstrap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonarqube.ws.client.GetRequest;
+import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.WsResponse;
+
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Copies of the responses of web services, kept in the user cache with their ETag. A copy is reused as long as the
+ * server answers 304 to the request sent with its ETag in If-None-Match. Responses without ETag are not cached.
+ * <p>
+ * The cache can be shared by concurrent analyses, so copies are written to temporary files which are then moved.
+ */
+public class WsResponseCache {
+  private static final Logger LOG = Loggers.get(WsResponseCache.class);
+
+  private final ScannerWsClient wsClient;
+  private final File cacheDir;
+
+  public WsResponseCache(ScannerWsClient wsClient, File cacheDir) {
+    this.wsClient = wsClient;
+    this.cacheDir = cacheDir;
+  }
+
+  /**
+   * @param path path of the GET request, including its parameters
+   * @throws IOException if the response can not be read or copied to the cache
+   */
+  public <T> T get(String path, BodyParser<T> parser) throws IOException {
+    File cacheFile = new File(cacheDir, DigestUtils.sha1Hex(wsClient.baseUrl() + '\n' + path));
+    String eTag = readETag(cacheFile);
+    if (eTag != null) {
+      try (WsResponse response = wsClient.call(new GetRequest(path).setHeader("If-None-Match", eTag))) {
+        return parseAndCache(response, cacheFile, parser);
+      } catch (HttpException e) {
+        if (e.code() != HTTP_NOT_MODIFIED) {
+          throw e;
+        }
+      }
+      LOG.debug("Response of {} is up-to-date in cache", path);
+      try {
+        return readCache(cacheFile, parser);
+      } catch (IOException | RuntimeException e) {
+        LOG.debug("Fail to read response of {} from cache, downloading it again", path, e);
+      }
+    }
+    try (WsResponse response = wsClient.call(new GetRequest(path))) {
+      return parseAndCache(response, cacheFile, parser);
+    }
+  }
+
+  @CheckForNull
+  private static String readETag(File cacheFile) {
+    if (!cacheFile.isFile()) {
+      return null;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+      String eTag = input.readUTF();
+      return eTag.isEmpty() ? null : eTag;
+    } catch (IOException e) {
+      LOG.debug("Fail to read ETag of cached response {}", cacheFile, e);
+      return null;
+    }
+  }
+
+  private <T> T parseAndCache(WsResponse response, File cacheFile, BodyParser<T> parser) throws IOException {
+    Optional<String> eTag = response.header("ETag");
+    if (!eTag.isPresent()) {
+      try (InputStream body = response.contentStream()) {
+        return parser.parse(body);
+      }
+    }
+    writeCache(cacheFile, eTag.get(), response);
+    return readCache(cacheFile, parser);
+  }
+
+  /**
+   * The cache file contains the ETag of the response, followed by its body.
+   */
+  private void writeCache(File cacheFile, String eTag, WsResponse response) throws IOException {
+    Files.createDirectories(cacheDir.toPath());
+    Path tempFile = Files.createTempFile(cacheDir.toPath(), "response", ".tmp");
+    try {
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)));
+        InputStream body = response.contentStream()) {
+        output.writeUTF(eTag);
+        IOUtils.copy(body, output);
+      }
+      Files.move(tempFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      // no-op if the file has been moved
+      deleteQuietly(tempFile);
+    }
+  }
+
+  private static <T> T readCache(File cacheFile, BodyParser<T> parser) throws IOException {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+      // skip the ETag
+      input.readUTF();
+      return parser.parse(input);
+    }
+  }
+
+  @FunctionalInterface
+  public interface BodyParser<T> {
+    T parse(InputStream body) throws IOException;
+  }
+}
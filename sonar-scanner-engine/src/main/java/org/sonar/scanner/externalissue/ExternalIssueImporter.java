@@ -34,30 +34,29 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.externalissue.ReportParser.Issue;
 import org.sonar.scanner.externalissue.ReportParser.Location;
-import org.sonar.scanner.externalissue.ReportParser.Report;
 
 public class ExternalIssueImporter {
   private static final Logger LOG = Loggers.get(ExternalIssuesImportSensor.class);
   private static final int MAX_UNKNOWN_FILE_PATHS_TO_PRINT = 5;
 
   private final SensorContext context;
-  private final Report report;
+  private final ReportParser parser;
   private final Set<String> unknownFiles = new LinkedHashSet<>();
   private final Set<String> knownFiles = new LinkedHashSet<>();
 
-  public ExternalIssueImporter(SensorContext context, Report report) {
+  private int issueCount = 0;
+
+  public ExternalIssueImporter(SensorContext context, ReportParser parser) {
     this.context = context;
-    this.report = report;
+    this.parser = parser;
   }
 
   public void execute() {
-    int issueCount = 0;
-
-    for (Issue issue : report.issues) {
+    parser.parse(issue -> {
       if (importIssue(issue)) {
         issueCount++;
       }
-    }
+    });
 
     LOG.info("Imported {} {} in {} {}", issueCount, pluralize("issue", issueCount), knownFiles.size(), pluralize("file", knownFiles.size()));
     int numberOfUnknownFiles = unknownFiles.size();
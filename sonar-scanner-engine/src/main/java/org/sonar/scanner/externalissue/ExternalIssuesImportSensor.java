@@ -34,7 +34,6 @@ import org.sonar.api.config.PropertyDefinition;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
-import org.sonar.scanner.externalissue.ReportParser.Report;
 
 public class ExternalIssuesImportSensor implements Sensor {
   private static final Logger LOG = Loggers.get(ExternalIssuesImportSensor.class);
@@ -69,8 +68,7 @@ public class ExternalIssuesImportSensor implements Sensor {
       LOG.debug("Importing issues from '{}'", reportPath);
       Path reportFilePath = context.fileSystem().resolvePath(reportPath).toPath();
       ReportParser parser = new ReportParser(reportFilePath);
-      Report report = parser.parse();
-      ExternalIssueImporter issueImporter = new ExternalIssueImporter(context, report);
+      ExternalIssueImporter issueImporter = new ExternalIssueImporter(context, parser);
       issueImporter.execute();
     }
   }
@@ -22,11 +22,14 @@ package org.sonar.scanner.externalissue;
 import com.google.gson.Gson;
 import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import java.io.IOException;
-import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 
@@ -38,41 +41,77 @@ public class ReportParser {
     this.filePath = filePath;
   }
 
-  public Report parse() {
-    try (Reader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
-      return validate(gson.fromJson(reader, Report.class));
+  /**
+   * Reads the issues of the report one at a time, so that the whole report is never loaded in memory.
+   * Each issue is validated before being given to the consumer. The syntax is as lenient as when the report was
+   * read by {@link Gson#fromJson(java.io.Reader, Class)}.
+   */
+  public void parse(Consumer<Issue> consumer) {
+    try (JsonReader reader = new JsonReader(Files.newBufferedReader(filePath, StandardCharsets.UTF_8))) {
+      reader.setLenient(true);
+      expect(reader, JsonToken.BEGIN_OBJECT);
+      reader.beginObject();
+      boolean hasIssues = false;
+      while (reader.hasNext()) {
+        if ("issues".equals(reader.nextName()) && reader.peek() != JsonToken.NULL) {
+          parseIssues(reader, consumer);
+          hasIssues = true;
+        } else {
+          reader.skipValue();
+        }
+      }
+      if (!hasIssues) {
+        throw missingMandatoryField("issues");
+      }
+      reader.endObject();
+      expect(reader, JsonToken.END_DOCUMENT);
+    } catch (MalformedJsonException | JsonSyntaxException e) {
+      throw new IllegalStateException("Failed to read external issues report '" + filePath + "': invalid JSON syntax", e);
     } catch (JsonIOException | IOException e) {
       throw new IllegalStateException("Failed to read external issues report '" + filePath + "'", e);
-    } catch (JsonSyntaxException e) {
-      throw new IllegalStateException("Failed to read external issues report '" + filePath + "': invalid JSON syntax", e);
     }
   }
 
-  private Report validate(Report report) {
-    for (Issue issue : report.issues) {
-      mandatoryField(issue.primaryLocation, "primaryLocation");
-      mandatoryField(issue.engineId, "engineId");
-      mandatoryField(issue.ruleId, "ruleId");
-      mandatoryField(issue.severity, "severity");
-      mandatoryField(issue.type, "type");
-      mandatoryField(issue.primaryLocation, "primaryLocation");
-      mandatoryFieldPrimaryLocation(issue.primaryLocation.filePath, "filePath");
-      mandatoryFieldPrimaryLocation(issue.primaryLocation.message, "message");
-
-      if (issue.primaryLocation.textRange != null) {
-        mandatoryFieldPrimaryLocation(issue.primaryLocation.textRange.startLine, "startLine of the text range");
-      }
-      
-      if (issue.secondaryLocations != null) {
-        for (Location l : issue.secondaryLocations) {
-          mandatoryFieldSecondaryLocation(l.filePath, "filePath");
-          mandatoryFieldSecondaryLocation(l.textRange, "textRange");
-          mandatoryFieldSecondaryLocation(l.textRange.startLine, "startLine of the text range");
-        }
+  private void parseIssues(JsonReader reader, Consumer<Issue> consumer) throws IOException {
+    expect(reader, JsonToken.BEGIN_ARRAY);
+    reader.beginArray();
+    while (reader.hasNext()) {
+      Issue issue = gson.fromJson(reader, Issue.class);
+      consumer.accept(validate(issue));
+    }
+    reader.endArray();
+  }
+
+  private static void expect(JsonReader reader, JsonToken expected) throws IOException {
+    JsonToken token = reader.peek();
+    if (token != expected) {
+      throw new JsonSyntaxException("Expected " + expected + " but was " + token);
+    }
+  }
+
+  private Issue validate(@Nullable Issue issue) {
+    mandatoryField(issue, "issue");
+    mandatoryField(issue.primaryLocation, "primaryLocation");
+    mandatoryField(issue.engineId, "engineId");
+    mandatoryField(issue.ruleId, "ruleId");
+    mandatoryField(issue.severity, "severity");
+    mandatoryField(issue.type, "type");
+    mandatoryFieldPrimaryLocation(issue.primaryLocation.filePath, "filePath");
+    mandatoryFieldPrimaryLocation(issue.primaryLocation.message, "message");
+
+    if (issue.primaryLocation.textRange != null) {
+      mandatoryFieldPrimaryLocation(issue.primaryLocation.textRange.startLine, "startLine of the text range");
+    }
+
+    if (issue.secondaryLocations != null) {
+      for (Location l : issue.secondaryLocations) {
+        mandatoryFieldSecondaryLocation(l.filePath, "filePath");
+        mandatoryFieldSecondaryLocation(l.textRange, "textRange");
+        mandatoryFieldSecondaryLocation(l.textRange.startLine, "startLine of the text range");
       }
     }
 
-    return report;
+    return issue;
   }
 
   private void mandatoryFieldPrimaryLocation(@Nullable Object value, String fieldName) {
@@ -89,22 +128,18 @@ public class ReportParser {
 
   private void mandatoryField(@Nullable Object value, String fieldName) {
     if (value == null) {
-      throw new IllegalStateException(String.format("Failed to parse report '%s': missing mandatory field '%s'.", filePath, fieldName));
+      throw missingMandatoryField(fieldName);
     }
   }
 
   private void mandatoryField(@Nullable String value, String fieldName) {
     if (StringUtils.isBlank(value)) {
-      throw new IllegalStateException(String.format("Failed to parse report '%s': missing mandatory field '%s'.", filePath, fieldName));
+      throw missingMandatoryField(fieldName);
     }
   }
 
-  static class Report {
-    Issue[] issues;
-
-    public Report() {
-      // http://stackoverflow.com/a/18645370/229031
-    }
+  private IllegalStateException missingMandatoryField(String fieldName) {
+    return new IllegalStateException(String.format("Failed to parse report '%s': missing mandatory field '%s'.", filePath, fieldName));
   }
 
   static class Issue {
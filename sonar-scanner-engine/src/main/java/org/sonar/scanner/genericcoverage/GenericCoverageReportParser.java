@@ -26,9 +26,11 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import javax.annotation.Nullable;
 import javax.xml.stream.XMLStreamException;
 import org.codehaus.staxmate.in.SMHierarchicCursor;
 import org.codehaus.staxmate.in.SMInputCursor;
+import org.sonar.api.batch.fs.FileSystem;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.coverage.NewCoverage;
@@ -48,37 +50,72 @@ public class GenericCoverageReportParser {
   private int numberOfUnknownFiles;
   private final List<String> firstUnknownFiles = new ArrayList<>();
   private final Set<String> matchedFileKeys = new HashSet<>();
+  private final List<FileCoverage> coverages = new ArrayList<>();
+  private File reportFile;
 
   public void parse(File reportFile, SensorContext context) {
+    read(reportFile, context.fileSystem());
+    save(context);
+  }
+
+  /**
+   * Parses the report and resolves the files it refers to, without storing anything. Contrary to {@link #save(SensorContext)},
+   * it does not touch the sensor storage nor the metadata of the files, so several reports can be read concurrently.
+   */
+  void read(File reportFile, FileSystem fileSystem) {
+    this.reportFile = reportFile;
     try (InputStream inputStream = new FileInputStream(reportFile)) {
-      parse(inputStream, context);
+      parse(inputStream, fileSystem);
+    } catch (Exception e) {
+      throw parsingError(e);
+    }
+  }
+
+  void save(SensorContext context) {
+    try {
+      for (FileCoverage coverage : coverages) {
+        NewCoverage newCoverage = context.newCoverage().onFile(coverage.inputFile);
+        for (LineToCover line : coverage.lines) {
+          newCoverage.lineHits(line.lineNumber, line.covered ? 1 : 0);
+          if (line.branchesToCover != null) {
+            newCoverage.conditions(line.lineNumber, line.branchesToCover, line.coveredBranches);
+          }
+        }
+        newCoverage.save();
+      }
     } catch (Exception e) {
-      throw MessageException.of("Error during parsing of the generic coverage report '" + reportFile + "'. Look at SonarQube documentation to know the expected XML format.",
-        e);
+      throw parsingError(e);
+    } finally {
+      coverages.clear();
     }
   }
 
-  private void parse(InputStream inputStream, SensorContext context) throws XMLStreamException {
+  private MessageException parsingError(Exception e) {
+    return MessageException.of("Error during parsing of the generic coverage report '" + reportFile + "'. Look at SonarQube documentation to know the expected XML format.",
+      e);
+  }
+
+  private void parse(InputStream inputStream, FileSystem fileSystem) throws XMLStreamException {
     new StaxParser(rootCursor -> {
       rootCursor.advance();
-      parseRootNode(rootCursor, context);
+      parseRootNode(rootCursor, fileSystem);
     }).parse(inputStream);
   }
 
-  private void parseRootNode(SMHierarchicCursor rootCursor, SensorContext context) throws XMLStreamException {
+  private void parseRootNode(SMHierarchicCursor rootCursor, FileSystem fileSystem) throws XMLStreamException {
     checkElementName(rootCursor, "coverage");
     String version = rootCursor.getAttrValue("version");
     if (!"1".equals(version)) {
       throw new IllegalStateException("Unknown report version: " + version + ". This parser only handles version 1.");
     }
-    parseFiles(rootCursor.childElementCursor(), context);
+    parseFiles(rootCursor.childElementCursor(), fileSystem);
   }
 
-  private void parseFiles(SMInputCursor fileCursor, SensorContext context) throws XMLStreamException {
+  private void parseFiles(SMInputCursor fileCursor, FileSystem fileSystem) throws XMLStreamException {
     while (fileCursor.getNext() != null) {
       checkElementName(fileCursor, "file");
       String filePath = mandatoryAttribute(fileCursor, "path");
-      InputFile inputFile = context.fileSystem().inputFile(context.fileSystem().predicates().hasPath(filePath));
+      InputFile inputFile = fileSystem.inputFile(fileSystem.predicates().hasPath(filePath));
       if (inputFile == null) {
         numberOfUnknownFiles++;
         if (numberOfUnknownFiles <= MAX_STORED_UNKNOWN_FILE_PATHS) {
@@ -93,26 +130,26 @@ public class GenericCoverageReportParser {
         filePath);
       matchedFileKeys.add(inputFile.key());
 
-      NewCoverage newCoverage = context.newCoverage().onFile(inputFile);
+      FileCoverage coverage = new FileCoverage(inputFile);
       SMInputCursor lineToCoverCursor = fileCursor.childElementCursor();
       while (lineToCoverCursor.getNext() != null) {
-        parseLineToCover(lineToCoverCursor, newCoverage);
+        coverage.lines.add(parseLineToCover(lineToCoverCursor));
       }
-      newCoverage.save();
+      coverages.add(coverage);
     }
   }
 
-  private static void parseLineToCover(SMInputCursor cursor, NewCoverage newCoverage)
-    throws XMLStreamException {
+  private static LineToCover parseLineToCover(SMInputCursor cursor) throws XMLStreamException {
     checkElementName(cursor, "lineToCover");
     String lineNumberAsString = mandatoryAttribute(cursor, LINE_NUMBER_ATTR);
     int lineNumber = intValue(lineNumberAsString, cursor, LINE_NUMBER_ATTR, 1);
 
     boolean covered = getCoveredValue(cursor);
-    newCoverage.lineHits(lineNumber, covered ? 1 : 0);
 
     String branchesToCoverAsString = cursor.getAttrValue(BRANCHES_TO_COVER_ATTR);
-    if (branchesToCoverAsString != null) {
+    if (branchesToCoverAsString == null) {
+      return new LineToCover(lineNumber, covered, null, 0);
+    } else {
       int branchesToCover = intValue(branchesToCoverAsString, cursor, BRANCHES_TO_COVER_ATTR, 0);
       String coveredBranchesAsString = cursor.getAttrValue(COVERED_BRANCHES_ATTR);
       int coveredBranches = 0;
@@ -122,7 +159,7 @@ public class GenericCoverageReportParser {
           throw new IllegalStateException("\"coveredBranches\" should not be greater than \"branchesToCover\" on line " + cursor.getCursorLocation().getLineNumber());
         }
       }
-      newCoverage.conditions(lineNumber, branchesToCover, coveredBranches);
+      return new LineToCover(lineNumber, covered, branchesToCover, coveredBranches);
     }
   }
 
@@ -194,4 +231,28 @@ public class GenericCoverageReportParser {
     return firstUnknownFiles;
   }
 
+  private static class FileCoverage {
+    private final InputFile inputFile;
+    private final List<LineToCover> lines = new ArrayList<>();
+
+    private FileCoverage(InputFile inputFile) {
+      this.inputFile = inputFile;
+    }
+  }
+
+  private static class LineToCover {
+    private final int lineNumber;
+    private final boolean covered;
+    @Nullable
+    private final Integer branchesToCover;
+    private final int coveredBranches;
+
+    private LineToCover(int lineNumber, boolean covered, @Nullable Integer branchesToCover, int coveredBranches) {
+      this.lineNumber = lineNumber;
+      this.covered = covered;
+      this.branchesToCover = branchesToCover;
+      this.coveredBranches = coveredBranches;
+    }
+  }
+
 }
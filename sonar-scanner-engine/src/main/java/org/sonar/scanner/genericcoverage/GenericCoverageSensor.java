@@ -20,11 +20,18 @@
 package org.sonar.scanner.genericcoverage;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.SensorDescriptor;
@@ -82,20 +89,68 @@ public class GenericCoverageSensor implements ProjectSensor {
 
   @Override
   public void execute(SensorContext context) {
-    Set<String> reportPaths = loadReportPaths();
+    List<File> reportFiles = loadReportPaths().stream()
+      .map(reportPath -> context.fileSystem().resolvePath(reportPath))
+      .collect(Collectors.toList());
+    if (reportFiles.isEmpty()) {
+      return;
+    }
 
-    for (String reportPath : reportPaths) {
-      File reportFile = context.fileSystem().resolvePath(reportPath);
-      LOG.info("Parsing {}", reportFile);
-      GenericCoverageReportParser parser = new GenericCoverageReportParser();
-      parser.parse(reportFile, context);
-      LOG.info("Imported coverage data for {} files", parser.numberOfMatchedFiles());
-      int numberOfUnknownFiles = parser.numberOfUnknownFiles();
-      if (numberOfUnknownFiles > 0) {
-        LOG.info("Coverage data ignored for " + numberOfUnknownFiles + " unknown files, including:\n" + parser.firstUnknownFiles().stream().collect(Collectors.joining("\n")));
+    // reports are parsed concurrently, but the coverage is stored sequentially, in the order of the configured report paths.
+    // At most one report per thread is parsed ahead of the one being stored, to bound the memory used by parsed reports.
+    int threads = Math.min(reportFiles.size(), Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = newExecutor(threads);
+    try {
+      Deque<Future<GenericCoverageReportParser>> parsers = new ArrayDeque<>(threads);
+      int nextToSubmit = 0;
+      for (File reportFile : reportFiles) {
+        while (nextToSubmit < reportFiles.size() && parsers.size() < threads) {
+          parsers.add(submit(executor, reportFiles.get(nextToSubmit), context));
+          nextToSubmit++;
+        }
+        LOG.info("Parsing {}", reportFile);
+        GenericCoverageReportParser parser = waitFor(parsers.poll());
+        parser.save(context);
+        LOG.info("Imported coverage data for {} files", parser.numberOfMatchedFiles());
+        int numberOfUnknownFiles = parser.numberOfUnknownFiles();
+        if (numberOfUnknownFiles > 0) {
+          LOG.info("Coverage data ignored for " + numberOfUnknownFiles + " unknown files, including:\n" + parser.firstUnknownFiles().stream().collect(Collectors.joining("\n")));
+        }
       }
+    } finally {
+      executor.shutdownNow();
     }
+  }
+
+  private static Future<GenericCoverageReportParser> submit(ExecutorService executor, File reportFile, SensorContext context) {
+    return executor.submit(() -> {
+      GenericCoverageReportParser parser = new GenericCoverageReportParser();
+      parser.read(reportFile, context.fileSystem());
+      return parser;
+    });
+  }
+
+  private static ExecutorService newExecutor(int threads) {
+    AtomicInteger counter = new AtomicInteger();
+    return Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "Generic coverage parser " + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
 
+  private static GenericCoverageReportParser waitFor(Future<GenericCoverageReportParser> parser) {
+    try {
+      return parser.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while parsing generic coverage reports", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
   }
 
   Set<String> loadReportPaths() {
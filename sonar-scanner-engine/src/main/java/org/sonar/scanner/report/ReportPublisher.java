@@ -19,9 +19,12 @@
  */
 package org.sonar.scanner.report;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.net.URL;
@@ -30,14 +33,16 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import javax.annotation.Nullable;
 import okhttp3.HttpUrl;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.picocontainer.Startable;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.TempFolder;
-import org.sonar.api.utils.ZipUtils;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.scanner.bootstrap.DefaultScannerWsClient;
@@ -68,6 +73,8 @@ public class ReportPublisher implements Startable {
   private static final String BRANCH = "branch";
   private static final String ID = "id";
   private static final String RESOLVED = "resolved";
+  private static final String REPORT_FILE_NAME = "scanner-report.zip";
+  private static final int HTTP_LENGTH_REQUIRED = 411;
 
   private final DefaultScannerWsClient wsClient;
   private final AnalysisContextReportPublisher contextPublisher;
@@ -102,7 +109,7 @@ public class ReportPublisher implements Startable {
   @Override
   public void start() {
     reportDir = moduleHierarchy.root().getWorkDir().resolve("scanner-report");
-    writer = new ScannerReportWriter(reportDir.toFile());
+    writer = new ScannerReportWriter(reportDir.toFile(), true);
     reader = new ScannerReportReader(reportDir.toFile());
     contextPublisher.init(writer);
 
@@ -116,6 +123,9 @@ public class ReportPublisher implements Startable {
 
   @Override
   public void stop() {
+    if (writer != null) {
+      writer.flush();
+    }
     if (!properties.shouldKeepReport()) {
       deleteQuietly(reportDir);
     }
@@ -134,12 +144,12 @@ public class ReportPublisher implements Startable {
   }
 
   public void execute() {
-    File report = generateReportFile();
+    generateReport();
     if (properties.shouldKeepReport()) {
       LOG.info("Analysis report generated in " + reportDir);
     }
     if (!analysisMode.isMediumTest()) {
-      String taskId = upload(report);
+      String taskId = upload();
       prepareAndDumpMetadata(taskId);
     }
 
@@ -156,33 +166,72 @@ public class ReportPublisher implements Startable {
     }
   }
 
-  private File generateReportFile() {
-    try {
-      long startTime = System.currentTimeMillis();
-      for (ReportPublisherStep publisher : publishers) {
-        publisher.publish(writer);
-      }
-      long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir.toFile())));
-
-      startTime = System.currentTimeMillis();
-      File reportZip = temp.newFile("scanner-report", ".zip");
-      ZipUtils.zipDir(reportDir.toFile(), reportZip);
-      stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report compressed in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOf(reportZip)));
-      return reportZip;
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to prepare analysis report", e);
+  private void generateReport() {
+    long startTime = System.currentTimeMillis();
+    for (ReportPublisherStep publisher : publishers) {
+      publisher.publish(writer);
     }
+    writer.flush();
+    long stopTime = System.currentTimeMillis();
+    LOG.info("Analysis report generated in {}ms, dir size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(FileUtils.sizeOfDirectory(reportDir.toFile())));
   }
 
   /**
-   * Uploads the report file to server and returns the generated task id
+   * Uploads the report to server and returns the generated task id. By default, the report directory is compressed
+   * while being sent with chunked transfer encoding, without intermediate zip file. The zip file is used when the
+   * server, or a proxy, requires the length of the request.
    */
-  String upload(File report) {
+  String upload() {
     LOG.debug("Upload report");
     long startTime = System.currentTimeMillis();
-    PostRequest.Part filePart = new PostRequest.Part(MediaTypes.ZIP, report);
+    WsResponse response;
+    try {
+      response = submit();
+    } catch (HttpException e) {
+      throw MessageException.of(String.format("Failed to upload report - %s", DefaultScannerWsClient.createErrorMessage(e)));
+    }
+
+    try (InputStream protobuf = response.contentStream()) {
+      return Ce.SubmitResponse.parser().parseFrom(protobuf).getTaskId();
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    } finally {
+      long stopTime = System.currentTimeMillis();
+      LOG.info("Analysis report uploaded in " + (stopTime - startTime) + "ms");
+    }
+  }
+
+  private WsResponse submit() {
+    if (!properties.shouldStreamReportUpload()) {
+      return submitReportFile();
+    }
+    try {
+      return wsClient.call(newSubmitRequest(new PostRequest.Part(MediaTypes.ZIP, REPORT_FILE_NAME, this::writeReportZip))).failIfNotSuccessful();
+    } catch (HttpException e) {
+      if (e.code() != HTTP_LENGTH_REQUIRED) {
+        throw e;
+      }
+      LOG.warn("The length of the analysis report is required by the server, it is uploaded again from a zip file. "
+        + "Set the property '{}' to false to skip the first attempt.", ScanProperties.STREAM_REPORT_UPLOAD_KEY);
+      return submitReportFile();
+    }
+  }
+
+  private WsResponse submitReportFile() {
+    File reportZip = temp.newFile("scanner-report", ".zip");
+    try {
+      try (OutputStream output = new BufferedOutputStream(new FileOutputStream(reportZip))) {
+        writeReportZip(output);
+      } catch (IOException e) {
+        throw new IllegalStateException("Unable to prepare analysis report", e);
+      }
+      return wsClient.call(newSubmitRequest(new PostRequest.Part(MediaTypes.ZIP, reportZip))).failIfNotSuccessful();
+    } finally {
+      deleteQuietly(reportZip);
+    }
+  }
+
+  private PostRequest newSubmitRequest(PostRequest.Part filePart) {
     PostRequest post = new PostRequest("api/ce/submit")
       .setMediaType(MediaTypes.PROTOBUF)
       .setParam("organization", properties.organizationKey().orElse(null))
@@ -199,21 +248,35 @@ public class ReportPublisher implements Startable {
         post.setParam(CHARACTERISTIC, "pullRequest=" + branchConfiguration.pullRequestKey());
       }
     }
+    return post;
+  }
 
-    WsResponse response;
-    try {
-      response = wsClient.call(post).failIfNotSuccessful();
-    } catch (HttpException e) {
-      throw MessageException.of(String.format("Failed to upload report - %s", DefaultScannerWsClient.createErrorMessage(e)));
-    }
+  private void writeReportZip(OutputStream output) throws IOException {
+    long startTime = System.currentTimeMillis();
+    // output can belong to the HTTP request, so it must be finished but not closed
+    CountingOutputStream countingOutput = new CountingOutputStream(output);
+    ZipOutputStream zip = new ZipOutputStream(countingOutput);
+    writeZipEntries(reportDir.toFile(), "", zip);
+    zip.finish();
+    zip.flush();
+    long stopTime = System.currentTimeMillis();
+    LOG.info("Analysis report compressed in {}ms, zip size={}", stopTime - startTime, FileUtils.byteCountToDisplaySize(countingOutput.getByteCount()));
+  }
 
-    try (InputStream protobuf = response.contentStream()) {
-      return Ce.SubmitResponse.parser().parseFrom(protobuf).getTaskId();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    } finally {
-      long stopTime = System.currentTimeMillis();
-      LOG.info("Analysis report uploaded in " + (stopTime - startTime) + "ms");
+  private static void writeZipEntries(File dir, String entryPrefix, ZipOutputStream zip) throws IOException {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      throw new IllegalStateException("Fail to list files of directory " + dir.getAbsolutePath());
+    }
+    for (File file : files) {
+      String entryName = entryPrefix + file.getName();
+      if (file.isDirectory()) {
+        writeZipEntries(file, entryName + "/", zip);
+      } else {
+        zip.putNextEntry(new ZipEntry(entryName));
+        Files.copy(file.toPath(), zip);
+        zip.closeEntry();
+      }
     }
   }
 
@@ -19,10 +19,7 @@
  */
 package org.sonar.scanner.report;
 
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -44,13 +41,14 @@ public class SourcePublisher implements ReportPublisherStep {
   @Override
   public void publish(ScannerReportWriter writer) {
     for (final DefaultInputFile inputFile : componentCache.allChangedFilesToPublish()) {
-      File iofile = writer.getSourceFile(inputFile.scannerId());
-
-      try (OutputStream output = new BufferedOutputStream(new FileOutputStream(iofile));
-        InputStream in = inputFile.inputStream();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(in, inputFile.charset()))) {
-        writeSource(reader, output, inputFile.lines());
-      } catch (IOException e) {
+      try {
+        writer.writeComponentSource(inputFile.scannerId(), output -> {
+          try (InputStream in = inputFile.inputStream();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, inputFile.charset()))) {
+            writeSource(reader, output, inputFile.lines());
+          }
+        });
+      } catch (RuntimeException e) {
         throw new IllegalStateException("Unable to store file source in the report", e);
       }
     }
@@ -19,6 +19,7 @@
  */
 package org.sonar.scanner.repository;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
@@ -29,29 +30,27 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.impl.utils.ScannerUtils;
 import org.sonar.scanner.bootstrap.DefaultScannerWsClient;
+import org.sonar.scanner.bootstrap.PluginFiles;
+import org.sonar.scanner.bootstrap.WsResponseCache;
 import org.sonarqube.ws.Batch.WsProjectResponse;
-import org.sonarqube.ws.client.GetRequest;
 import org.sonarqube.ws.client.HttpException;
-import org.sonarqube.ws.client.WsResponse;
 
 public class DefaultProjectRepositoriesLoader implements ProjectRepositoriesLoader {
   private static final Logger LOG = LoggerFactory.getLogger(DefaultProjectRepositoriesLoader.class);
   private static final String BATCH_PROJECT_URL = "/batch/project.protobuf";
-  private final DefaultScannerWsClient wsClient;
+  private final WsResponseCache cache;
 
-  public DefaultProjectRepositoriesLoader(DefaultScannerWsClient wsClient) {
-    this.wsClient = wsClient;
+  public DefaultProjectRepositoriesLoader(DefaultScannerWsClient wsClient, PluginFiles pluginFiles) {
+    // hashes and revisions of files only change when an analysis is processed, so they are downloaded again only after a new analysis
+    this.cache = new WsResponseCache(wsClient, new File(pluginFiles.getCacheDir(), "project_repositories"));
   }
 
   @Override
   public ProjectRepositories load(String projectKey, @Nullable String branchBase) {
-    GetRequest request = new GetRequest(getUrl(projectKey, branchBase));
-    try (WsResponse response = wsClient.call(request)) {
-      try (InputStream is = response.contentStream()) {
-        return processStream(is);
-      } catch (IOException e) {
-        throw new IllegalStateException("Couldn't load project repository for " + projectKey, e);
-      }
+    try {
+      return cache.get(getUrl(projectKey, branchBase), DefaultProjectRepositoriesLoader::processStream);
+    } catch (IOException e) {
+      throw new IllegalStateException("Couldn't load project repository for " + projectKey, e);
     } catch (RuntimeException e) {
       if (shouldThrow(e)) {
         throw e;
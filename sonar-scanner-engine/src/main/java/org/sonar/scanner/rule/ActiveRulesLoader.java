@@ -19,9 +19,14 @@
  */
 package org.sonar.scanner.rule;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import org.sonar.api.batch.rule.LoadedActiveRule;
 
 public interface ActiveRulesLoader {
-  List<LoadedActiveRule> load(String qualityProfileKey);
+  /**
+   * @return the active rules of the given quality profiles, by quality profile key
+   */
+  Map<String, List<LoadedActiveRule>> load(Collection<String> qualityProfileKeys);
 }
@@ -21,6 +21,7 @@ package org.sonar.scanner.rule;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -59,8 +60,9 @@ public class ActiveRulesProvider extends ProviderAdapter {
     Set<RuleKey> loadedRulesKey = new HashSet<>();
     ActiveRulesBuilder builder = new ActiveRulesBuilder();
 
+    Map<String, List<LoadedActiveRule>> rulesByQProfileKey = loader.load(qProfileKeys);
     for (String qProfileKey : qProfileKeys) {
-      Collection<LoadedActiveRule> qProfileRules = load(loader, qProfileKey);
+      Collection<LoadedActiveRule> qProfileRules = rulesByQProfileKey.getOrDefault(qProfileKey, Collections.emptyList());
 
       for (LoadedActiveRule r : qProfileRules) {
         if (!loadedRulesKey.contains(r.getRuleKey())) {
@@ -95,10 +97,6 @@ public class ActiveRulesProvider extends ProviderAdapter {
     return builder.build();
   }
 
-  private static List<LoadedActiveRule> load(ActiveRulesLoader loader, String qProfileKey) {
-    return loader.load(qProfileKey);
-  }
-
   private static Collection<String> getKeys(QualityProfiles qProfiles) {
     List<String> keys = new ArrayList<>(qProfiles.findAll().size());
 
@@ -19,115 +19,72 @@
  */
 package org.sonar.scanner.rule;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import org.apache.commons.io.IOUtils;
-import org.sonar.scanner.bootstrap.ScannerWsClient;
-import org.sonar.api.impl.utils.ScannerUtils;
 import org.sonar.api.batch.rule.LoadedActiveRule;
+import org.sonar.api.impl.utils.ScannerUtils;
 import org.sonar.api.rule.RuleKey;
-import org.sonar.api.utils.DateUtils;
-import org.sonarqube.ws.Rules;
-import org.sonarqube.ws.Rules.Active;
-import org.sonarqube.ws.Rules.Active.Param;
-import org.sonarqube.ws.Rules.ActiveList;
-import org.sonarqube.ws.Rules.Rule;
-import org.sonarqube.ws.Rules.SearchResponse;
-import org.sonarqube.ws.client.GetRequest;
+import org.sonar.scanner.bootstrap.PluginFiles;
+import org.sonar.scanner.bootstrap.ScannerWsClient;
+import org.sonar.scanner.bootstrap.WsResponseCache;
+import org.sonar.scanner.protocol.input.ScannerInput;
 
+/**
+ * Loads the active rules of all the quality profiles with a single request. The response is kept in the user cache
+ * with its ETag, so that it is downloaded again only when the rules of one of the profiles changed.
+ */
 public class DefaultActiveRulesLoader implements ActiveRulesLoader {
-  private static final String RULES_SEARCH_URL = "/api/rules/search.protobuf?f=repo,name,severity,lang,internalKey,templateKey,params,actives,createdAt,updatedAt&activation=true";
+  private static final String ACTIVE_RULES_URL = "/api/batch/active_rules?profiles=";
 
-  private final ScannerWsClient wsClient;
+  private final WsResponseCache cache;
 
-  public DefaultActiveRulesLoader(ScannerWsClient wsClient) {
-    this.wsClient = wsClient;
+  public DefaultActiveRulesLoader(ScannerWsClient wsClient, PluginFiles pluginFiles) {
+    this.cache = new WsResponseCache(wsClient, new File(pluginFiles.getCacheDir(), "active_rules"));
   }
 
   @Override
-  public List<LoadedActiveRule> load(String qualityProfileKey) {
-    List<LoadedActiveRule> ruleList = new LinkedList<>();
-    int page = 1;
-    int pageSize = 500;
-    long loaded = 0;
-
-    while (true) {
-      GetRequest getRequest = new GetRequest(getUrl(qualityProfileKey, page, pageSize));
-      SearchResponse response = loadFromStream(wsClient.call(getRequest).contentStream());
-      List<LoadedActiveRule> pageRules = readPage(response);
-      ruleList.addAll(pageRules);
-      loaded += response.getPs();
-
-      if (response.getTotal() <= loaded) {
-        break;
-      }
-      page++;
+  public Map<String, List<LoadedActiveRule>> load(Collection<String> qualityProfileKeys) {
+    if (qualityProfileKeys.isEmpty()) {
+      return Collections.emptyMap();
     }
-
-    return ruleList;
-  }
-
-  private String getUrl(String qualityProfileKey, int page, int pageSize) {
-    StringBuilder builder = new StringBuilder(1024);
-    builder.append(RULES_SEARCH_URL);
-    builder.append("&qprofile=").append(ScannerUtils.encodeForUrl(qualityProfileKey));
-    builder.append("&ps=").append(pageSize);
-    builder.append("&p=").append(page);
-    return builder.toString();
-  }
-
-  private static SearchResponse loadFromStream(InputStream is) {
+    String profiles = String.join(",", qualityProfileKeys);
     try {
-      return SearchResponse.parseFrom(is);
+      return cache.get(ACTIVE_RULES_URL + ScannerUtils.encodeForUrl(profiles), DefaultActiveRulesLoader::readActiveRules);
     } catch (IOException e) {
-      throw new IllegalStateException("Failed to load quality profiles", e);
-    } finally {
-      IOUtils.closeQuietly(is);
+      throw new IllegalStateException("Failed to load active rules", e);
     }
   }
 
-  private static List<LoadedActiveRule> readPage(SearchResponse response) {
-    List<LoadedActiveRule> loadedRules = new LinkedList<>();
-
-    List<Rule> rulesList = response.getRulesList();
-    Map<String, ActiveList> actives = response.getActives().getActives();
-
-    for (Rule r : rulesList) {
-      ActiveList activeList = actives.get(r.getKey());
-      Active active = activeList.getActiveList(0);
-
-      LoadedActiveRule loadedRule = new LoadedActiveRule();
-
-      loadedRule.setRuleKey(RuleKey.parse(r.getKey()));
-      loadedRule.setName(r.getName());
-      loadedRule.setSeverity(active.getSeverity());
-      loadedRule.setCreatedAt(DateUtils.dateToLong(DateUtils.parseDateTime(active.getCreatedAt())));
-      loadedRule.setUpdatedAt(DateUtils.dateToLong(DateUtils.parseDateTime(active.getUpdatedAt())));
-      loadedRule.setLanguage(r.getLang());
-      loadedRule.setInternalKey(r.getInternalKey());
-      if (r.hasTemplateKey()) {
-        RuleKey templateRuleKey = RuleKey.parse(r.getTemplateKey());
-        loadedRule.setTemplateRuleKey(templateRuleKey.rule());
-      }
-
-      Map<String, String> params = new HashMap<>();
-
-      for (Rules.Rule.Param param : r.getParams().getParamsList()) {
-        params.put(param.getKey(), param.getDefaultValue());
-      }
-
-      // overrides defaultValue if the key is the same
-      for (Param param : active.getParamsList()) {
-        params.put(param.getKey(), param.getValue());
-      }
-      loadedRule.setParams(params);
-      loadedRules.add(loadedRule);
+  private static Map<String, List<LoadedActiveRule>> readActiveRules(InputStream input) throws IOException {
+    Map<String, List<LoadedActiveRule>> activeRulesByProfile = new HashMap<>();
+    ScannerInput.ActiveRule activeRule;
+    while ((activeRule = ScannerInput.ActiveRule.parseDelimitedFrom(input)) != null) {
+      activeRulesByProfile.computeIfAbsent(activeRule.getQprofileKey(), k -> new ArrayList<>()).add(toLoadedActiveRule(activeRule));
     }
+    return activeRulesByProfile;
+  }
 
-    return loadedRules;
+  private static LoadedActiveRule toLoadedActiveRule(ScannerInput.ActiveRule activeRule) {
+    LoadedActiveRule loadedRule = new LoadedActiveRule();
+    loadedRule.setRuleKey(RuleKey.of(activeRule.getRuleRepository(), activeRule.getRuleKey()));
+    loadedRule.setName(activeRule.getName());
+    loadedRule.setSeverity(activeRule.getSeverity());
+    loadedRule.setCreatedAt(activeRule.getCreatedAt());
+    loadedRule.setUpdatedAt(activeRule.getUpdatedAt());
+    loadedRule.setLanguage(activeRule.getLanguage());
+    loadedRule.setInternalKey(activeRule.getInternalKey());
+    if (activeRule.hasTemplateRuleKey()) {
+      RuleKey templateRuleKey = RuleKey.parse(activeRule.getTemplateRuleKey());
+      loadedRule.setTemplateRuleKey(templateRuleKey.rule());
+    }
+    loadedRule.setParams(new HashMap<>(activeRule.getParamsMap()));
+    return loadedRule;
   }
 }
@@ -121,6 +121,7 @@ import org.sonar.scanner.scan.filesystem.ProjectFileIndexer;
 import org.sonar.scanner.scan.filesystem.ScannerComponentIdGenerator;
 import org.sonar.scanner.scan.filesystem.StatusDetection;
 import org.sonar.scanner.scan.measure.DefaultMetricFinder;
+import org.sonar.scanner.scm.BlameCache;
 import org.sonar.scanner.scm.ScmChangedFilesProvider;
 import org.sonar.scanner.scm.ScmConfiguration;
 import org.sonar.scanner.scm.ScmPublisher;
@@ -269,6 +270,7 @@ public class ProjectScanContainer extends ComponentContainer {
       // SCM
       ScmConfiguration.class,
       ScmPublisher.class,
+      BlameCache.class,
       ScmRevisionImpl.class,
 
       // Sensors
@@ -35,6 +35,7 @@ import static org.sonar.core.config.ScannerProperties.ORGANIZATION;
 public class ScanProperties {
   public static final String METADATA_FILE_PATH_KEY = "sonar.scanner.metadataFilePath";
   public static final String KEEP_REPORT_PROP_KEY = "sonar.scanner.keepReport";
+  public static final String STREAM_REPORT_UPLOAD_KEY = "sonar.scanner.streamReportUpload";
   public static final String VERBOSE_KEY = "sonar.verbose";
   public static final String METADATA_DUMP_FILENAME = "report-task.txt";
   public static final String SONAR_REPORT_EXPORT_PATH = "sonar.report.export.path";
@@ -56,6 +57,14 @@ public class ScanProperties {
     return configuration.getBoolean(KEEP_REPORT_PROP_KEY).orElse(false) || configuration.getBoolean(VERBOSE_KEY).orElse(false);
   }
 
+  /**
+   * When disabled, the report is zipped to a file before being uploaded, for the servers and proxies that do not
+   * support chunked transfer encoding
+   */
+  public boolean shouldStreamReportUpload() {
+    return configuration.getBoolean(STREAM_REPORT_UPLOAD_KEY).orElse(true);
+  }
+
   public boolean preloadFileMetadata() {
     return configuration.getBoolean(PRELOAD_FILE_METADATA_KEY).orElse(false);
   }
@@ -0,0 +1,195 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.Properties;
+import org.sonar.api.Property;
+import org.sonar.api.PropertyType;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.Protobuf;
+import org.sonar.scanner.bootstrap.PluginFiles;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
+/**
+ * Local cache of blame results, stored in the user cache. The blame of a file only depends on its path, its content
+ * and the revision of the working copy, so blame computed by a previous analysis of the same revision is reused.
+ * The cache is disabled when the revision is unknown or when {@link #DISABLED_KEY} is set. Least recently used entries
+ * are deleted when the cache is larger than {@link #MAX_SIZE_IN_BYTES}.
+ */
+@Properties({
+  @Property(
+    key = BlameCache.DISABLED_KEY,
+    defaultValue = "false",
+    name = "Disable the blame cache",
+    description = "By default blame results are cached in the user home and reused by the analyses of the same revision. "
+      + "Set this parameter to true to always ask the SCM provider.",
+    category = CoreProperties.CATEGORY_SCM,
+    project = false,
+    module = false,
+    global = false,
+    type = PropertyType.BOOLEAN)
+})
+public class BlameCache {
+
+  private static final Logger LOG = Loggers.get(BlameCache.class);
+
+  public static final String DISABLED_KEY = "sonar.scm.blameCache.disabled";
+
+  static final long MAX_SIZE_IN_BYTES = 100L * 1024 * 1024;
+  static final long TEMP_FILE_MAX_AGE_IN_MS = 60L * 60 * 1000;
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  private final File cacheDir;
+  private final ScmRevision scmRevision;
+  private final boolean disabled;
+  private final AtomicInteger hits = new AtomicInteger();
+  private final AtomicInteger misses = new AtomicInteger();
+  private Optional<String> revision;
+
+  public BlameCache(PluginFiles pluginFiles, ScmRevision scmRevision, Configuration settings) {
+    this.cacheDir = new File(pluginFiles.getCacheDir(), "blame");
+    this.scmRevision = scmRevision;
+    this.disabled = settings.getBoolean(DISABLED_KEY).orElse(false);
+  }
+
+  /**
+   * @return the changesets of the file computed by a previous analysis, referencing the component of {@code file}
+   */
+  public Optional<ScannerReport.Changesets> get(DefaultInputFile file) {
+    Optional<File> entry = entryFile(file);
+    if (!entry.isPresent()) {
+      return Optional.empty();
+    }
+    File entryFile = entry.get();
+    if (!entryFile.isFile()) {
+      misses.incrementAndGet();
+      return Optional.empty();
+    }
+    try {
+      ScannerReport.Changesets changesets = Protobuf.read(entryFile, ScannerReport.Changesets.parser());
+      // keep track of usage for the eviction of least recently used entries
+      entryFile.setLastModified(System.currentTimeMillis());
+      hits.incrementAndGet();
+      return Optional.of(changesets.toBuilder().setComponentRef(file.scannerId()).build());
+    } catch (RuntimeException e) {
+      LOG.debug("Fail to read blame of {} from cache", file, e);
+      misses.incrementAndGet();
+      return Optional.empty();
+    }
+  }
+
+  public void put(DefaultInputFile file, ScannerReport.Changesets changesets) {
+    Optional<File> entry = entryFile(file);
+    if (!entry.isPresent()) {
+      return;
+    }
+    try {
+      Files.createDirectories(cacheDir.toPath());
+      // written to a temporary file first, as the cache can be shared by concurrent analyses
+      Path tempFile = Files.createTempFile(cacheDir.toPath(), "blame", TEMP_FILE_SUFFIX);
+      try {
+        Protobuf.write(changesets.toBuilder().clearComponentRef().build(), tempFile.toFile());
+        Files.move(tempFile, entry.get().toPath(), StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        // no-op if the file has been moved
+        deleteQuietly(tempFile);
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Fail to write blame of {} to cache", file, e);
+    }
+  }
+
+  /**
+   * Logs the hit rate of the cache and deletes the least recently used entries if the cache is too large.
+   * Temporary files may be written by concurrent analyses, so they are deleted only when older than
+   * {@link #TEMP_FILE_MAX_AGE_IN_MS}, for instance when an analysis was killed.
+   */
+  public void finish() {
+    int total = hits.get() + misses.get();
+    if (total > 0) {
+      LOG.info("SCM Publisher {}/{} source files found in blame cache", hits.get(), total);
+    }
+    if (disabled) {
+      return;
+    }
+    deleteStaleTempFiles();
+    File[] entries = cacheDir.listFiles((dir, name) -> !name.endsWith(TEMP_FILE_SUFFIX));
+    if (entries == null) {
+      return;
+    }
+    long size = Arrays.stream(entries).mapToLong(File::length).sum();
+    if (size <= MAX_SIZE_IN_BYTES) {
+      return;
+    }
+    Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+    for (File entryFile : entries) {
+      if (size <= MAX_SIZE_IN_BYTES) {
+        break;
+      }
+      long length = entryFile.length();
+      if (entryFile.delete()) {
+        size -= length;
+      }
+    }
+  }
+
+  private void deleteStaleTempFiles() {
+    File[] tempFiles = cacheDir.listFiles((dir, name) -> name.endsWith(TEMP_FILE_SUFFIX));
+    if (tempFiles == null) {
+      return;
+    }
+    long minLastModified = System.currentTimeMillis() - TEMP_FILE_MAX_AGE_IN_MS;
+    Arrays.stream(tempFiles)
+      .filter(tempFile -> tempFile.lastModified() < minLastModified)
+      .forEach(File::delete);
+  }
+
+  private Optional<File> entryFile(DefaultInputFile file) {
+    if (disabled) {
+      return Optional.empty();
+    }
+    return revision()
+      .map(rev -> DigestUtils.sha1Hex(rev + '\n' + file.getProjectRelativePath() + '\n' + file.hash()))
+      .map(key -> new File(cacheDir, key));
+  }
+
+  private synchronized Optional<String> revision() {
+    if (revision == null) {
+      revision = scmRevision.get();
+    }
+    return revision;
+  }
+}
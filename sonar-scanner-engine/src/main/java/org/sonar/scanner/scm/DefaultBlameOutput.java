@@ -20,6 +20,7 @@
 package org.sonar.scanner.scm;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
@@ -48,14 +49,17 @@ class DefaultBlameOutput implements BlameOutput {
 
   private final ScannerReportWriter writer;
   private AnalysisWarnings analysisWarnings;
+  private final BlameCache blameCache;
   private final Set<InputFile> allFilesToBlame = new LinkedHashSet<>();
+  private final Set<InputFile> filesBeingBlamed = new HashSet<>();
   private ProgressReport progressReport;
   private int count;
   private int total;
 
-  DefaultBlameOutput(ScannerReportWriter writer, AnalysisWarnings analysisWarnings, List<InputFile> filesToBlame) {
+  DefaultBlameOutput(ScannerReportWriter writer, AnalysisWarnings analysisWarnings, List<InputFile> filesToBlame, BlameCache blameCache) {
     this.writer = writer;
     this.analysisWarnings = analysisWarnings;
+    this.blameCache = blameCache;
     this.allFilesToBlame.addAll(filesToBlame);
     count = 0;
     total = filesToBlame.size();
@@ -63,25 +67,36 @@ class DefaultBlameOutput implements BlameOutput {
     progressReport.start("SCM Publisher " + total + " " + pluralize(total) + " to be analyzed");
   }
 
+  /**
+   * Can be called concurrently by providers. Only the progress of blame is synchronized, changesets
+   * are built and written in parallel. A file is claimed by the first call, so that each file of the report
+   * is written by a single call.
+   */
   @Override
-  public synchronized void blameResult(InputFile file, List<BlameLine> lines) {
+  public void blameResult(InputFile file, List<BlameLine> lines) {
     checkNotNull(file);
     checkNotNull(lines);
-    checkArgument(allFilesToBlame.contains(file), "It was not expected to blame file %s", file);
-
-    if (lines.size() != file.lines()) {
-      LOG.debug("Ignoring blame result since provider returned {} blame lines but file {} has {} lines", lines.size(), file, file.lines());
-      return;
+    claim(file);
+    try {
+      if (lines.size() != file.lines()) {
+        LOG.debug("Ignoring blame result since provider returned {} blame lines but file {} has {} lines", lines.size(), file, file.lines());
+        return;
+      }
+      writeChangesets((DefaultInputFile) file, lines);
+      markAsBlamed(file);
+    } finally {
+      release(file);
     }
+  }
 
+  private void writeChangesets(DefaultInputFile inputFile, List<BlameLine> lines) {
     Builder scmBuilder = ScannerReport.Changesets.newBuilder();
-    DefaultInputFile inputFile = (DefaultInputFile) file;
     scmBuilder.setComponentRef(inputFile.scannerId());
     Map<String, Integer> changesetsIdByRevision = new HashMap<>();
 
     int lineId = 1;
     for (BlameLine line : lines) {
-      validateLine(line, lineId, file);
+      validateLine(line, lineId, inputFile);
       Integer changesetId = changesetsIdByRevision.get(line.revision());
       if (changesetId == null) {
         addChangeset(scmBuilder, line);
@@ -91,7 +106,23 @@ class DefaultBlameOutput implements BlameOutput {
       scmBuilder.addChangesetIndexByLine(changesetId);
       lineId++;
     }
-    writer.writeComponentChangesets(scmBuilder.build());
+    ScannerReport.Changesets changesets = scmBuilder.build();
+    writer.writeComponentChangesets(changesets);
+    blameCache.put(inputFile, changesets);
+  }
+
+  private synchronized void claim(InputFile file) {
+    checkArgument(allFilesToBlame.contains(file) && filesBeingBlamed.add(file), "It was not expected to blame file %s", file);
+  }
+
+  /**
+   * Files whose result has been ignored or has failed are still expected
+   */
+  private synchronized void release(InputFile file) {
+    filesBeingBlamed.remove(file);
+  }
+
+  private synchronized void markAsBlamed(InputFile file) {
     allFilesToBlame.remove(file);
     count++;
     progressReport.message(count + "/" + total + " " + pluralize(count) + " have been analyzed");
@@ -126,7 +157,7 @@ class DefaultBlameOutput implements BlameOutput {
     }
   }
 
-  public void finish(boolean success) {
+  public synchronized void finish(boolean success) {
     progressReport.stopAndLogTotalTime("SCM Publisher " + count + "/" + total + " " + pluralize(count) + " have been analyzed");
     if (success && !allFilesToBlame.isEmpty()) {
       LOG.warn("Missing blame information for the following files:");
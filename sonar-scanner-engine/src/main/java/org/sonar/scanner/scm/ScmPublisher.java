@@ -21,6 +21,7 @@ package org.sonar.scanner.scm;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Optional;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.fs.FileSystem;
@@ -51,9 +52,11 @@ public final class ScmPublisher {
   private final ScannerReportWriter writer;
   private AnalysisWarnings analysisWarnings;
   private final BranchConfiguration branchConfiguration;
+  private final BlameCache blameCache;
 
   public ScmPublisher(ScmConfiguration configuration, ProjectRepositoriesSupplier projectRepositoriesSupplier,
-    InputComponentStore componentStore, FileSystem fs, ReportPublisher reportPublisher, BranchConfiguration branchConfiguration, AnalysisWarnings analysisWarnings) {
+    InputComponentStore componentStore, FileSystem fs, ReportPublisher reportPublisher, BranchConfiguration branchConfiguration, AnalysisWarnings analysisWarnings,
+    BlameCache blameCache) {
     this.configuration = configuration;
     this.projectRepositoriesSupplier = projectRepositoriesSupplier;
     this.componentStore = componentStore;
@@ -61,6 +64,7 @@ public final class ScmPublisher {
     this.branchConfiguration = branchConfiguration;
     this.writer = reportPublisher.getWriter();
     this.analysisWarnings = analysisWarnings;
+    this.blameCache = blameCache;
   }
 
   public void publish() {
@@ -76,10 +80,11 @@ public final class ScmPublisher {
     }
 
     List<InputFile> filesToBlame = collectFilesToBlame(writer);
+    filesToBlame = copyDataFromBlameCache(filesToBlame);
     if (!filesToBlame.isEmpty()) {
       String key = provider.key();
       LOG.info("SCM Publisher SCM provider for this project is: " + key);
-      DefaultBlameOutput output = new DefaultBlameOutput(writer, analysisWarnings, filesToBlame);
+      DefaultBlameOutput output = new DefaultBlameOutput(writer, analysisWarnings, filesToBlame, blameCache);
       try {
         provider.blameCommand().blame(new DefaultBlameInput(fs, filesToBlame), output);
       } catch (Exception e) {
@@ -88,6 +93,23 @@ public final class ScmPublisher {
       }
       output.finish(true);
     }
+    blameCache.finish();
+  }
+
+  /**
+   * @return the files that are not in the blame cache
+   */
+  private List<InputFile> copyDataFromBlameCache(List<InputFile> filesToBlame) {
+    List<InputFile> notCached = new LinkedList<>();
+    for (InputFile f : filesToBlame) {
+      Optional<ScannerReport.Changesets> changesets = blameCache.get((DefaultInputFile) f);
+      if (changesets.isPresent()) {
+        writer.writeComponentChangesets(changesets.get());
+      } else {
+        notCached.add(f);
+      }
+    }
+    return notCached;
   }
 
   private List<InputFile> collectFilesToBlame(ScannerReportWriter writer) {
@@ -20,12 +20,14 @@
 package org.sonar.scanner.sensor;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.function.IntUnaryOperator;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputComponent;
@@ -118,6 +120,7 @@ public class DefaultSensorStorage implements SensorStorage {
   private final ScannerMetrics scannerMetrics;
   private final BranchConfiguration branchConfiguration;
   private final Set<String> alreadyLogged = new HashSet<>();
+  private final Map<DefaultInputFile, CoverageAccumulator> pendingCoverage = new LinkedHashMap<>();
 
   public DefaultSensorStorage(MetricFinder metricFinder, IssuePublisher moduleIssues, Configuration settings,
     ReportPublisher reportPublisher, SonarCpdBlockIndex index,
@@ -326,23 +329,31 @@ public class DefaultSensorStorage implements SensorStorage {
         }).collect(Collectors.toList()));
   }
 
+  /**
+   * Coverage is merged in memory, then written to the report by {@link #flushCoverage()}
+   */
   @Override
   public void store(NewCoverage coverage) {
     DefaultCoverage defaultCoverage = (DefaultCoverage) coverage;
     DefaultInputFile inputFile = (DefaultInputFile) defaultCoverage.inputFile();
     inputFile.setPublished(true);
 
-    Map<Integer, ScannerReport.LineCoverage.Builder> coveragePerLine = reloadExistingCoverage(inputFile);
-
-    int lineCount = inputFile.lines();
-    mergeLineCoverageValues(lineCount, defaultCoverage.hitsByLine(), coveragePerLine, (value, builder) -> builder.setHits(builder.getHits() || value > 0));
-    mergeLineCoverageValues(lineCount, defaultCoverage.conditionsByLine(), coveragePerLine, (value, builder) -> builder.setConditions(max(value, builder.getConditions())));
-    mergeLineCoverageValues(lineCount, defaultCoverage.coveredConditionsByLine(), coveragePerLine,
-      (value, builder) -> builder.setCoveredConditions(max(value, builder.getCoveredConditions())));
-
-    reportPublisher.getWriter().writeComponentCoverage(inputFile.scannerId(),
-      coveragePerLine.values().stream().map(ScannerReport.LineCoverage.Builder::build).collect(Collectors.toList()));
+    pendingCoverage.computeIfAbsent(inputFile, f -> new CoverageAccumulator(f.lines())).add(defaultCoverage);
+  }
 
+  /**
+   * Writes the coverage stored since last call, merged with the coverage already written to the report.
+   * It is called after the execution of each sensor.
+   */
+  public void flushCoverage() {
+    for (Map.Entry<DefaultInputFile, CoverageAccumulator> entry : pendingCoverage.entrySet()) {
+      DefaultInputFile inputFile = entry.getKey();
+      Map<Integer, ScannerReport.LineCoverage.Builder> coveragePerLine = reloadExistingCoverage(inputFile);
+      entry.getValue().mergeInto(coveragePerLine);
+      reportPublisher.getWriter().writeComponentCoverage(inputFile.scannerId(),
+        coveragePerLine.values().stream().map(ScannerReport.LineCoverage.Builder::build).collect(Collectors.toList()));
+    }
+    pendingCoverage.clear();
   }
 
   private Map<Integer, ScannerReport.LineCoverage.Builder> reloadExistingCoverage(DefaultInputFile inputFile) {
@@ -356,17 +367,58 @@ public class DefaultSensorStorage implements SensorStorage {
     return coveragePerLine;
   }
 
-  interface LineCoverageOperation {
-    void apply(Integer value, ScannerReport.LineCoverage.Builder builder);
-  }
+  /**
+   * Coverage of the lines of a file, indexed by line number. {@link #UNDEFINED} means that no value was stored for the line.
+   */
+  private static class CoverageAccumulator {
+    private static final int UNDEFINED = -1;
+
+    private final int[] hits;
+    private final int[] conditions;
+    private final int[] coveredConditions;
+
+    private CoverageAccumulator(int lineCount) {
+      this.hits = newUndefinedArray(lineCount + 1);
+      this.conditions = newUndefinedArray(lineCount + 1);
+      this.coveredConditions = newUndefinedArray(lineCount + 1);
+    }
+
+    private static int[] newUndefinedArray(int size) {
+      int[] array = new int[size];
+      Arrays.fill(array, UNDEFINED);
+      return array;
+    }
 
-  private void mergeLineCoverageValues(int lineCount, SortedMap<Integer, Integer> valueByLine, Map<Integer, ScannerReport.LineCoverage.Builder> coveragePerLine,
-    LineCoverageOperation op) {
-    for (Map.Entry<Integer, Integer> lineMeasure : valueByLine.entrySet()) {
-      int lineIdx = lineMeasure.getKey();
-      if (lineIdx <= lineCount) {
-        Integer value = lineMeasure.getValue();
-        op.apply(value, coveragePerLine.computeIfAbsent(lineIdx, line -> ScannerReport.LineCoverage.newBuilder().setLine(line)));
+    private void add(DefaultCoverage coverage) {
+      merge(coverage.hitsByLine(), hits, value -> value > 0 ? 1 : 0);
+      merge(coverage.conditionsByLine(), conditions, value -> value);
+      merge(coverage.coveredConditionsByLine(), coveredConditions, value -> value);
+    }
+
+    private static void merge(SortedMap<Integer, Integer> valueByLine, int[] values, IntUnaryOperator mapper) {
+      for (Map.Entry<Integer, Integer> lineValue : valueByLine.entrySet()) {
+        int line = lineValue.getKey();
+        if (line < values.length) {
+          values[line] = max(values[line], max(0, mapper.applyAsInt(lineValue.getValue())));
+        }
+      }
+    }
+
+    private void mergeInto(Map<Integer, ScannerReport.LineCoverage.Builder> coveragePerLine) {
+      for (int line = 1; line < hits.length; line++) {
+        if (hits[line] == UNDEFINED && conditions[line] == UNDEFINED && coveredConditions[line] == UNDEFINED) {
+          continue;
+        }
+        ScannerReport.LineCoverage.Builder builder = coveragePerLine.computeIfAbsent(line, l -> ScannerReport.LineCoverage.newBuilder().setLine(l));
+        if (hits[line] != UNDEFINED) {
+          builder.setHits(builder.getHits() || hits[line] > 0);
+        }
+        if (conditions[line] != UNDEFINED) {
+          builder.setConditions(max(conditions[line], builder.getConditions()));
+        }
+        if (coveredConditions[line] != UNDEFINED) {
+          builder.setCoveredConditions(max(coveredConditions[line], builder.getCoveredConditions()));
+        }
       }
     }
   }
@@ -37,13 +37,15 @@ public class ModuleSensorsExecutor {
   private final ModuleSensorExtensionDictionnary selector;
   private final SensorStrategy strategy;
   private final ScannerPluginRepository pluginRepo;
+  private final DefaultSensorStorage sensorStorage;
   private final boolean isRoot;
 
   public ModuleSensorsExecutor(ModuleSensorExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy,
-    SensorStrategy strategy, ScannerPluginRepository pluginRepo) {
+    SensorStrategy strategy, ScannerPluginRepository pluginRepo, DefaultSensorStorage sensorStorage) {
     this.selector = selector;
     this.strategy = strategy;
     this.pluginRepo = pluginRepo;
+    this.sensorStorage = sensorStorage;
     this.isRoot = hierarchy.isRoot(module);
   }
 
@@ -83,6 +85,7 @@ public class ModuleSensorsExecutor {
       String sensorName = getSensorName(sensor);
       profiler.startInfo("Sensor " + sensorName);
       sensor.analyse();
+      sensorStorage.flushCoverage();
       profiler.stopInfo();
     }
   }
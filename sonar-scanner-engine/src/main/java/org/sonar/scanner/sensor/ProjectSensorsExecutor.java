@@ -31,10 +31,12 @@ public class ProjectSensorsExecutor {
   private static final Profiler profiler = Profiler.create(LOG);
   private final ProjectSensorExtensionDictionnary selector;
   private final ScannerPluginRepository pluginRepo;
+  private final DefaultSensorStorage sensorStorage;
 
-  public ProjectSensorsExecutor(ProjectSensorExtensionDictionnary selector, ScannerPluginRepository pluginRepo) {
+  public ProjectSensorsExecutor(ProjectSensorExtensionDictionnary selector, ScannerPluginRepository pluginRepo, DefaultSensorStorage sensorStorage) {
     this.selector = selector;
     this.pluginRepo = pluginRepo;
+    this.sensorStorage = sensorStorage;
   }
 
   public void execute() {
@@ -47,6 +49,7 @@ public class ProjectSensorsExecutor {
       String sensorName = getSensorName(sensor);
       profiler.startInfo("Sensor " + sensorName);
       sensor.analyse();
+      sensorStorage.flushCoverage();
       profiler.stopInfo();
     }
   }
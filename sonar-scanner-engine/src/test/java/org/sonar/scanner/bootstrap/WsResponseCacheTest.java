@@ -0,0 +1,183 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.bootstrap;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.WsRequest;
+import org.sonarqube.ws.client.WsResponse;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WsResponseCacheTest {
+
+  private static final String PATH = "/api/foo?key=bar";
+  private static final String ETAG = "W/\"etag\"";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private ScannerWsClient wsClient = mock(ScannerWsClient.class);
+  private File cacheDir;
+  private WsResponseCache underTest;
+
+  @Before
+  public void setUp() throws IOException {
+    when(wsClient.baseUrl()).thenReturn("http://localhost:9000");
+    cacheDir = new File(temp.newFolder(), "foo");
+    underTest = new WsResponseCache(wsClient, cacheDir);
+  }
+
+  @Test
+  public void reuse_cached_response_when_not_modified() throws IOException {
+    when(wsClient.call(any(WsRequest.class)))
+      .thenReturn(mockResponse("first", ETAG))
+      .thenThrow(new HttpException(PATH, 304, ""));
+
+    assertThat(underTest.get(PATH, WsResponseCacheTest::read)).isEqualTo("first");
+    assertThat(underTest.get(PATH, WsResponseCacheTest::read)).isEqualTo("first");
+
+    WsRequest[] requests = verifyCalls(2);
+    assertThat(requests[0].getPath()).isEqualTo(PATH);
+    assertThat(requests[0].getHeaders().getValue("If-None-Match")).isEmpty();
+    assertThat(requests[1].getHeaders().getValue("If-None-Match")).contains(ETAG);
+  }
+
+  @Test
+  public void replace_cached_response_when_modified() throws IOException {
+    when(wsClient.call(any(WsRequest.class)))
+      .thenReturn(mockResponse("first", ETAG))
+      .thenReturn(mockResponse("second", "W/\"other\""))
+      .thenThrow(new HttpException(PATH, 304, ""));
+
+    assertThat(underTest.get(PATH, WsResponseCacheTest::read)).isEqualTo("first");
+    assertThat(underTest.get(PATH, WsResponseCacheTest::read)).isEqualTo("second");
+    assertThat(underTest.get(PATH, WsResponseCacheTest::read)).isEqualTo("second");
+
+    WsRequest[] requests = verifyCalls(3);
+    assertThat(requests[2].getHeaders().getValue("If-None-Match")).contains("W/\"other\"");
+  }
+
+  @Test
+  public void do_not_cache_response_without_etag() throws IOException {
+    when(wsClient.call(any(WsRequest.class)))
+      .thenReturn(mockResponse("first", null))
+      .thenReturn(mockResponse("second", null));
+
+    assertThat(underTest.get(PATH, WsResponseCacheTest::read)).isEqualTo("first");
+    assertThat(underTest.get(PATH, WsResponseCacheTest::read)).isEqualTo("second");
+
+    assertThat(cacheDir).doesNotExist();
+    WsRequest[] requests = verifyCalls(2);
+    assertThat(requests[1].getHeaders().getValue("If-None-Match")).isEmpty();
+  }
+
+  @Test
+  public void download_again_if_cached_response_can_not_be_read() throws IOException {
+    when(wsClient.call(any(WsRequest.class)))
+      .thenReturn(mockResponse("first", ETAG))
+      .thenThrow(new HttpException(PATH, 304, ""))
+      .thenReturn(mockResponse("second", ETAG));
+    underTest.get(PATH, WsResponseCacheTest::read);
+    File[] cacheFiles = cacheDir.listFiles();
+    assertThat(cacheFiles).hasSize(1);
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(cacheFiles[0]))) {
+      output.writeUTF(ETAG);
+      output.write("corrupted".getBytes(UTF_8));
+    }
+
+    String body = underTest.get(PATH, input -> {
+      String content = read(input);
+      if (content.equals("corrupted")) {
+        throw new IOException("Corrupted");
+      }
+      return content;
+    });
+
+    assertThat(body).isEqualTo("second");
+    WsRequest[] requests = verifyCalls(3);
+    assertThat(requests[1].getHeaders().getValue("If-None-Match")).contains(ETAG);
+    assertThat(requests[2].getHeaders().getValue("If-None-Match")).isEmpty();
+  }
+
+  @Test
+  public void delete_temporary_file_if_download_fails() {
+    WsResponse response = mock(WsResponse.class);
+    when(response.header("ETag")).thenReturn(Optional.of(ETAG));
+    when(response.contentStream()).thenReturn(new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("Connection reset");
+      }
+    });
+    when(wsClient.call(any(WsRequest.class))).thenReturn(response);
+
+    assertThatThrownBy(() -> underTest.get(PATH, WsResponseCacheTest::read))
+      .isInstanceOf(IOException.class)
+      .hasMessage("Connection reset");
+
+    assertThat(cacheDir.listFiles()).isEmpty();
+  }
+
+  @Test
+  public void fail_if_server_fails() {
+    when(wsClient.call(any(WsRequest.class))).thenThrow(new HttpException(PATH, 500, ""));
+
+    assertThatThrownBy(() -> underTest.get(PATH, WsResponseCacheTest::read))
+      .isInstanceOf(HttpException.class);
+  }
+
+  private WsRequest[] verifyCalls(int count) {
+    ArgumentCaptor<WsRequest> requests = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(count)).call(requests.capture());
+    return requests.getAllValues().toArray(new WsRequest[0]);
+  }
+
+  private static WsResponse mockResponse(String body, @Nullable String eTag) {
+    WsResponse response = mock(WsResponse.class);
+    when(response.header("ETag")).thenReturn(Optional.ofNullable(eTag));
+    when(response.contentStream()).thenReturn(new ByteArrayInputStream(body.getBytes(UTF_8)));
+    return response;
+  }
+
+  private static String read(InputStream input) throws IOException {
+    return IOUtils.toString(input, UTF_8);
+  }
+}
@@ -19,7 +19,11 @@
  */
 package org.sonar.scanner.externalissue;
 
+import com.google.gson.Gson;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import javax.annotation.Nullable;
 import org.apache.commons.lang.math.RandomUtils;
 import org.junit.Before;
@@ -36,6 +40,7 @@ import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonMap;
 import static org.apache.commons.lang.ObjectUtils.defaultIfNull;
 import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -63,12 +68,8 @@ public class ExternalIssueImporterTest {
   }
 
   @Test
-  public void import_zero_issues() {
-    ReportParser.Report report = new ReportParser.Report();
-    report.issues = new ReportParser.Issue[0];
-
-    ExternalIssueImporter underTest = new ExternalIssueImporter(this.context, report);
-    underTest.execute();
+  public void import_zero_issues() throws IOException {
+    runOn();
 
     assertThat(context.allExternalIssues()).isEmpty();
     assertThat(context.allIssues()).isEmpty();
@@ -76,8 +77,7 @@ public class ExternalIssueImporterTest {
   }
 
   @Test
-  public void import_issue_with_minimal_info() {
-    ReportParser.Report report = new ReportParser.Report();
+  public void import_issue_with_minimal_info() throws IOException {
     ReportParser.Issue input = new ReportParser.Issue();
     input.engineId = "findbugs";
     input.ruleId = "123";
@@ -86,10 +86,8 @@ public class ExternalIssueImporterTest {
     input.primaryLocation = new ReportParser.Location();
     input.primaryLocation.filePath = sourceFile.getProjectRelativePath();
     input.primaryLocation.message = randomAlphabetic(5);
-    report.issues = new ReportParser.Issue[] {input};
 
-    ExternalIssueImporter underTest = new ExternalIssueImporter(this.context, report);
-    underTest.execute();
+    runOn(input);
 
     assertThat(context.allExternalIssues()).hasSize(1);
     ExternalIssue output = context.allExternalIssues().iterator().next();
@@ -101,7 +99,7 @@ public class ExternalIssueImporterTest {
   }
 
   @Test
-  public void import_issue_with_complete_primary_location() {
+  public void import_issue_with_complete_primary_location() throws IOException {
     ReportParser.TextRange input = new ReportParser.TextRange();
     input.startLine = 1;
     input.startColumn = 4;
@@ -120,7 +118,7 @@ public class ExternalIssueImporterTest {
    * The end line is ignored.
    */
   @Test
-  public void import_issue_with_no_columns() {
+  public void import_issue_with_no_columns() throws IOException {
     ReportParser.TextRange input = new ReportParser.TextRange();
     input.startLine = 1;
     input.startColumn = null;
@@ -141,7 +139,7 @@ public class ExternalIssueImporterTest {
    * If end column is not defined, then issue is assumed to be until the last character of the end line.
    */
   @Test
-  public void import_issue_with_start_but_not_end_column() {
+  public void import_issue_with_start_but_not_end_column() throws IOException {
     ReportParser.TextRange input = new ReportParser.TextRange();
     input.startLine = 1;
     input.startColumn = 3;
@@ -165,11 +163,11 @@ public class ExternalIssueImporterTest {
     assertThat(got.end().lineOffset()).isEqualTo(defaultIfNull(expected.endColumn, 0));
   }
 
-  private void runOn(ReportParser.Issue input) {
-    ReportParser.Report report = new ReportParser.Report();
-    report.issues = new ReportParser.Issue[] {input};
+  private void runOn(ReportParser.Issue... issues) throws IOException {
+    Path reportFile = temp.newFile("report.json").toPath();
+    Files.write(reportFile, new Gson().toJson(singletonMap("issues", issues)).getBytes(UTF_8));
 
-    ExternalIssueImporter underTest = new ExternalIssueImporter(this.context, report);
+    ExternalIssueImporter underTest = new ExternalIssueImporter(this.context, new ReportParser(reportFile));
     underTest.execute();
   }
 
@@ -21,12 +21,15 @@ package org.sonar.scanner.externalissue;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
-import org.sonar.scanner.externalissue.ReportParser.Report;
+import org.sonar.scanner.externalissue.ReportParser.Issue;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class ReportParserTest {
   @Rule
@@ -36,34 +39,46 @@ public class ReportParserTest {
   public void parse_sample() {
     ReportParser parser = new ReportParser(Paths.get("src/test/resources/org/sonar/scanner/externalissue/report.json"));
 
-    Report report = parser.parse();
-
-    assertThat(report.issues).hasSize(4);
-    assertThat(report.issues[0].engineId).isEqualTo("eslint");
-    assertThat(report.issues[0].ruleId).isEqualTo("rule1");
-    assertThat(report.issues[0].severity).isEqualTo("MAJOR");
-    assertThat(report.issues[0].effortMinutes).isEqualTo(40);
-    assertThat(report.issues[0].type).isEqualTo("CODE_SMELL");
-    assertThat(report.issues[0].primaryLocation.filePath).isEqualTo("file1.js");
-    assertThat(report.issues[0].primaryLocation.message).isEqualTo("fix the issue here");
-    assertThat(report.issues[0].primaryLocation.textRange.startColumn).isEqualTo(2);
-    assertThat(report.issues[0].primaryLocation.textRange.startLine).isEqualTo(1);
-    assertThat(report.issues[0].primaryLocation.textRange.endColumn).isEqualTo(4);
-    assertThat(report.issues[0].primaryLocation.textRange.endLine).isEqualTo(3);
-    assertThat(report.issues[0].secondaryLocations).isNull();
-
-    assertThat(report.issues[3].engineId).isEqualTo("eslint");
-    assertThat(report.issues[3].ruleId).isEqualTo("rule3");
-    assertThat(report.issues[3].severity).isEqualTo("MAJOR");
-    assertThat(report.issues[3].effortMinutes).isNull();
-    assertThat(report.issues[3].type).isEqualTo("BUG");
-    assertThat(report.issues[3].secondaryLocations).hasSize(2);
-    assertThat(report.issues[3].secondaryLocations[0].filePath).isEqualTo("file1.js");
-    assertThat(report.issues[3].secondaryLocations[0].message).isEqualTo("fix the bug here");
-    assertThat(report.issues[3].secondaryLocations[0].textRange.startLine).isEqualTo(1);
-    assertThat(report.issues[3].secondaryLocations[1].filePath).isEqualTo("file2.js");
-    assertThat(report.issues[3].secondaryLocations[1].message).isNull();
-    assertThat(report.issues[3].secondaryLocations[1].textRange.startLine).isEqualTo(2);
+    List<Issue> issues = new ArrayList<>();
+    parser.parse(issues::add);
+
+    assertThat(issues).hasSize(4);
+    assertThat(issues.get(0).engineId).isEqualTo("eslint");
+    assertThat(issues.get(0).ruleId).isEqualTo("rule1");
+    assertThat(issues.get(0).severity).isEqualTo("MAJOR");
+    assertThat(issues.get(0).effortMinutes).isEqualTo(40);
+    assertThat(issues.get(0).type).isEqualTo("CODE_SMELL");
+    assertThat(issues.get(0).primaryLocation.filePath).isEqualTo("file1.js");
+    assertThat(issues.get(0).primaryLocation.message).isEqualTo("fix the issue here");
+    assertThat(issues.get(0).primaryLocation.textRange.startColumn).isEqualTo(2);
+    assertThat(issues.get(0).primaryLocation.textRange.startLine).isEqualTo(1);
+    assertThat(issues.get(0).primaryLocation.textRange.endColumn).isEqualTo(4);
+    assertThat(issues.get(0).primaryLocation.textRange.endLine).isEqualTo(3);
+    assertThat(issues.get(0).secondaryLocations).isNull();
+
+    assertThat(issues.get(3).engineId).isEqualTo("eslint");
+    assertThat(issues.get(3).ruleId).isEqualTo("rule3");
+    assertThat(issues.get(3).severity).isEqualTo("MAJOR");
+    assertThat(issues.get(3).effortMinutes).isNull();
+    assertThat(issues.get(3).type).isEqualTo("BUG");
+    assertThat(issues.get(3).secondaryLocations).hasSize(2);
+    assertThat(issues.get(3).secondaryLocations[0].filePath).isEqualTo("file1.js");
+    assertThat(issues.get(3).secondaryLocations[0].message).isEqualTo("fix the bug here");
+    assertThat(issues.get(3).secondaryLocations[0].textRange.startLine).isEqualTo(1);
+    assertThat(issues.get(3).secondaryLocations[1].filePath).isEqualTo("file2.js");
+    assertThat(issues.get(3).secondaryLocations[1].message).isNull();
+    assertThat(issues.get(3).secondaryLocations[1].textRange.startLine).isEqualTo(2);
+  }
+
+  @Test
+  public void parse_lenient_json() {
+    ReportParser parser = new ReportParser(path("report_lenient_json.json"));
+
+    List<Issue> issues = new ArrayList<>();
+    parser.parse(issues::add);
+
+    assertThat(issues).extracting(i -> i.ruleId).containsExactly("rule1");
+    assertThat(issues.get(0).primaryLocation.filePath).isEqualTo("file1.js");
   }
 
   private Path path(String reportName) {
@@ -75,7 +90,8 @@ public class ReportParserTest {
     ReportParser parser = new ReportParser(Paths.get("unknown.json"));
     exception.expect(IllegalStateException.class);
     exception.expectMessage("Failed to read external issues report 'unknown.json'");
-    parser.parse();
+    parser.parse(issue -> {
+    });
   }
 
   @Test
@@ -83,7 +99,17 @@ public class ReportParserTest {
     ReportParser parser = new ReportParser(path("report_invalid_json.json"));
     exception.expect(IllegalStateException.class);
     exception.expectMessage("invalid JSON syntax");
-    parser.parse();
+    parser.parse(issue -> {
+    });
+  }
+
+  @Test
+  public void fail_if_issues_not_set() {
+    ReportParser parser = new ReportParser(path("report_missing_issues.json"));
+    exception.expect(IllegalStateException.class);
+    exception.expectMessage("missing mandatory field 'issues'");
+    parser.parse(issue -> {
+    });
   }
 
   @Test
@@ -91,7 +117,8 @@ public class ReportParserTest {
     ReportParser parser = new ReportParser(path("report_missing_primaryLocation.json"));
     exception.expect(IllegalStateException.class);
     exception.expectMessage("missing mandatory field 'primaryLocation'");
-    parser.parse();
+    parser.parse(issue -> {
+    });
   }
 
   @Test
@@ -99,7 +126,8 @@ public class ReportParserTest {
     ReportParser parser = new ReportParser(path("report_missing_engineId.json"));
     exception.expect(IllegalStateException.class);
     exception.expectMessage("missing mandatory field 'engineId'");
-    parser.parse();
+    parser.parse(issue -> {
+    });
   }
 
   @Test
@@ -107,7 +135,8 @@ public class ReportParserTest {
     ReportParser parser = new ReportParser(path("report_missing_ruleId.json"));
     exception.expect(IllegalStateException.class);
     exception.expectMessage("missing mandatory field 'ruleId'");
-    parser.parse();
+    parser.parse(issue -> {
+    });
   }
 
   @Test
@@ -115,7 +144,8 @@ public class ReportParserTest {
     ReportParser parser = new ReportParser(path("report_missing_severity.json"));
     exception.expect(IllegalStateException.class);
     exception.expectMessage("missing mandatory field 'severity'");
-    parser.parse();
+    parser.parse(issue -> {
+    });
   }
 
   @Test
@@ -123,7 +153,8 @@ public class ReportParserTest {
     ReportParser parser = new ReportParser(path("report_missing_type.json"));
     exception.expect(IllegalStateException.class);
     exception.expectMessage("missing mandatory field 'type'");
-    parser.parse();
+    parser.parse(issue -> {
+    });
   }
 
   @Test
@@ -131,7 +162,8 @@ public class ReportParserTest {
     ReportParser parser = new ReportParser(path("report_missing_filePath.json"));
     exception.expect(IllegalStateException.class);
     exception.expectMessage("missing mandatory field 'filePath'");
-    parser.parse();
+    parser.parse(issue -> {
+    });
   }
   
   @Test
@@ -139,6 +171,19 @@ public class ReportParserTest {
     ReportParser parser = new ReportParser(path("report_missing_message.json"));
     exception.expect(IllegalStateException.class);
     exception.expectMessage("missing mandatory field 'message'");
-    parser.parse();
+    parser.parse(issue -> {
+    });
+  }
+
+  @Test
+  public void stop_on_first_invalid_issue() {
+    ReportParser parser = new ReportParser(path("report_missing_message.json"));
+    List<Issue> issues = new ArrayList<>();
+
+    assertThatThrownBy(() -> parser.parse(issues::add))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("missing mandatory field 'message'");
+
+    assertThat(issues).extracting(i -> i.ruleId).containsExactly("rule1");
   }
 }
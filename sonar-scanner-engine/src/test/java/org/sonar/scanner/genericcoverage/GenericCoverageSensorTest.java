@@ -19,11 +19,21 @@
  */
 package org.sonar.scanner.genericcoverage;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.config.PropertyDefinitions;
 import org.sonar.api.config.internal.Encryption;
 import org.sonar.api.utils.System2;
@@ -31,12 +41,15 @@ import org.sonar.api.utils.log.LogTester;
 import org.sonar.scanner.config.DefaultConfiguration;
 import org.sonar.scanner.scan.ProjectConfiguration;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class GenericCoverageSensorTest {
 
   @Rule
   public LogTester logTester = new LogTester();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
 
   @Test
   public void loadAllReportPaths() {
@@ -49,4 +62,70 @@ public class GenericCoverageSensorTest {
 
     assertThat(reportPaths).containsOnly("report.xml", "report2.xml");
   }
+
+  @Test
+  public void import_coverage_of_all_reports() throws IOException {
+    SensorContextTester context = SensorContextTester.create(temp.newFolder());
+    DefaultInputFile inputFile = new TestInputFileBuilder(context.module().key(), "src/Foo.java")
+      .setLanguage("java")
+      .initMetadata("1\n2\n3\n4")
+      .build();
+    context.fileSystem().add(inputFile);
+    File report1 = writeReport("<coverage version=\"1\"><file path=\"src/Foo.java\"><lineToCover lineNumber=\"1\" covered=\"true\"/></file></coverage>");
+    File report2 = writeReport("<coverage version=\"1\"><file path=\"src/Foo.java\">"
+      + "<lineToCover lineNumber=\"3\" covered=\"false\" branchesToCover=\"2\" coveredBranches=\"1\"/></file>"
+      + "<file path=\"src/Unknown.java\"/></coverage>");
+    Map<String, String> settings = new HashMap<>();
+    settings.put(GenericCoverageSensor.REPORT_PATHS_PROPERTY_KEY, report1.getAbsolutePath() + "," + report2.getAbsolutePath());
+    PropertyDefinitions defs = new PropertyDefinitions(System2.INSTANCE, GenericCoverageSensor.properties());
+    DefaultConfiguration config = new ProjectConfiguration(defs, new Encryption(null), settings);
+
+    new GenericCoverageSensor(config).execute(context);
+
+    assertThat(context.lineHits(inputFile.key(), 1)).isEqualTo(1);
+    assertThat(context.lineHits(inputFile.key(), 3)).isEqualTo(0);
+    assertThat(context.conditions(inputFile.key(), 3)).isEqualTo(2);
+    assertThat(context.coveredConditions(inputFile.key(), 3)).isEqualTo(1);
+    assertThat(logTester.logs()).containsSubsequence(
+      "Parsing " + report1,
+      "Imported coverage data for 1 files",
+      "Parsing " + report2,
+      "Imported coverage data for 1 files",
+      "Coverage data ignored for 1 unknown files, including:\nsrc/Unknown.java");
+  }
+
+  @Test
+  public void import_coverage_of_more_reports_than_threads_in_configured_order() throws IOException {
+    int numberOfReports = 2 * Runtime.getRuntime().availableProcessors() + 1;
+    SensorContextTester context = SensorContextTester.create(temp.newFolder());
+    DefaultInputFile inputFile = new TestInputFileBuilder(context.module().key(), "src/Foo.java")
+      .setLanguage("java")
+      .initMetadata(StringUtils.repeat("x\n", numberOfReports))
+      .build();
+    context.fileSystem().add(inputFile);
+    List<String> reportPaths = new ArrayList<>();
+    List<String> expectedLogs = new ArrayList<>();
+    for (int line = 1; line <= numberOfReports; line++) {
+      File report = writeReport("<coverage version=\"1\"><file path=\"src/Foo.java\"><lineToCover lineNumber=\"" + line + "\" covered=\"true\"/></file></coverage>");
+      reportPaths.add(report.getAbsolutePath());
+      expectedLogs.add("Parsing " + report);
+    }
+    Map<String, String> settings = new HashMap<>();
+    settings.put(GenericCoverageSensor.REPORT_PATHS_PROPERTY_KEY, String.join(",", reportPaths));
+    PropertyDefinitions defs = new PropertyDefinitions(System2.INSTANCE, GenericCoverageSensor.properties());
+    DefaultConfiguration config = new ProjectConfiguration(defs, new Encryption(null), settings);
+
+    new GenericCoverageSensor(config).execute(context);
+
+    for (int line = 1; line <= numberOfReports; line++) {
+      assertThat(context.lineHits(inputFile.key(), line)).isEqualTo(1);
+    }
+    assertThat(logTester.logs()).containsSubsequence(expectedLogs.toArray(new String[0]));
+  }
+
+  private File writeReport(String content) throws IOException {
+    File report = temp.newFile();
+    FileUtils.write(report, content, UTF_8);
+    return report;
+  }
 }
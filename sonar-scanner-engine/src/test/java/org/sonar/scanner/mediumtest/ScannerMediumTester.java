@@ -27,6 +27,7 @@ import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -34,6 +35,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
@@ -337,8 +340,8 @@ public class ScannerMediumTester extends ExternalResource {
     }
 
     @Override
-    public List<LoadedActiveRule> load(String qualityProfileKey) {
-      return activeRules;
+    public Map<String, List<LoadedActiveRule>> load(Collection<String> qualityProfileKeys) {
+      return qualityProfileKeys.stream().collect(Collectors.toMap(Function.identity(), k -> activeRules));
     }
   }
 
@@ -85,7 +85,7 @@ public class BranchMediumTest {
     int fileId = file.scannerId();
     assertThat(result.getReportReader().readChangesets(fileId)).isNotNull();
     assertThat(result.getReportReader().hasCoverage(fileId)).isTrue();
-    assertThat(result.getReportReader().readFileSource(fileId)).isNotNull();
+    assertThat(result.getReportReader().hasFileSource(fileId)).isTrue();
 
     // file is not skipped for pull requests (need coverage, duplications coming soon)
     AnalysisResult result2 = getResult(tester.setBranchType(BranchType.PULL_REQUEST));
@@ -94,7 +94,7 @@ public class BranchMediumTest {
     fileId = fileInPr.scannerId();
     assertThat(result2.getReportReader().readChangesets(fileId)).isNull();
     assertThat(result2.getReportReader().hasCoverage(fileId)).isTrue();
-    assertThat(result2.getReportReader().readFileSource(fileId)).isNull();
+    assertThat(result2.getReportReader().hasFileSource(fileId)).isFalse();
   }
 
   @Test
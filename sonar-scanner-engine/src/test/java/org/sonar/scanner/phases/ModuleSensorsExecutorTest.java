@@ -32,11 +32,13 @@ import org.sonar.scanner.bootstrap.ScannerPluginRepository;
 import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.scanner.fs.InputModuleHierarchy;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.scanner.sensor.DefaultSensorStorage;
 import org.sonar.scanner.sensor.ModuleSensorExtensionDictionnary;
 import org.sonar.scanner.sensor.ModuleSensorWrapper;
 import org.sonar.scanner.sensor.ModuleSensorsExecutor;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -54,6 +56,7 @@ public class ModuleSensorsExecutorTest {
   private ModuleSensorWrapper perModuleSensor = mock(ModuleSensorWrapper.class);
   private ModuleSensorWrapper globalSensor = mock(ModuleSensorWrapper.class);
   private ScannerPluginRepository pluginRepository = mock(ScannerPluginRepository.class);
+  private DefaultSensorStorage sensorStorage = mock(DefaultSensorStorage.class);
 
   @Before
   public void setUp() throws IOException {
@@ -78,8 +81,8 @@ public class ModuleSensorsExecutorTest {
     InputModuleHierarchy hierarchy = mock(InputModuleHierarchy.class);
     when(hierarchy.isRoot(rootModule)).thenReturn(true);
 
-    rootModuleExecutor = new ModuleSensorsExecutor(selector, rootModule, hierarchy, strategy, pluginRepository);
-    subModuleExecutor = new ModuleSensorsExecutor(selector, subModule, hierarchy, strategy, pluginRepository);
+    rootModuleExecutor = new ModuleSensorsExecutor(selector, rootModule, hierarchy, strategy, pluginRepository, sensorStorage);
+    subModuleExecutor = new ModuleSensorsExecutor(selector, subModule, hierarchy, strategy, pluginRepository, sensorStorage);
   }
 
   @Test
@@ -102,6 +105,7 @@ public class ModuleSensorsExecutorTest {
 
     verify(globalSensor).analyse();
     verify(perModuleSensor).analyse();
+    verify(sensorStorage, times(2)).flushCoverage();
 
     verifyNoMoreInteractions(perModuleSensor, globalSensor);
   }
@@ -19,13 +19,20 @@
  */
 package org.sonar.scanner.report;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -37,7 +44,6 @@ import org.sonar.api.batch.fs.internal.DefaultInputModule;
 import org.sonar.api.impl.utils.JUnitTempFolder;
 import org.sonar.api.platform.Server;
 import org.sonar.api.utils.MessageException;
-import org.sonar.api.utils.TempFolder;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.scanner.bootstrap.DefaultScannerWsClient;
@@ -48,6 +54,7 @@ import org.sonar.scanner.scan.branch.BranchConfiguration;
 import org.sonarqube.ws.Ce;
 import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.MockWsResponse;
+import org.sonarqube.ws.client.PostRequest;
 import org.sonarqube.ws.client.WsRequest;
 import org.sonarqube.ws.client.WsResponse;
 
@@ -90,6 +97,7 @@ public class ReportPublisherTest {
     when(moduleHierarchy.root()).thenReturn(root);
     when(server.getPublicRootUrl()).thenReturn("https://localhost");
     when(server.getVersion()).thenReturn("6.4");
+    when(properties.shouldStreamReportUpload()).thenReturn(true);
     when(properties.metadataFilePath()).thenReturn(reportTempFolder.newDir().toPath()
       .resolve("folder")
       .resolve("report-task.txt"));
@@ -119,7 +127,7 @@ public class ReportPublisherTest {
 
     exception.expect(MessageException.class);
     exception.expectMessage("Failed to upload report - Organization with key 'MyOrg' does not exist");
-    underTest.upload(reportTempFolder.newFile());
+    underTest.upload();
   }
 
   @Test
@@ -142,7 +150,7 @@ public class ReportPublisherTest {
     when(server.getPublicRootUrl()).thenReturn("https://publicserver/sonarqube");
     when(branchConfiguration.branchType()).thenReturn(BRANCH);
     when(branchConfiguration.branchName()).thenReturn("branch-6.7");
-    ReportPublisher underTest = new ReportPublisher(properties, wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
+    ReportPublisher underTest = new ReportPublisher(properties, wsClient, server, contextPublisher, moduleHierarchy, mode, reportTempFolder,
       new ReportPublisherStep[0], branchConfiguration, reportMetadataHolder);
 
     underTest.prepareAndDumpMetadata("TASK-123");
@@ -163,7 +171,7 @@ public class ReportPublisherTest {
     when(branchConfiguration.branchType()).thenReturn(PULL_REQUEST);
     when(branchConfiguration.pullRequestKey()).thenReturn("105");
 
-    ReportPublisher underTest = new ReportPublisher(properties, wsClient, server, contextPublisher, moduleHierarchy, mode, mock(TempFolder.class),
+    ReportPublisher underTest = new ReportPublisher(properties, wsClient, server, contextPublisher, moduleHierarchy, mode, reportTempFolder,
       new ReportPublisherStep[0], branchConfiguration, reportMetadataHolder);
 
     underTest.prepareAndDumpMetadata("TASK-123");
@@ -262,7 +270,7 @@ public class ReportPublisherTest {
     when(response.contentStream()).thenReturn(in);
 
     when(wsClient.call(any(WsRequest.class))).thenReturn(response);
-    underTest.upload(reportTempFolder.newFile());
+    underTest.upload();
 
     ArgumentCaptor<WsRequest> capture = ArgumentCaptor.forClass(WsRequest.class);
     verify(wsClient).call(capture.capture());
@@ -273,6 +281,89 @@ public class ReportPublisherTest {
     assertThat(wsRequest.getParameters().getValue("projectKey")).isEqualTo("org.sonarsource.sonarqube:sonarqube");
   }
 
+  @Test
+  public void upload_report_dir_compressed_while_sent() throws Exception {
+    underTest.start();
+    Files.write(underTest.getReportDir().resolve("metadata.pb"), new byte[] {1, 2, 3});
+    Files.write(underTest.getReportDir().resolve("issues-1.pb"), new byte[] {4});
+
+    WsResponse response = mock(WsResponse.class);
+    PipedOutputStream out = new PipedOutputStream();
+    PipedInputStream in = new PipedInputStream(out);
+    Ce.SubmitResponse.newBuilder().build().writeTo(out);
+    out.close();
+    when(response.failIfNotSuccessful()).thenReturn(response);
+    when(response.contentStream()).thenReturn(in);
+    when(wsClient.call(any(WsRequest.class))).thenReturn(response);
+    underTest.upload();
+
+    ArgumentCaptor<WsRequest> capture = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient).call(capture.capture());
+    PostRequest.Part part = ((PostRequest) capture.getValue()).getParts().get("report");
+    assertThat(part.getFileName()).isEqualTo("scanner-report.zip");
+    assertThat(part.getFile()).isNull();
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    part.getContentWriter().writeTo(zip);
+    List<String> entryNames = new ArrayList<>();
+    try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+      ZipEntry entry;
+      while ((entry = zipInput.getNextEntry()) != null) {
+        entryNames.add(entry.getName());
+      }
+    }
+    assertThat(entryNames).contains("metadata.pb", "issues-1.pb");
+    assertThat(logTester.logs(LoggerLevel.INFO))
+      .anyMatch(log -> log.startsWith("Analysis report compressed in ") && log.endsWith("zip size=" + FileUtils.byteCountToDisplaySize(zip.size())));
+  }
+
+  @Test
+  public void upload_zip_file_if_stream_upload_is_disabled() throws Exception {
+    when(properties.shouldStreamReportUpload()).thenReturn(false);
+    underTest.start();
+    Files.write(underTest.getReportDir().resolve("metadata.pb"), new byte[] {1, 2, 3});
+    List<String> entryNames = new ArrayList<>();
+    when(wsClient.call(any(WsRequest.class))).thenAnswer(invocation -> {
+      // the zip file is deleted once uploaded
+      PostRequest.Part part = ((PostRequest) invocation.getArgument(0)).getParts().get("report");
+      assertThat(part.getContentWriter()).isNull();
+      entryNames.addAll(zipEntryNames(FileUtils.readFileToByteArray(part.getFile())));
+      return newSubmitResponse();
+    });
+
+    underTest.upload();
+
+    verify(wsClient).call(any(WsRequest.class));
+    assertThat(entryNames).containsExactly("metadata.pb");
+  }
+
+  @Test
+  public void upload_zip_file_if_server_requires_length_of_streamed_report() throws Exception {
+    underTest.start();
+    Files.write(underTest.getReportDir().resolve("metadata.pb"), new byte[] {1, 2, 3});
+    WsResponse lengthRequired = mock(WsResponse.class);
+    when(lengthRequired.failIfNotSuccessful()).thenThrow(new HttpException("url", 411, ""));
+    List<PostRequest.Part> parts = new ArrayList<>();
+    WsResponse submitResponse = newSubmitResponse();
+    when(wsClient.call(any(WsRequest.class))).thenAnswer(invocation -> {
+      PostRequest.Part part = ((PostRequest) invocation.getArgument(0)).getParts().get("report");
+      parts.add(part);
+      if (part.getFile() == null) {
+        return lengthRequired;
+      }
+      assertThat(zipEntryNames(FileUtils.readFileToByteArray(part.getFile()))).containsExactly("metadata.pb");
+      return submitResponse;
+    });
+
+    underTest.upload();
+
+    assertThat(parts).hasSize(2);
+    assertThat(parts.get(0).getContentWriter()).isNotNull();
+    assertThat(parts.get(1).getFile()).isNotNull().doesNotExist();
+    assertThat(logTester.logs(LoggerLevel.WARN))
+      .contains("The length of the analysis report is required by the server, it is uploaded again from a zip file. "
+        + "Set the property 'sonar.scanner.streamReportUpload' to false to skip the first attempt.");
+  }
+
   @Test
   public void test_send_branches_characteristics() throws Exception {
     String orgName = "MyOrg";
@@ -293,7 +384,7 @@ public class ReportPublisherTest {
     when(response.contentStream()).thenReturn(in);
 
     when(wsClient.call(any(WsRequest.class))).thenReturn(response);
-    underTest.upload(reportTempFolder.newFile());
+    underTest.upload();
 
     ArgumentCaptor<WsRequest> capture = ArgumentCaptor.forClass(WsRequest.class);
     verify(wsClient).call(capture.capture());
@@ -328,7 +419,7 @@ public class ReportPublisherTest {
     when(response.contentStream()).thenReturn(in);
 
     when(wsClient.call(any(WsRequest.class))).thenReturn(response);
-    underTest.upload(reportTempFolder.newFile());
+    underTest.upload();
 
     ArgumentCaptor<WsRequest> capture = ArgumentCaptor.forClass(WsRequest.class);
     verify(wsClient).call(capture.capture());
@@ -341,4 +432,23 @@ public class ReportPublisherTest {
       .containsExactlyInAnyOrder("pullRequest=" + pullRequestId);
   }
 
+  private static WsResponse newSubmitResponse() throws IOException {
+    WsResponse response = mock(WsResponse.class);
+    ByteArrayOutputStream protobuf = new ByteArrayOutputStream();
+    Ce.SubmitResponse.newBuilder().setTaskId("TASK-1").build().writeTo(protobuf);
+    when(response.failIfNotSuccessful()).thenReturn(response);
+    when(response.contentStream()).thenReturn(new ByteArrayInputStream(protobuf.toByteArray()));
+    return response;
+  }
+
+  private static List<String> zipEntryNames(byte[] zip) throws IOException {
+    List<String> entryNames = new ArrayList<>();
+    try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(zip))) {
+      ZipEntry entry;
+      while ((entry = zipInput.getNextEntry()) != null) {
+        entryNames.add(entry.getName());
+      }
+    }
+    return entryNames;
+  }
 }
@@ -22,41 +22,54 @@ package org.sonar.scanner.repository;
 import com.google.common.io.Resources;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
+import java.util.Optional;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.utils.MessageException;
 import org.sonar.scanner.WsTestUtil;
 import org.sonar.scanner.bootstrap.DefaultScannerWsClient;
+import org.sonar.scanner.bootstrap.PluginFiles;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonarqube.ws.Batch.WsProjectResponse;
 import org.sonarqube.ws.client.HttpException;
 import org.sonarqube.ws.client.WsRequest;
+import org.sonarqube.ws.client.WsResponse;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class DefaultProjectRepositoriesLoaderTest {
   private final static String PROJECT_KEY = "foo?";
   @Rule
   public ExpectedException thrown = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
 
   private DefaultProjectRepositoriesLoader loader;
   private DefaultScannerWsClient wsClient;
+  private PluginFiles pluginFiles = mock(PluginFiles.class);
 
   @Before
   public void prepare() throws IOException {
     wsClient = mock(DefaultScannerWsClient.class);
+    when(wsClient.baseUrl()).thenReturn("http://localhost:9000");
+    when(pluginFiles.getCacheDir()).thenReturn(temp.newFolder());
     InputStream is = mockData();
     WsTestUtil.mockStream(wsClient, "/batch/project.protobuf?key=foo%3F", is);
-    loader = new DefaultProjectRepositoriesLoader(wsClient);
+    loader = new DefaultProjectRepositoriesLoader(wsClient, pluginFiles);
   }
 
   @Test
@@ -111,6 +124,36 @@ public class DefaultProjectRepositoriesLoaderTest {
     WsTestUtil.verifyCall(wsClient, "/batch/project.protobuf?key=foo%3F");
   }
 
+  @Test
+  public void reuse_cached_project_repositories_when_not_modified() throws IOException {
+    WsResponse response = mock(WsResponse.class);
+    when(response.header("ETag")).thenReturn(Optional.of("W/\"abc\""));
+    when(response.contentStream()).thenReturn(new ByteArrayInputStream(WsProjectResponse.newBuilder()
+      .putFileDataByPath("src/Foo.java", WsProjectResponse.FileData.newBuilder().setHash("h1").setRevision("r1").build())
+      .build().toByteArray()));
+    when(wsClient.call(any(WsRequest.class)))
+      .thenReturn(response)
+      .thenThrow(new HttpException("/batch/project.protobuf?key=foo%3F", HttpURLConnection.HTTP_NOT_MODIFIED, ""));
+
+    loader.load(PROJECT_KEY, null);
+    ProjectRepositories proj = loader.load(PROJECT_KEY, null);
+
+    FileData fileData = ((SingleProjectRepository) proj).fileData("src/Foo.java");
+    assertThat(fileData.hash()).isEqualTo("h1");
+    assertThat(fileData.revision()).isEqualTo("r1");
+    ArgumentCaptor<WsRequest> requests = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(2)).call(requests.capture());
+    assertThat(requests.getAllValues().get(0).getHeaders().getValue("If-None-Match")).isEmpty();
+    assertThat(requests.getAllValues().get(1).getHeaders().getValue("If-None-Match")).contains("W/\"abc\"");
+  }
+
+  @Test
+  public void do_not_cache_project_repositories_without_etag() {
+    loader.load(PROJECT_KEY, null);
+
+    assertThat(new File(pluginFiles.getCacheDir(), "project_repositories")).doesNotExist();
+  }
+
   private InputStream mockData() throws IOException {
     ByteArrayOutputStream os = new ByteArrayOutputStream();
     WsProjectResponse.Builder projectResponseBuilder = WsProjectResponse.newBuilder();
@@ -35,8 +35,9 @@ import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.DateUtils;
 import org.sonarqube.ws.Qualityprofiles.SearchWsResponse.QualityProfile;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -63,9 +64,7 @@ public class ActiveRulesProviderTest {
     List<LoadedActiveRule> qp2Rules = ImmutableList.of(r2, r3);
     List<LoadedActiveRule> qp3Rules = ImmutableList.of(r1, r3);
 
-    when(loader.load(eq("qp1"))).thenReturn(qp1Rules);
-    when(loader.load(eq("qp2"))).thenReturn(qp2Rules);
-    when(loader.load(eq("qp3"))).thenReturn(qp3Rules);
+    when(loader.load(asList("qp1", "qp2", "qp3"))).thenReturn(ImmutableMap.of("qp1", qp1Rules, "qp2", qp2Rules, "qp3", qp3Rules));
 
     QualityProfiles profiles = mockProfiles("qp1", "qp2", "qp3");
     ActiveRules activeRules = provider.provide(loader, profiles);
@@ -74,9 +73,7 @@ public class ActiveRulesProviderTest {
     assertThat(activeRules.findAll()).extracting("ruleKey").containsOnly(
       RuleKey.of("rule1", "rule1"), RuleKey.of("rule2", "rule2"), RuleKey.of("rule3", "rule3"));
 
-    verify(loader).load(eq("qp1"));
-    verify(loader).load(eq("qp2"));
-    verify(loader).load(eq("qp3"));
+    verify(loader).load(asList("qp1", "qp2", "qp3"));
     verifyNoMoreInteractions(loader);
   }
 
@@ -87,7 +84,7 @@ public class ActiveRulesProviderTest {
     r2.setParams(ImmutableMap.of("foo1", "bar1", "foo2", "bar2"));
 
     List<LoadedActiveRule> qpRules = ImmutableList.of(r1, r2);
-    when(loader.load(eq("qp"))).thenReturn(qpRules);
+    when(loader.load(singletonList("qp"))).thenReturn(ImmutableMap.of("qp", qpRules));
 
     QualityProfiles profiles = mockProfiles("qp");
     ActiveRules activeRules = provider.provide(loader, profiles);
@@ -97,7 +94,7 @@ public class ActiveRulesProviderTest {
       Tuple.tuple(RuleKey.of("rule1", "rule1"), ImmutableMap.of()),
       Tuple.tuple(RuleKey.of("rule2", "rule2"), ImmutableMap.of("foo1", "bar1", "foo2", "bar2")));
 
-    verify(loader).load(eq("qp"));
+    verify(loader).load(singletonList("qp"));
     verifyNoMoreInteractions(loader);
   }
 
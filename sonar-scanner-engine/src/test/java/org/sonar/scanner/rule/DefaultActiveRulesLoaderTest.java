@@ -19,115 +19,177 @@
  */
 package org.sonar.scanner.rule;
 
-import com.google.common.collect.ImmutableSortedMap;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Collection;
-import java.util.stream.IntStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.sonar.api.batch.rule.LoadedActiveRule;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.rule.Severity;
-import org.sonar.scanner.WsTestUtil;
 import org.sonar.scanner.bootstrap.DefaultScannerWsClient;
-import org.sonar.scanner.scan.branch.BranchConfiguration;
-import org.sonarqube.ws.Rules;
-import org.sonarqube.ws.Rules.Active;
-import org.sonarqube.ws.Rules.ActiveList;
-import org.sonarqube.ws.Rules.Actives;
-import org.sonarqube.ws.Rules.Rule;
-import org.sonarqube.ws.Rules.SearchResponse;
-import org.sonarqube.ws.Rules.SearchResponse.Builder;
-
+import org.sonar.scanner.bootstrap.PluginFiles;
+import org.sonar.scanner.protocol.input.ScannerInput.ActiveRule;
+import org.sonarqube.ws.client.HttpException;
+import org.sonarqube.ws.client.WsRequest;
+import org.sonarqube.ws.client.WsResponse;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 public class DefaultActiveRulesLoaderTest {
 
-  private static final int PAGE_SIZE_1 = 150;
-  private static final int PAGE_SIZE_2 = 76;
-  private static final RuleKey EXAMPLE_KEY = RuleKey.of("squid", "S108");
-  private static final String FORMAT_KEY = "format";
-  private static final String FORMAT_VALUE = "^[a-z][a-zA-Z0-9]*$";
-  private static final String SEVERITY_VALUE = Severity.MINOR;
+  private static final String ETAG = "W/\"etag\"";
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
 
+  private DefaultScannerWsClient wsClient = mock(DefaultScannerWsClient.class);
+  private PluginFiles pluginFiles = mock(PluginFiles.class);
   private DefaultActiveRulesLoader loader;
-  private DefaultScannerWsClient wsClient;
 
   @Before
-  public void setUp() {
-    wsClient = mock(DefaultScannerWsClient.class);
-    BranchConfiguration branchConfig = mock(BranchConfiguration.class);
-    when(branchConfig.isPullRequest()).thenReturn(false);
-    loader = new DefaultActiveRulesLoader(wsClient);
+  public void setUp() throws IOException {
+    when(wsClient.baseUrl()).thenReturn("http://localhost:9000");
+    when(pluginFiles.getCacheDir()).thenReturn(temp.newFolder());
+    loader = new DefaultActiveRulesLoader(wsClient, pluginFiles);
+  }
+
+  @Test
+  public void load_active_rules_of_all_profiles_with_a_single_request() throws IOException {
+    WsResponse response = mockResponse(
+      ActiveRule.newBuilder().setQprofileKey("c+-test_c+-values-17445").setRuleRepository("squid").setRuleKey("S108").setName("Nested blocks")
+        .setSeverity(Severity.MINOR).setLanguage("java").setInternalKey("internal").setTemplateRuleKey("squid:S100")
+        .setCreatedAt(1_000L).setUpdatedAt(2_000L).putParams("format", "^[a-z][a-zA-Z0-9]*$").build(),
+      ActiveRule.newBuilder().setQprofileKey("js-profile").setRuleRepository("eslint").setRuleKey("semi").setSeverity(Severity.MAJOR).build());
+    when(wsClient.call(any(WsRequest.class))).thenReturn(response);
+
+    Map<String, List<LoadedActiveRule>> activeRules = loader.load(asList("c+-test_c+-values-17445", "js-profile"));
+
+    assertThat(activeRules).containsOnlyKeys("c+-test_c+-values-17445", "js-profile");
+    LoadedActiveRule rule = activeRules.get("c+-test_c+-values-17445").get(0);
+    assertThat(rule.getRuleKey()).isEqualTo(RuleKey.of("squid", "S108"));
+    assertThat(rule.getName()).isEqualTo("Nested blocks");
+    assertThat(rule.getSeverity()).isEqualTo(Severity.MINOR);
+    assertThat(rule.getLanguage()).isEqualTo("java");
+    assertThat(rule.getInternalKey()).isEqualTo("internal");
+    assertThat(rule.getTemplateRuleKey()).isEqualTo("S100");
+    assertThat(rule.getCreatedAt()).isEqualTo(1_000L);
+    assertThat(rule.getUpdatedAt()).isEqualTo(2_000L);
+    assertThat(rule.getParams()).containsOnly(entry("format", "^[a-z][a-zA-Z0-9]*$"));
+    assertThat(activeRules.get("js-profile")).extracting(LoadedActiveRule::getRuleKey).containsExactly(RuleKey.of("eslint", "semi"));
+    WsRequest request = verifyCall();
+    assertThat(request.getPath()).isEqualTo("/api/batch/active_rules?profiles=c%2B-test_c%2B-values-17445%2Cjs-profile");
+    assertThat(request.getHeaders().getValue("If-None-Match")).isEmpty();
   }
 
   @Test
-  public void feed_real_response_encode_qp() {
-    int total = PAGE_SIZE_1 + PAGE_SIZE_2;
-
-    WsTestUtil.mockStream(wsClient, urlOfPage(1), responseOfSize(PAGE_SIZE_1, total));
-    WsTestUtil.mockStream(wsClient, urlOfPage(2), responseOfSize(PAGE_SIZE_2, total));
-
-    Collection<LoadedActiveRule> activeRules = loader.load("c+-test_c+-values-17445");
-    assertThat(activeRules).hasSize(total);
-    assertThat(activeRules)
-      .filteredOn(r -> r.getRuleKey().equals(EXAMPLE_KEY))
-      .extracting(LoadedActiveRule::getParams)
-      .extracting(p -> p.get(FORMAT_KEY))
-      .containsExactly(FORMAT_VALUE);
-    assertThat(activeRules)
-      .filteredOn(r -> r.getRuleKey().equals(EXAMPLE_KEY))
-      .extracting(LoadedActiveRule::getSeverity)
-      .containsExactly(SEVERITY_VALUE);
-
-    WsTestUtil.verifyCall(wsClient, urlOfPage(1));
-    WsTestUtil.verifyCall(wsClient, urlOfPage(2));
-
-    verifyNoMoreInteractions(wsClient);
+  public void reuse_cached_active_rules_when_not_modified() throws IOException {
+    WsResponse response = mockResponse(ActiveRule.newBuilder().setQprofileKey("qp").setRuleRepository("squid").setRuleKey("S108").build());
+    when(response.header("ETag")).thenReturn(Optional.of(ETAG));
+    when(wsClient.call(any(WsRequest.class)))
+      .thenReturn(response)
+      .thenThrow(new HttpException("/api/batch/active_rules", 304, ""));
+
+    loader.load(asList("qp"));
+    Map<String, List<LoadedActiveRule>> activeRules = loader.load(asList("qp"));
+
+    assertThat(activeRules.get("qp")).extracting(LoadedActiveRule::getRuleKey).containsExactly(RuleKey.of("squid", "S108"));
+    ArgumentCaptor<WsRequest> requests = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(2)).call(requests.capture());
+    assertThat(requests.getAllValues().get(1).getHeaders().getValue("If-None-Match")).contains(ETAG);
+  }
+
+  @Test
+  public void download_active_rules_again_if_cache_is_corrupted() throws IOException {
+    WsResponse response = mockResponse(ActiveRule.newBuilder().setQprofileKey("qp").setRuleRepository("squid").setRuleKey("S108").build());
+    when(response.header("ETag")).thenReturn(Optional.of(ETAG));
+    when(wsClient.call(any(WsRequest.class)))
+      .thenReturn(response)
+      .thenThrow(new HttpException("/api/batch/active_rules", 304, ""))
+      .thenReturn(mockResponse(ActiveRule.newBuilder().setQprofileKey("qp").setRuleRepository("squid").setRuleKey("S109").build()));
+    loader.load(asList("qp"));
+    File[] cacheFiles = activeRulesCacheDir().listFiles();
+    assertThat(cacheFiles).hasSize(1);
+    // ETag followed by a truncated active rule
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(cacheFiles[0]))) {
+      output.writeUTF(ETAG);
+      output.write(new byte[] {10, 1});
+    }
+
+    Map<String, List<LoadedActiveRule>> activeRules = loader.load(asList("qp"));
+
+    assertThat(activeRules.get("qp")).extracting(LoadedActiveRule::getRuleKey).containsExactly(RuleKey.of("squid", "S109"));
+    ArgumentCaptor<WsRequest> requests = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient, times(3)).call(requests.capture());
+    assertThat(requests.getAllValues().get(1).getHeaders().getValue("If-None-Match")).contains(ETAG);
+    assertThat(requests.getAllValues().get(2).getHeaders().getValue("If-None-Match")).isEmpty();
+  }
+
+  @Test
+  public void delete_temporary_file_if_download_fails() throws IOException {
+    WsResponse response = mock(WsResponse.class);
+    when(response.header("ETag")).thenReturn(Optional.of(ETAG));
+    when(response.contentStream()).thenReturn(new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("Connection reset");
+      }
+    });
+    when(wsClient.call(any(WsRequest.class))).thenReturn(response);
+
+    assertThatThrownBy(() -> loader.load(asList("qp")))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Failed to load active rules");
+
+    assertThat(activeRulesCacheDir().listFiles()).isEmpty();
+  }
+
+  @Test
+  public void do_not_call_server_when_there_is_no_quality_profile() {
+    assertThat(loader.load(emptyList())).isEmpty();
+
+    verifyZeroInteractions(wsClient);
+  }
+
+  private File activeRulesCacheDir() {
+    return new File(pluginFiles.getCacheDir(), "active_rules");
   }
 
-  private String urlOfPage(int page) {
-    return "/api/rules/search.protobuf?f=repo,name,severity,lang,internalKey,templateKey,params,actives,createdAt,updatedAt&activation=true"
-      + ("") + "&qprofile=c%2B-test_c%2B-values-17445&ps=500&p=" + page + "";
+  private WsRequest verifyCall() {
+    ArgumentCaptor<WsRequest> request = ArgumentCaptor.forClass(WsRequest.class);
+    verify(wsClient).call(request.capture());
+    return request.getValue();
   }
 
-  /**
-   * Generates an imaginary protobuf result.
-   *
-   * @param numberOfRules the number of rules, that the response should contain
-   * @param total the number of results on all pages
-   * @return the binary stream
-   */
-  private InputStream responseOfSize(int numberOfRules, int total) {
-    Builder rules = SearchResponse.newBuilder();
-    Actives.Builder actives = Actives.newBuilder();
-
-    IntStream.rangeClosed(1, numberOfRules)
-      .mapToObj(i -> RuleKey.of("squid", "S" + i))
-      .forEach(key -> {
-
-        Rule.Builder ruleBuilder = Rule.newBuilder();
-        ruleBuilder.setKey(key.toString());
-        rules.addRules(ruleBuilder);
-
-        Active.Builder activeBuilder = Active.newBuilder();
-        activeBuilder.setCreatedAt("2014-05-27T15:50:45+0100");
-        activeBuilder.setUpdatedAt("2014-05-27T15:50:45+0100");
-        if (EXAMPLE_KEY.equals(key)) {
-          activeBuilder.addParams(Rules.Active.Param.newBuilder().setKey(FORMAT_KEY).setValue(FORMAT_VALUE));
-          activeBuilder.setSeverity(SEVERITY_VALUE);
-        }
-        ActiveList activeList = Rules.ActiveList.newBuilder().addActiveList(activeBuilder).build();
-        actives.putAllActives(ImmutableSortedMap.of(key.toString(), activeList));
-      });
-
-    rules.setActives(actives);
-    rules.setPs(numberOfRules);
-    rules.setTotal(total);
-    return new ByteArrayInputStream(rules.build().toByteArray());
+  private static WsResponse mockResponse(ActiveRule... activeRules) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    for (ActiveRule activeRule : activeRules) {
+      activeRule.writeDelimitedTo(output);
+    }
+    InputStream body = new ByteArrayInputStream(output.toByteArray());
+    WsResponse response = mock(WsResponse.class);
+    when(response.contentStream()).thenReturn(body);
+    when(response.header("ETag")).thenReturn(Optional.empty());
+    return response;
   }
 }
@@ -58,6 +58,7 @@ public class ScanPropertiesTest {
     assertThat(underTest.organizationKey()).isEmpty();
     assertThat(underTest.preloadFileMetadata()).isFalse();
     assertThat(underTest.shouldKeepReport()).isFalse();
+    assertThat(underTest.shouldStreamReportUpload()).isTrue();
     assertThat(underTest.metadataFilePath()).isEqualTo(project.getWorkDir().resolve("report-task.txt"));
     underTest.validate();
   }
@@ -86,6 +87,12 @@ public class ScanPropertiesTest {
     assertThat(underTest.shouldKeepReport()).isTrue();
   }
 
+  @Test
+  public void should_disable_stream_report_upload() {
+    settings.setProperty("sonar.scanner.streamReportUpload", "false");
+    assertThat(underTest.shouldStreamReportUpload()).isFalse();
+  }
+
   @Test
   public void should_define_metadata_file_path() throws IOException {
     Path path = temp.newFolder().toPath().resolve("report");
@@ -0,0 +1,201 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Optional;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.scanner.bootstrap.PluginFiles;
+import org.sonar.scanner.protocol.output.ScannerReport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlameCacheTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  private PluginFiles pluginFiles = mock(PluginFiles.class);
+  private ScmRevision scmRevision = mock(ScmRevision.class);
+  private Configuration settings = mock(Configuration.class);
+  private BlameCache underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(pluginFiles.getCacheDir()).thenReturn(temp.newFolder());
+    when(scmRevision.get()).thenReturn(Optional.of("abc123"));
+    when(settings.getBoolean(BlameCache.DISABLED_KEY)).thenReturn(Optional.empty());
+    underTest = new BlameCache(pluginFiles, scmRevision, settings);
+  }
+
+  @Test
+  public void get_changesets_of_file_with_same_path_and_content() {
+    ScannerReport.Changesets changesets = newChangesets(1);
+    underTest.put(newFile("src/Foo.java", 1, "hash1"), changesets);
+
+    Optional<ScannerReport.Changesets> cached = underTest.get(newFile("src/Foo.java", 5, "hash1"));
+
+    assertThat(cached).isPresent();
+    assertThat(cached.get().getComponentRef()).isEqualTo(5);
+    assertThat(cached.get().getChangesetList()).isEqualTo(changesets.getChangesetList());
+    assertThat(cached.get().getChangesetIndexByLineList()).isEqualTo(changesets.getChangesetIndexByLineList());
+  }
+
+  @Test
+  public void do_not_get_changesets_of_file_with_different_content_or_path() {
+    underTest.put(newFile("src/Foo.java", 1, "hash1"), newChangesets(1));
+
+    assertThat(underTest.get(newFile("src/Foo.java", 1, "hash2"))).isEmpty();
+    assertThat(underTest.get(newFile("src/Bar.java", 1, "hash1"))).isEmpty();
+  }
+
+  @Test
+  public void do_not_get_changesets_computed_on_other_revision() {
+    underTest.put(newFile("src/Foo.java", 1, "hash1"), newChangesets(1));
+
+    when(scmRevision.get()).thenReturn(Optional.of("def456"));
+    BlameCache otherRevision = new BlameCache(pluginFiles, scmRevision, settings);
+
+    assertThat(otherRevision.get(newFile("src/Foo.java", 1, "hash1"))).isEmpty();
+  }
+
+  @Test
+  public void cache_is_disabled_if_revision_is_unknown() {
+    when(scmRevision.get()).thenReturn(Optional.empty());
+    underTest = new BlameCache(pluginFiles, scmRevision, settings);
+
+    underTest.put(newFile("src/Foo.java", 1, "hash1"), newChangesets(1));
+
+    assertThat(underTest.get(newFile("src/Foo.java", 1, "hash1"))).isEmpty();
+    assertThat(pluginFiles.getCacheDir().toPath().resolve("blame")).doesNotExist();
+  }
+
+  @Test
+  public void cache_is_disabled_by_configuration() {
+    when(settings.getBoolean(BlameCache.DISABLED_KEY)).thenReturn(Optional.of(true));
+    underTest = new BlameCache(pluginFiles, scmRevision, settings);
+
+    underTest.put(newFile("src/Foo.java", 1, "hash1"), newChangesets(1));
+
+    assertThat(underTest.get(newFile("src/Foo.java", 1, "hash1"))).isEmpty();
+    assertThat(pluginFiles.getCacheDir().toPath().resolve("blame")).doesNotExist();
+  }
+
+  @Test
+  public void delete_least_recently_used_entries_if_cache_is_too_large() throws IOException {
+    File cacheDir = new File(pluginFiles.getCacheDir(), "blame");
+    File oldEntry = newCacheFile(cacheDir, "old", BlameCache.MAX_SIZE_IN_BYTES / 2 + 1, 1_000L);
+    File recentEntry = newCacheFile(cacheDir, "recent", BlameCache.MAX_SIZE_IN_BYTES / 2, 2_000L);
+
+    underTest.finish();
+
+    assertThat(oldEntry).doesNotExist();
+    assertThat(recentEntry).exists();
+  }
+
+  @Test
+  public void ignore_temporary_files_written_by_concurrent_analyses() throws IOException {
+    File cacheDir = new File(pluginFiles.getCacheDir(), "blame");
+    File tempFile = newCacheFile(cacheDir, "blame123.tmp", BlameCache.MAX_SIZE_IN_BYTES, System.currentTimeMillis());
+    File entry = newCacheFile(cacheDir, "entry", 10, 2_000L);
+
+    underTest.finish();
+
+    assertThat(tempFile).exists();
+    assertThat(entry).exists();
+  }
+
+  @Test
+  public void delete_stale_temporary_files() throws IOException {
+    File cacheDir = new File(pluginFiles.getCacheDir(), "blame");
+    long staleDate = System.currentTimeMillis() - BlameCache.TEMP_FILE_MAX_AGE_IN_MS - 60_000L;
+    File staleTempFile = newCacheFile(cacheDir, "blame123.tmp", 10, staleDate);
+    File entry = newCacheFile(cacheDir, "entry", 10, staleDate);
+
+    underTest.finish();
+
+    assertThat(staleTempFile).doesNotExist();
+    assertThat(entry).exists();
+  }
+
+  @Test
+  public void delete_temporary_file_if_entry_can_not_be_written() throws IOException {
+    logTester.setLevel(LoggerLevel.DEBUG);
+    File cacheDir = new File(pluginFiles.getCacheDir(), "blame");
+    // a non-empty directory can not be replaced by the entry
+    File entry = new File(cacheDir, DigestUtils.sha1Hex("abc123\nsrc/Foo.java\nhash1"));
+    Files.createDirectories(entry.toPath().resolve("child"));
+
+    underTest.put(newFile("src/Foo.java", 1, "hash1"), newChangesets(1));
+
+    assertThat(cacheDir.list()).containsOnly(entry.getName());
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).anyMatch(log -> log.startsWith("Fail to write blame of"));
+  }
+
+  @Test
+  public void log_hit_rate() {
+    underTest.put(newFile("src/Foo.java", 1, "hash1"), newChangesets(1));
+    underTest.get(newFile("src/Foo.java", 1, "hash1"));
+    underTest.get(newFile("src/Bar.java", 2, "hash2"));
+
+    underTest.finish();
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("SCM Publisher 1/2 source files found in blame cache");
+  }
+
+  private static File newCacheFile(File dir, String name, long length, long lastModified) throws IOException {
+    Files.createDirectories(dir.toPath());
+    File file = new File(dir, name);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(length);
+    }
+    assertThat(file.setLastModified(lastModified)).isTrue();
+    return file;
+  }
+
+  private static DefaultInputFile newFile(String path, int ref, String hash) {
+    return new TestInputFileBuilder("foo", path, ref).setHash(hash).build();
+  }
+
+  private static ScannerReport.Changesets newChangesets(int componentRef) {
+    return ScannerReport.Changesets.newBuilder()
+      .setComponentRef(componentRef)
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setRevision("rev1").setAuthor("john").setDate(1_000L))
+      .addChangesetIndexByLine(0)
+      .addChangesetIndexByLine(0)
+      .build();
+  }
+}
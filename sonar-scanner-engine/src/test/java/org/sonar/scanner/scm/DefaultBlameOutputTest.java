@@ -19,16 +19,26 @@
  */
 package org.sonar.scanner.scm;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.scm.BlameLine;
 import org.sonar.api.utils.System2;
 import org.sonar.scanner.notifications.DefaultAnalysisWarnings;
+import org.sonar.scanner.protocol.output.FileStructure;
+import org.sonar.scanner.protocol.output.ScannerReportWriter;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -37,25 +47,84 @@ public class DefaultBlameOutputTest {
 
   @Rule
   public ExpectedException thrown = ExpectedException.none();
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
   private System2 system2 = mock(System2.class);
   private DefaultAnalysisWarnings analysisWarnings = new DefaultAnalysisWarnings(system2);
+  private BlameCache blameCache = mock(BlameCache.class);
 
   @Test
   public void shouldNotFailIfNotSameNumberOfLines() {
     InputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java").setLines(10).build();
 
-    new DefaultBlameOutput(null, analysisWarnings, singletonList(file)).blameResult(file, singletonList(new BlameLine().revision("1").author("guy")));
+    new DefaultBlameOutput(null, analysisWarnings, singletonList(file), blameCache).blameResult(file, singletonList(new BlameLine().revision("1").author("guy")));
   }
 
   @Test
   public void addWarningIfFilesMissing() {
     InputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java").setLines(10).build();
 
-    new DefaultBlameOutput(null, analysisWarnings, singletonList(file)).finish(true);
+    new DefaultBlameOutput(null, analysisWarnings, singletonList(file), blameCache).finish(true);
     assertThat(analysisWarnings.warnings()).extracting(DefaultAnalysisWarnings.Message::getText)
       .containsOnly("Missing blame information for 1 file. This may lead to some features not working correctly. Please check the analysis logs.");
   }
 
+  @Test
+  public void acceptConcurrentBlameResults() throws Exception {
+    ScannerReportWriter writer = new ScannerReportWriter(temp.newFolder());
+    List<InputFile> files = new ArrayList<>();
+    for (int i = 1; i <= 100; i++) {
+      files.add(new TestInputFileBuilder("foo", "src/main/java/Foo" + i + ".java", i).setLines(1).build());
+    }
+    DefaultBlameOutput underTest = new DefaultBlameOutput(writer, analysisWarnings, files, blameCache);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (InputFile file : files) {
+      futures.add(executor.submit(() -> underTest.blameResult(file, singletonList(new BlameLine().revision("1").date(new Date()).author("guy")))));
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+    for (Future<?> future : futures) {
+      // fails if the worker failed
+      future.get();
+    }
+    underTest.finish(true);
+
+    assertThat(analysisWarnings.warnings()).isEmpty();
+    for (int i = 1; i <= 100; i++) {
+      assertThat(writer.hasComponentData(FileStructure.Domain.CHANGESETS, i)).isTrue();
+    }
+  }
+
+  @Test
+  public void accept_result_of_file_whose_previous_result_was_ignored() throws Exception {
+    ScannerReportWriter writer = new ScannerReportWriter(temp.newFolder());
+    InputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java", 1).setLines(1).build();
+    DefaultBlameOutput underTest = new DefaultBlameOutput(writer, analysisWarnings, singletonList(file), blameCache);
+    BlameLine line = new BlameLine().revision("1").date(new Date()).author("guy");
+
+    underTest.blameResult(file, asList(line, line));
+    underTest.blameResult(file, singletonList(line));
+    underTest.finish(true);
+
+    assertThat(writer.hasComponentData(FileStructure.Domain.CHANGESETS, 1)).isTrue();
+    assertThat(analysisWarnings.warnings()).isEmpty();
+  }
+
+  @Test
+  public void shouldFailIfFileIsBlamedTwice() throws Exception {
+    ScannerReportWriter writer = new ScannerReportWriter(temp.newFolder());
+    InputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java", 1).setLines(1).build();
+    DefaultBlameOutput underTest = new DefaultBlameOutput(writer, analysisWarnings, singletonList(file), blameCache);
+    underTest.blameResult(file, singletonList(new BlameLine().revision("1").date(new Date()).author("guy")));
+
+    thrown.expect(IllegalArgumentException.class);
+    thrown.expectMessage("It was not expected to blame file " + file);
+
+    underTest.blameResult(file, singletonList(new BlameLine().revision("1").date(new Date()).author("guy")));
+  }
+
   @Test
   public void shouldFailIfNotExpectedFile() {
     InputFile file = new TestInputFileBuilder("foo", "src/main/java/Foo.java").build();
@@ -63,7 +132,7 @@ public class DefaultBlameOutputTest {
     thrown.expect(IllegalArgumentException.class);
     thrown.expectMessage("It was not expected to blame file " + file);
 
-    new DefaultBlameOutput(null, analysisWarnings, singletonList(new TestInputFileBuilder("foo", "src/main/java/Foo2.java").build()))
+    new DefaultBlameOutput(null, analysisWarnings, singletonList(new TestInputFileBuilder("foo", "src/main/java/Foo2.java").build()), blameCache)
       .blameResult(file, singletonList(new BlameLine().revision("1").author("guy")));
   }
 
@@ -74,7 +143,7 @@ public class DefaultBlameOutputTest {
     thrown.expect(IllegalArgumentException.class);
     thrown.expectMessage("Blame date is null for file " + file + " at line 1");
 
-    new DefaultBlameOutput(null, analysisWarnings, singletonList(file))
+    new DefaultBlameOutput(null, analysisWarnings, singletonList(file), blameCache)
       .blameResult(file, singletonList(new BlameLine().revision("1").author("guy")));
   }
 
@@ -85,7 +154,7 @@ public class DefaultBlameOutputTest {
     thrown.expect(IllegalArgumentException.class);
     thrown.expectMessage("Blame revision is blank for file " + file + " at line 1");
 
-    new DefaultBlameOutput(null, analysisWarnings, singletonList(file))
+    new DefaultBlameOutput(null, analysisWarnings, singletonList(file), blameCache)
       .blameResult(file, singletonList(new BlameLine().date(new Date()).author("guy")));
   }
 
@@ -21,6 +21,8 @@ package org.sonar.scanner.sensor;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -36,6 +38,7 @@ import org.sonar.api.batch.fs.internal.DefaultInputProject;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.measure.MetricFinder;
 import org.sonar.api.batch.sensor.code.internal.DefaultSignificantCode;
+import org.sonar.api.batch.sensor.coverage.internal.DefaultCoverage;
 import org.sonar.api.batch.sensor.highlighting.TypeOfText;
 import org.sonar.api.batch.sensor.highlighting.internal.DefaultHighlighting;
 import org.sonar.api.batch.sensor.issue.ExternalIssue;
@@ -48,6 +51,7 @@ import org.sonar.api.batch.sensor.symbol.internal.DefaultSymbolTable;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.core.metric.ScannerMetrics;
+import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.cpd.index.SonarCpdBlockIndex;
 import org.sonar.scanner.issue.IssuePublisher;
 import org.sonar.scanner.protocol.output.FileStructure;
@@ -217,6 +221,7 @@ public class DefaultSensorStorageTest {
       .forMetric(CoreMetrics.NCLOC)
       .withValue(10));
 
+    reportWriter.flush();
     ScannerReport.Measure m = reportReader.readComponentMeasures(file.scannerId()).next();
     assertThat(m.getIntValue().getValue()).isEqualTo(10);
     assertThat(m.getMetricKey()).isEqualTo(CoreMetrics.NCLOC_KEY);
@@ -232,6 +237,7 @@ public class DefaultSensorStorageTest {
       .forMetric(CoreMetrics.NCLOC)
       .withValue(10));
 
+    reportWriter.flush();
     ScannerReport.Measure m = reportReader.readComponentMeasures(file.scannerId()).next();
     assertThat(m.getIntValue().getValue()).isEqualTo(10);
     assertThat(m.getMetricKey()).isEqualTo(CoreMetrics.NCLOC_KEY);
@@ -264,6 +270,30 @@ public class DefaultSensorStorageTest {
     assertThat(reportWriter.hasComponentData(FileStructure.Domain.SGNIFICANT_CODE, file.scannerId())).isTrue();
   }
 
+  @Test
+  public void should_merge_coverage_in_memory_until_flushed() {
+    DefaultInputFile file = new TestInputFileBuilder("foo", "src/Foo.php")
+      .setLines(5)
+      .build();
+
+    underTest.store(new DefaultCoverage().onFile(file).lineHits(1, 0).lineHits(2, 3).conditions(2, 4, 1));
+    underTest.store(new DefaultCoverage().onFile(file).lineHits(1, 2).lineHits(4, 0).conditions(2, 4, 3));
+    assertThat(reportWriter.hasComponentData(FileStructure.Domain.COVERAGES, file.scannerId())).isFalse();
+
+    underTest.flushCoverage();
+    underTest.store(new DefaultCoverage().onFile(file).lineHits(4, 1));
+    underTest.flushCoverage();
+
+    List<ScannerReport.LineCoverage> coverage = new ArrayList<>();
+    try (CloseableIterator<ScannerReport.LineCoverage> it = reportReader.readComponentCoverage(file.scannerId())) {
+      it.forEachRemaining(coverage::add);
+    }
+    assertThat(coverage).containsExactly(
+      ScannerReport.LineCoverage.newBuilder().setLine(1).setHits(true).build(),
+      ScannerReport.LineCoverage.newBuilder().setLine(2).setHits(true).setConditions(4).setCoveredConditions(3).build(),
+      ScannerReport.LineCoverage.newBuilder().setLine(4).setHits(true).build());
+  }
+
   @Test
   public void should_save_project_measure() throws IOException {
     String projectKey = "myProject";
@@ -274,6 +304,7 @@ public class DefaultSensorStorageTest {
       .forMetric(CoreMetrics.NCLOC)
       .withValue(10));
 
+    reportWriter.flush();
     ScannerReport.Measure m = reportReader.readComponentMeasures(module.scannerId()).next();
     assertThat(m.getIntValue().getValue()).isEqualTo(10);
     assertThat(m.getMetricKey()).isEqualTo(CoreMetrics.NCLOC_KEY);
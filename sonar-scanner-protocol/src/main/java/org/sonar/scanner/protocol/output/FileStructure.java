@@ -23,11 +23,15 @@ import java.io.File;
 import javax.annotation.concurrent.Immutable;
 
 /**
- * Structure of files in the zipped report
+ * Structure of files in the zipped report. The data of components are either stored in one file per component
+ * and domain, or appended to a single segmented file, see {@link #segments()}.
  */
 @Immutable
 public class FileStructure {
 
+  /**
+   * The ordinal of the domains is stored in the index of segmented reports, so new domains must be added at the end.
+   */
   public enum Domain {
     ISSUES("issues-", Domain.PB),
     EXTERNAL_ISSUES("external-issues-", Domain.PB),
@@ -82,6 +86,20 @@ public class FileStructure {
     return new File(dir, domain.filePrefix + componentRef + domain.fileSuffix);
   }
 
+  /**
+   * Data of all the components of a segmented report
+   */
+  public File segments() {
+    return new File(dir, "segments.dat");
+  }
+
+  /**
+   * Index of {@link #segments()}. The report is segmented if this file exists.
+   */
+  public File segmentsIndex() {
+    return new File(dir, "segments-index.dat");
+  }
+
   public File contextProperties() {
     return new File(dir, "context-props.pb");
   }
@@ -19,24 +19,55 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
-import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
 import org.sonar.core.util.ContextException;
 import org.sonar.core.util.Protobuf;
 
-@Immutable
+/**
+ * Files written by the append* methods are kept open, up to {@link #MAX_OPEN_APPENDED_FILES} files, the least
+ * recently used being closed first. {@link #flush()} must be called before reading them.
+ * <p>
+ * When the report is segmented, the data of components are appended to a single file instead of one file per
+ * component and domain. See {@link FileStructure#segments()}.
+ */
 public class ScannerReportWriter {
 
+  static final int MAX_OPEN_APPENDED_FILES = 64;
+
   private final FileStructure fileStructure;
+  @Nullable
+  private final SegmentWriter segmentWriter;
+  private final Map<File, OutputStream> appendedFiles = new LinkedHashMap<File, OutputStream>(16, 0.75F, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<File, OutputStream> eldest) {
+      if (size() > MAX_OPEN_APPENDED_FILES) {
+        close(eldest.getKey(), eldest.getValue());
+        return true;
+      }
+      return false;
+    }
+  };
 
   public ScannerReportWriter(File dir) {
+    this(dir, false);
+  }
+
+  public ScannerReportWriter(File dir, boolean segmented) {
     if (!dir.exists() && !dir.mkdirs()) {
       throw new IllegalStateException("Unable to create directory: " + dir);
     }
     this.fileStructure = new FileStructure(dir);
+    this.segmentWriter = segmented ? new SegmentWriter(fileStructure) : null;
   }
 
   public FileStructure getFileStructure() {
@@ -44,6 +75,9 @@ public class ScannerReportWriter {
   }
 
   public boolean hasComponentData(FileStructure.Domain domain, int componentRef) {
+    if (segmentWriter != null) {
+      return segmentWriter.has(domain, componentRef);
+    }
     File file = fileStructure.fileFor(domain, componentRef);
     return file.exists() && file.isFile();
   }
@@ -62,99 +96,60 @@ public class ScannerReportWriter {
   }
 
   public File writeComponent(ScannerReport.Component component) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COMPONENT, component.getRef());
-    Protobuf.write(component, file);
-    return file;
+    return write(FileStructure.Domain.COMPONENT, component.getRef(), component);
   }
 
   public File writeComponentIssues(int componentRef, Iterable<ScannerReport.Issue> issues) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    Protobuf.writeStream(issues, file, false);
-    return file;
+    closeAppendedFile(fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef));
+    return writeStream(FileStructure.Domain.ISSUES, componentRef, issues);
   }
 
   public File writeComponentSignificantCode(int componentRef, Iterable<ScannerReport.LineSgnificantCode> lineSignificantCode) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SGNIFICANT_CODE, componentRef);
-    Protobuf.writeStream(lineSignificantCode, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.SGNIFICANT_CODE, componentRef, lineSignificantCode);
   }
 
   public void appendComponentIssue(int componentRef, ScannerReport.Issue issue) {
-    File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
-    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
-      issue.writeDelimitedTo(out);
-    } catch (Exception e) {
-      throw ContextException.of("Unable to write issue", e).addContext("file", file);
-    }
+    appendComponentData(FileStructure.Domain.ISSUES, componentRef, issue, "issue");
   }
 
   public File writeComponentChangedLines(int componentRef, ScannerReport.ChangedLines changedLines) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGED_LINES, componentRef);
-    Protobuf.write(changedLines, file);
-    return file;
+    return write(FileStructure.Domain.CHANGED_LINES, componentRef, changedLines);
   }
 
   public void appendComponentExternalIssue(int componentRef, ScannerReport.ExternalIssue issue) {
-    File file = fileStructure.fileFor(FileStructure.Domain.EXTERNAL_ISSUES, componentRef);
-    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
-      issue.writeDelimitedTo(out);
-    } catch (Exception e) {
-      throw ContextException.of("Unable to write external issue", e).addContext("file", file);
-    }
+    appendComponentData(FileStructure.Domain.EXTERNAL_ISSUES, componentRef, issue, "external issue");
   }
 
   public void appendAdHocRule(ScannerReport.AdHocRule adHocRule) {
-    File file = fileStructure.adHocRules();
-    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
-      adHocRule.writeDelimitedTo(out);
-    } catch (Exception e) {
-      throw ContextException.of("Unable to write ad hoc rule", e).addContext("file", file);
-    }
+    append(fileStructure.adHocRules(), adHocRule, "ad hoc rule");
   }
 
   public void appendComponentMeasure(int componentRef, ScannerReport.Measure measure) {
-    File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
-    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file, true))) {
-      measure.writeDelimitedTo(out);
-    } catch (Exception e) {
-      throw ContextException.of("Unable to write measure", e).addContext("file", file);
-    }
+    appendComponentData(FileStructure.Domain.MEASURES, componentRef, measure, "measure");
   }
 
   public File writeComponentChangesets(ScannerReport.Changesets changesets) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, changesets.getComponentRef());
-    Protobuf.write(changesets, file);
-    return file;
+    return write(FileStructure.Domain.CHANGESETS, changesets.getComponentRef(), changesets);
   }
 
   public File writeComponentDuplications(int componentRef, Iterable<ScannerReport.Duplication> duplications) {
-    File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
-    Protobuf.writeStream(duplications, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.DUPLICATIONS, componentRef, duplications);
   }
 
   public File writeCpdTextBlocks(int componentRef, Iterable<ScannerReport.CpdTextBlock> blocks) {
-    File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
-    Protobuf.writeStream(blocks, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef, blocks);
   }
 
   public File writeComponentSymbols(int componentRef, Iterable<ScannerReport.Symbol> symbols) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
-    Protobuf.writeStream(symbols, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.SYMBOLS, componentRef, symbols);
   }
 
   public File writeComponentSyntaxHighlighting(int componentRef, Iterable<ScannerReport.SyntaxHighlightingRule> syntaxHighlightingRules) {
-    File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef);
-    Protobuf.writeStream(syntaxHighlightingRules, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, componentRef, syntaxHighlightingRules);
   }
 
   public File writeComponentCoverage(int componentRef, Iterable<ScannerReport.LineCoverage> coverageList) {
-    File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, componentRef);
-    Protobuf.writeStream(coverageList, file, false);
-    return file;
+    return writeStream(FileStructure.Domain.COVERAGES, componentRef, coverageList);
   }
 
   public File writeContextProperties(Iterable<ScannerReport.ContextProperty> properties) {
@@ -169,8 +164,108 @@ public class ScannerReportWriter {
     return file;
   }
 
+  /**
+   * Only for reports that are not segmented. Use {@link #writeComponentSource(int, ContentWriter)} to support both.
+   */
   public File getSourceFile(int componentRef) {
+    if (segmentWriter != null) {
+      throw new IllegalStateException("Source files are not supported by segmented reports");
+    }
     return fileStructure.fileFor(FileStructure.Domain.SOURCE, componentRef);
   }
 
+  public File writeComponentSource(int componentRef, ContentWriter source) {
+    if (segmentWriter != null) {
+      segmentWriter.write(FileStructure.Domain.SOURCE, componentRef, true, source);
+      return fileStructure.segments();
+    }
+    File file = fileStructure.fileFor(FileStructure.Domain.SOURCE, componentRef);
+    try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+      source.writeTo(output);
+    } catch (IOException e) {
+      throw ContextException.of("Unable to write source", e).addContext("file", file);
+    }
+    return file;
+  }
+
+  /**
+   * Flushes and closes the files that are kept open by the append* methods.
+   */
+  public synchronized void flush() {
+    List<Map.Entry<File, OutputStream>> entries = new ArrayList<>(appendedFiles.entrySet());
+    appendedFiles.clear();
+    for (Map.Entry<File, OutputStream> entry : entries) {
+      close(entry.getKey(), entry.getValue());
+    }
+    if (segmentWriter != null) {
+      segmentWriter.flush();
+    }
+  }
+
+  private File write(FileStructure.Domain domain, int componentRef, Message message) {
+    if (segmentWriter != null) {
+      segmentWriter.write(domain, componentRef, true, message::writeTo);
+      return fileStructure.segments();
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    Protobuf.write(message, file);
+    return file;
+  }
+
+  private <MSG extends Message> File writeStream(FileStructure.Domain domain, int componentRef, Iterable<MSG> messages) {
+    if (segmentWriter != null) {
+      segmentWriter.write(domain, componentRef, true, output -> Protobuf.writeStream(messages, output));
+      return fileStructure.segments();
+    }
+    File file = fileStructure.fileFor(domain, componentRef);
+    Protobuf.writeStream(messages, file, false);
+    return file;
+  }
+
+  private void appendComponentData(FileStructure.Domain domain, int componentRef, Message message, String messageType) {
+    if (segmentWriter != null) {
+      segmentWriter.write(domain, componentRef, false, message::writeDelimitedTo);
+    } else {
+      append(fileStructure.fileFor(domain, componentRef), message, messageType);
+    }
+  }
+
+  private synchronized void append(File file, Message message, String messageType) {
+    try {
+      OutputStream out = appendedFiles.get(file);
+      if (out == null) {
+        out = new BufferedOutputStream(new FileOutputStream(file, true));
+        appendedFiles.put(file, out);
+      }
+      message.writeDelimitedTo(out);
+    } catch (Exception e) {
+      throw ContextException.of("Unable to write " + messageType, e).addContext("file", file);
+    }
+  }
+
+  private synchronized void closeAppendedFile(File file) {
+    if (segmentWriter != null) {
+      return;
+    }
+    OutputStream out = appendedFiles.remove(file);
+    if (out != null) {
+      close(file, out);
+    }
+  }
+
+  private static void close(File file, OutputStream out) {
+    try {
+      out.close();
+    } catch (IOException e) {
+      throw ContextException.of("Unable to close file", e).addContext("file", file);
+    }
+  }
+
+  @FunctionalInterface
+  public interface ContentWriter {
+    /**
+     * Writes the content to {@code output}, which must not be closed.
+     */
+    void writeTo(OutputStream output) throws IOException;
+  }
 }
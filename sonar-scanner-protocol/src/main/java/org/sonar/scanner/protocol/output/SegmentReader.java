@@ -0,0 +1,166 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+
+import static org.sonar.scanner.protocol.output.SegmentWriter.RECORD_SIZE;
+
+/**
+ * Reads the data of components in a segmented report written by {@link SegmentWriter}. The index is loaded
+ * incrementally, so that the segments flushed by a writer of the same report since the previous read are visible.
+ */
+class SegmentReader {
+
+  private static final Domain[] DOMAINS = Domain.values();
+  private static final long[] NO_SEGMENTS = new long[0];
+
+  private final File dataFile;
+  private final File indexFile;
+  // per domain and component ref, the offset and the length of each segment
+  private final Map<Domain, long[][]> segmentsByDomain = new EnumMap<>(Domain.class);
+  private long loadedIndexLength = 0L;
+
+  SegmentReader(FileStructure fileStructure) {
+    this.dataFile = fileStructure.segments();
+    this.indexFile = fileStructure.segmentsIndex();
+  }
+
+  synchronized boolean has(Domain domain, int componentRef) {
+    return segments(domain, componentRef) != null;
+  }
+
+  /**
+   * @return the concatenation of the segments of the component, or null if nothing was written for it
+   */
+  @CheckForNull
+  synchronized InputStream open(Domain domain, int componentRef) {
+    long[] segments = segments(domain, componentRef);
+    if (segments == null) {
+      return null;
+    }
+    if (segments.length == 2) {
+      return new BufferedInputStream(openSegment(segments[0], segments[1]));
+    }
+    return new BufferedInputStream(new SequenceInputStream(new SegmentEnumeration(segments)));
+  }
+
+  @CheckForNull
+  private long[] segments(Domain domain, int componentRef) {
+    loadIndex();
+    long[][] segmentsByRef = segmentsByDomain.get(domain);
+    if (segmentsByRef == null || componentRef < 0 || componentRef >= segmentsByRef.length) {
+      return null;
+    }
+    return segmentsByRef[componentRef];
+  }
+
+  private void loadIndex() {
+    long indexLength = indexFile.length();
+    if (indexLength - loadedIndexLength < RECORD_SIZE) {
+      return;
+    }
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+      IOUtils.skipFully(input, loadedIndexLength);
+      while (indexLength - loadedIndexLength >= RECORD_SIZE) {
+        int domainOrdinal = input.readUnsignedByte();
+        int componentRef = input.readInt();
+        boolean replace = input.readBoolean();
+        long offset = input.readLong();
+        long length = input.readLong();
+        if (domainOrdinal >= DOMAINS.length || componentRef < 0) {
+          throw new IllegalStateException("Invalid record at offset " + loadedIndexLength + " of segments index " + indexFile);
+        }
+        addSegment(DOMAINS[domainOrdinal], componentRef, replace, offset, length);
+        loadedIndexLength += RECORD_SIZE;
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to read segments index " + indexFile, e);
+    }
+  }
+
+  private void addSegment(Domain domain, int componentRef, boolean replace, long offset, long length) {
+    long[][] segmentsByRef = segmentsByDomain.get(domain);
+    if (segmentsByRef == null || componentRef >= segmentsByRef.length) {
+      int size = Math.max(componentRef + 1, segmentsByRef == null ? 0 : (segmentsByRef.length * 2));
+      segmentsByRef = segmentsByRef == null ? new long[size][] : Arrays.copyOf(segmentsByRef, size);
+      segmentsByDomain.put(domain, segmentsByRef);
+    }
+    long[] previous = (replace || segmentsByRef[componentRef] == null) ? NO_SEGMENTS : segmentsByRef[componentRef];
+    long[] segments = Arrays.copyOf(previous, previous.length + 2);
+    segments[previous.length] = offset;
+    segments[previous.length + 1] = length;
+    segmentsByRef[componentRef] = segments;
+  }
+
+  private InputStream openSegment(long offset, long length) {
+    FileInputStream input = null;
+    try {
+      input = new FileInputStream(dataFile);
+      input.getChannel().position(offset);
+      return new BoundedInputStream(input, length);
+    } catch (IOException e) {
+      IOUtils.closeQuietly(input);
+      throw new IllegalStateException("Fail to read segment at offset " + offset + " of " + dataFile, e);
+    }
+  }
+
+  /**
+   * Opens the segments one after the other, while they are read
+   */
+  private class SegmentEnumeration implements Enumeration<InputStream> {
+    private final long[] segments;
+    private int next = 0;
+
+    private SegmentEnumeration(long[] segments) {
+      this.segments = segments;
+    }
+
+    @Override
+    public boolean hasMoreElements() {
+      return next < segments.length;
+    }
+
+    @Override
+    public InputStream nextElement() {
+      if (!hasMoreElements()) {
+        throw new NoSuchElementException();
+      }
+      InputStream input = openSegment(segments[next], segments[next + 1]);
+      next += 2;
+      return input;
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2020 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.protocol.output;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.sonar.core.util.ContextException;
+import org.sonar.scanner.protocol.output.FileStructure.Domain;
+
+/**
+ * Append-only writer of the data of components in a segmented report. Each write adds a segment at the end of
+ * {@link FileStructure#segments()} and a record to {@link FileStructure#segmentsIndex()}. A record is made of the
+ * domain, the component ref, a flag telling whether the segment replaces the previous segments of the same component
+ * and domain, the offset and the length of the segment.
+ * <p>
+ * Consecutive appends to the same component and domain are merged into a single segment. Replacing writes are
+ * flushed immediately so that they can be read back, appends are visible only after {@link #flush()}.
+ */
+class SegmentWriter {
+
+  static final int RECORD_SIZE = 1 + 4 + 1 + 8 + 8;
+
+  private final File dataFile;
+  private final File indexFile;
+  private final Map<Domain, BitSet> writtenRefs = new EnumMap<>(Domain.class);
+
+  private CountingOutputStream data;
+  private DataOutputStream index;
+  private long dataStart;
+
+  // last segment, not recorded in the index yet so that consecutive appends can extend it
+  private Domain pendingDomain;
+  private int pendingRef;
+  private boolean pendingReplace;
+  private long pendingOffset;
+  private long pendingLength;
+
+  SegmentWriter(FileStructure fileStructure) {
+    this.dataFile = fileStructure.segments();
+    this.indexFile = fileStructure.segmentsIndex();
+    try {
+      // segments of a previous report would be read again
+      Files.deleteIfExists(dataFile.toPath());
+      Files.deleteIfExists(indexFile.toPath());
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to delete segments of previous report: " + dataFile, e);
+    }
+  }
+
+  synchronized boolean has(Domain domain, int componentRef) {
+    BitSet refs = writtenRefs.get(domain);
+    return refs != null && refs.get(componentRef);
+  }
+
+  synchronized void write(Domain domain, int componentRef, boolean replace, ScannerReportWriter.ContentWriter content) {
+    try {
+      ensureOpen();
+      long offset = dataStart + data.getByteCount();
+      if (replace || pendingDomain != domain || pendingRef != componentRef || pendingOffset + pendingLength != offset) {
+        recordPending();
+        pendingDomain = domain;
+        pendingRef = componentRef;
+        pendingReplace = replace;
+        pendingOffset = offset;
+        pendingLength = 0L;
+      }
+      content.writeTo(data);
+      pendingLength = dataStart + data.getByteCount() - pendingOffset;
+      writtenRefs.computeIfAbsent(domain, d -> new BitSet()).set(componentRef);
+      if (replace) {
+        // data is flushed first, so that the record is never visible before its segment
+        data.flush();
+        recordPending();
+        index.flush();
+      }
+    } catch (Exception e) {
+      throw ContextException.of("Unable to write segment", e)
+        .addContext("domain", domain)
+        .addContext("component", componentRef)
+        .addContext("file", dataFile);
+    }
+  }
+
+  /**
+   * Records the last segment and closes the files. They are opened again by the next write.
+   */
+  synchronized void flush() {
+    if (data == null) {
+      return;
+    }
+    try {
+      recordPending();
+      data.close();
+      index.close();
+    } catch (IOException e) {
+      throw ContextException.of("Unable to close segments", e).addContext("file", dataFile);
+    } finally {
+      data = null;
+      index = null;
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if (data == null) {
+      dataStart = dataFile.length();
+      data = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile, true)));
+      index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+    }
+  }
+
+  private void recordPending() throws IOException {
+    if (pendingDomain == null) {
+      return;
+    }
+    index.writeByte(pendingDomain.ordinal());
+    index.writeInt(pendingRef);
+    index.writeBoolean(pendingReplace);
+    index.writeLong(pendingOffset);
+    index.writeLong(pendingLength);
+    pendingDomain = null;
+  }
+}
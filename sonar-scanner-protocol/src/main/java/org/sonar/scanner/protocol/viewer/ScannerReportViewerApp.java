@@ -22,6 +22,7 @@ package org.sonar.scanner.protocol.viewer;
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
@@ -29,16 +30,15 @@ import java.sql.Date;
 import java.text.SimpleDateFormat;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import javax.annotation.CheckForNull;
 import javax.swing.*;
 import javax.swing.UIManager.*;
 import javax.swing.event.*;
 import javax.swing.tree.*;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.core.util.CloseableIterator;
-import org.sonar.scanner.protocol.output.FileStructure.Domain;
 import org.sonar.scanner.protocol.output.ScannerReport;
 import org.sonar.scanner.protocol.output.ScannerReport.Changesets;
 import org.sonar.scanner.protocol.output.ScannerReport.Changesets.Changeset;
@@ -332,19 +332,16 @@ public class ScannerReportViewerApp {
   }
 
   private void updateSource(Component component) {
-    File sourceFile = reader.getFileStructure().fileFor(Domain.SOURCE, component.getRef());
     sourceEditor.setText("");
 
-    if (sourceFile.exists()) {
-      try (Scanner s = new Scanner(sourceFile, StandardCharsets.UTF_8.name()).useDelimiter("\\Z")) {
-        if (s.hasNext()) {
-          sourceEditor.setText(s.next());
-        }
-      } catch (IOException ex) {
-        StringWriter errors = new StringWriter();
-        ex.printStackTrace(new PrintWriter(errors));
-        sourceEditor.setText(errors.toString());
+    try (InputStream source = reader.openFileSource(component.getRef())) {
+      if (source != null) {
+        sourceEditor.setText(IOUtils.toString(source, StandardCharsets.UTF_8));
       }
+    } catch (IOException ex) {
+      StringWriter errors = new StringWriter();
+      ex.printStackTrace(new PrintWriter(errors));
+      sourceEditor.setText(errors.toString());
     }
   }
 
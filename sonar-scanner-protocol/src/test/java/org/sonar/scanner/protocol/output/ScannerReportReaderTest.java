@@ -33,9 +33,11 @@ import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport.Measure.StringValue;
 import org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlightingRule.HighlightingType;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class ScannerReportReaderTest {
 
@@ -109,6 +111,7 @@ public class ScannerReportReaderTest {
     ScannerReport.ExternalIssue issue = ScannerReport.ExternalIssue.newBuilder()
       .build();
     writer.appendComponentExternalIssue(1, issue);
+    writer.flush();
 
     assertThat(underTest.readComponentExternalIssues(1)).toIterable().hasSize(1);
     assertThat(underTest.readComponentExternalIssues(200)).toIterable().isEmpty();
@@ -125,6 +128,7 @@ public class ScannerReportReaderTest {
     ScannerReport.Measure.Builder measure = ScannerReport.Measure.newBuilder()
       .setStringValue(StringValue.newBuilder().setValue("value_a"));
     writer.appendComponentMeasure(1, measure.build());
+    writer.flush();
 
     assertThat(underTest.readComponentMeasures(1)).toIterable().hasSize(1);
   }
@@ -338,4 +342,87 @@ public class ScannerReportReaderTest {
   public void return_null_when_no_file_source() {
     assertThat(underTest.readFileSource(UNKNOWN_COMPONENT_REF)).isNull();
   }
+
+  @Test
+  public void open_file_source_of_directory_report() throws Exception {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeComponentSource(1, output -> IOUtils.write("line1\nline2", output, UTF_8));
+
+    assertThat(underTest.hasFileSource(1)).isTrue();
+    try (InputStream inputStream = underTest.openFileSource(1)) {
+      assertThat(IOUtils.readLines(inputStream, UTF_8)).containsExactly("line1", "line2");
+    }
+    assertThat(underTest.openFileSource(UNKNOWN_COMPONENT_REF)).isNull();
+  }
+
+  @Test
+  public void read_segmented_report() throws Exception {
+    ScannerReportWriter writer = new ScannerReportWriter(dir, true);
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).setProjectRelativePath("src/Foo.java").build());
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(2).setProjectRelativePath("src/Bar.java").build());
+    writer.writeComponentSource(1, output -> IOUtils.write("line1\nline2", output, UTF_8));
+    writer.writeComponentCoverage(2, singletonList(ScannerReport.LineCoverage.newBuilder().setLine(3).setHits(true).build()));
+    writer.flush();
+
+    assertThat(dir.list()).containsOnly("segments.dat", "segments-index.dat");
+    assertThat(underTest.readComponent(1).getProjectRelativePath()).isEqualTo("src/Foo.java");
+    assertThat(underTest.readComponent(2).getProjectRelativePath()).isEqualTo("src/Bar.java");
+    try (InputStream inputStream = underTest.openFileSource(1)) {
+      assertThat(IOUtils.readLines(inputStream, UTF_8)).containsExactly("line1", "line2");
+    }
+    assertThat(underTest.hasFileSource(2)).isFalse();
+    assertThat(underTest.hasCoverage(1)).isFalse();
+    assertThat(underTest.hasCoverage(2)).isTrue();
+    assertThat(underTest.readComponentCoverage(2)).toIterable().extracting(ScannerReport.LineCoverage::getLine).containsExactly(3);
+    assertThat(underTest.readComponentCoverage(1)).toIterable().isEmpty();
+    assertThat(underTest.readChangesets(1)).isNull();
+  }
+
+  @Test
+  public void read_interleaved_appends_of_segmented_report() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir, true);
+    writer.appendComponentIssue(1, ScannerReport.Issue.newBuilder().setMsg("issue 1").build());
+    writer.appendComponentIssue(1, ScannerReport.Issue.newBuilder().setMsg("issue 2").build());
+    writer.appendComponentIssue(2, ScannerReport.Issue.newBuilder().setMsg("issue 3").build());
+    writer.appendComponentIssue(1, ScannerReport.Issue.newBuilder().setMsg("issue 4").build());
+    writer.flush();
+
+    assertThat(underTest.readComponentIssues(1)).toIterable().extracting(ScannerReport.Issue::getMsg).containsExactly("issue 1", "issue 2", "issue 4");
+    assertThat(underTest.readComponentIssues(2)).toIterable().extracting(ScannerReport.Issue::getMsg).containsExactly("issue 3");
+  }
+
+  @Test
+  public void read_last_replacing_write_of_segmented_report() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir, true);
+    writer.appendComponentIssue(1, ScannerReport.Issue.newBuilder().setMsg("appended").build());
+    writer.writeComponentIssues(1, singletonList(ScannerReport.Issue.newBuilder().setMsg("written").build()));
+    writer.flush();
+
+    assertThat(underTest.readComponentIssues(1)).toIterable().extracting(ScannerReport.Issue::getMsg).containsExactly("written");
+  }
+
+  @Test
+  public void read_segments_written_after_previous_read() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir, true);
+    writer.writeComponentCoverage(1, singletonList(ScannerReport.LineCoverage.newBuilder().setLine(1).build()));
+
+    assertThat(underTest.hasCoverage(1)).isTrue();
+    assertThat(underTest.hasCoverage(2)).isFalse();
+
+    writer.writeComponentCoverage(2, singletonList(ScannerReport.LineCoverage.newBuilder().setLine(2).build()));
+    writer.writeComponentCoverage(1, singletonList(ScannerReport.LineCoverage.newBuilder().setLine(3).build()));
+
+    assertThat(underTest.hasCoverage(2)).isTrue();
+    assertThat(underTest.readComponentCoverage(1)).toIterable().extracting(ScannerReport.LineCoverage::getLine).containsExactly(3);
+  }
+
+  @Test
+  public void fail_if_missing_component_in_segmented_report() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir, true);
+    writer.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+
+    assertThatThrownBy(() -> underTest.readComponent(UNKNOWN_COMPONENT_REF))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Unable to find report for component #" + UNKNOWN_COMPONENT_REF);
+  }
 }
@@ -35,6 +35,7 @@ import org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlightingRule.Hi
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class ScannerReportWriterTest {
 
@@ -128,6 +129,7 @@ public class ScannerReportWriterTest {
       .build();
 
     underTest.appendComponentExternalIssue(1, issue);
+    underTest.flush();
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.EXTERNAL_ISSUES, 1)).isTrue();
     File file = underTest.getFileStructure().fileFor(FileStructure.Domain.EXTERNAL_ISSUES, 1);
@@ -150,6 +152,7 @@ public class ScannerReportWriterTest {
       .setType(ScannerReport.IssueType.BUG)
       .build();
     underTest.appendAdHocRule(rule);
+    underTest.flush();
 
     File file = underTest.getFileStructure().adHocRules();
     assertThat(file).exists().isFile();
@@ -184,6 +187,7 @@ public class ScannerReportWriterTest {
       .build();
 
     underTest.appendComponentMeasure(1, measure);
+    underTest.flush();
 
     assertThat(underTest.hasComponentData(FileStructure.Domain.MEASURES, 1)).isTrue();
     File file = underTest.getFileStructure().fileFor(FileStructure.Domain.MEASURES, 1);
@@ -193,6 +197,44 @@ public class ScannerReportWriterTest {
     }
   }
 
+  @Test
+  public void append_measures_to_more_files_than_the_number_of_open_files() {
+    ScannerReport.Measure measure = ScannerReport.Measure.newBuilder()
+      .setDoubleValue(DoubleValue.newBuilder().setValue(2.5d))
+      .build();
+    int nbComponents = ScannerReportWriter.MAX_OPEN_APPENDED_FILES + 10;
+
+    for (int i = 0; i < 3; i++) {
+      for (int ref = 1; ref <= nbComponents; ref++) {
+        underTest.appendComponentMeasure(ref, measure);
+      }
+    }
+    underTest.flush();
+
+    for (int ref = 1; ref <= nbComponents; ref++) {
+      File file = underTest.getFileStructure().fileFor(FileStructure.Domain.MEASURES, ref);
+      try (CloseableIterator<ScannerReport.Measure> read = Protobuf.readStream(file, ScannerReport.Measure.parser())) {
+        assertThat(Iterators.size(read)).isEqualTo(3);
+      }
+    }
+  }
+
+  @Test
+  public void write_issues_overrides_appended_issues() {
+    ScannerReport.Issue issue = ScannerReport.Issue.newBuilder()
+      .setMsg("the message")
+      .build();
+    underTest.appendComponentIssue(1, issue);
+
+    underTest.writeComponentIssues(1, asList(issue, issue));
+    underTest.flush();
+
+    File file = underTest.getFileStructure().fileFor(FileStructure.Domain.ISSUES, 1);
+    try (CloseableIterator<ScannerReport.Issue> read = Protobuf.readStream(file, ScannerReport.Issue.parser())) {
+      assertThat(Iterators.size(read)).isEqualTo(2);
+    }
+  }
+
   @Test
   public void write_scm() {
     assertThat(underTest.hasComponentData(FileStructure.Domain.CHANGESETS, 1)).isFalse();
@@ -353,4 +395,54 @@ public class ScannerReportWriterTest {
     assertThat(underTest.hasComponentData(FileStructure.Domain.COVERAGES, 1)).isTrue();
   }
 
+  @Test
+  public void write_data_of_components_to_segments() {
+    underTest = new ScannerReportWriter(dir, true);
+    assertThat(underTest.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isFalse();
+
+    underTest.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+    underTest.appendComponentMeasure(1, ScannerReport.Measure.newBuilder().setMetricKey("lines").build());
+    underTest.writeComponentSource(1, output -> output.write(new byte[] {1, 2, 3}));
+    underTest.flush();
+
+    assertThat(underTest.hasComponentData(FileStructure.Domain.COMPONENT, 1)).isTrue();
+    assertThat(underTest.hasComponentData(FileStructure.Domain.MEASURES, 1)).isTrue();
+    assertThat(underTest.hasComponentData(FileStructure.Domain.SOURCE, 1)).isTrue();
+    assertThat(underTest.hasComponentData(FileStructure.Domain.COMPONENT, 2)).isFalse();
+    assertThat(dir.list()).containsOnly("segments.dat", "segments-index.dat");
+    assertThat(underTest.getFileStructure().segmentsIndex().length()).isEqualTo(3L * SegmentWriter.RECORD_SIZE);
+  }
+
+  @Test
+  public void merge_consecutive_appends_into_a_single_segment() {
+    underTest = new ScannerReportWriter(dir, true);
+
+    underTest.appendComponentIssue(1, ScannerReport.Issue.newBuilder().setMsg("issue 1").build());
+    underTest.appendComponentIssue(1, ScannerReport.Issue.newBuilder().setMsg("issue 2").build());
+    underTest.appendComponentIssue(2, ScannerReport.Issue.newBuilder().setMsg("issue 3").build());
+    underTest.flush();
+
+    assertThat(underTest.getFileStructure().segmentsIndex().length()).isEqualTo(2L * SegmentWriter.RECORD_SIZE);
+  }
+
+  @Test
+  public void delete_segments_of_previous_report() {
+    underTest = new ScannerReportWriter(dir, true);
+    underTest.writeComponent(ScannerReport.Component.newBuilder().setRef(1).build());
+    underTest.flush();
+
+    underTest = new ScannerReportWriter(dir, true);
+
+    assertThat(underTest.getFileStructure().segments()).doesNotExist();
+    assertThat(underTest.getFileStructure().segmentsIndex()).doesNotExist();
+  }
+
+  @Test
+  public void source_file_is_not_supported_by_segmented_report() {
+    underTest = new ScannerReportWriter(dir, true);
+
+    assertThatThrownBy(() -> underTest.getSourceFile(1))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Source files are not supported by segmented reports");
+  }
 }
@@ -20,8 +20,11 @@
 package org.sonarqube.ws.client;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 
 /**
  * @since 5.3
@@ -50,20 +53,69 @@ public class PostRequest extends BaseRequest<PostRequest> {
 
   public static class Part {
     private final String mediaType;
+    private final String fileName;
     private final File file;
+    private final ContentWriter contentWriter;
 
     public Part(String mediaType, File file) {
       this.mediaType = mediaType;
+      this.fileName = file.getName();
       this.file = file;
+      this.contentWriter = null;
+    }
+
+    /**
+     * The content of the part is written while the request is sent, so its length is not known in advance.
+     * The writer can be called several times, for example when the request is redirected.
+     *
+     * @since 8.4
+     */
+    public Part(String mediaType, String fileName, ContentWriter contentWriter) {
+      this.mediaType = mediaType;
+      this.fileName = fileName;
+      this.file = null;
+      this.contentWriter = contentWriter;
     }
 
     public String getMediaType() {
       return mediaType;
     }
 
+    /**
+     * @since 8.4
+     */
+    public String getFileName() {
+      return fileName;
+    }
+
+    /**
+     * Null if the content is written by {@link #getContentWriter()}
+     */
+    @CheckForNull
     public File getFile() {
       return file;
     }
+
+    /**
+     * Null if the content is read from {@link #getFile()}
+     *
+     * @since 8.4
+     */
+    @CheckForNull
+    public ContentWriter getContentWriter() {
+      return contentWriter;
+    }
+  }
+
+  /**
+   * @since 8.4
+   */
+  @FunctionalInterface
+  public interface ContentWriter {
+    /**
+     * Writes the content to {@code output}, which must not be closed.
+     */
+    void writeTo(OutputStream output) throws IOException;
   }
 
 }